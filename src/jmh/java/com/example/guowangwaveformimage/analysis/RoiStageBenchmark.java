@@ -0,0 +1,112 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    ROI 特征各阶段：特征提取（按平面）、黑实线 / 虚线 / 竖网格线检测、逐列波形跟踪。
+    特征提取按 mode 分别测量逐像素扫描与 OpenCV 原生行列统计（BGR / OTSU / ADAPTIVE 平面）。
+    检测与跟踪都在同一份预先提取的特征上做，跟踪走不带缓存的入口。
+    运行：mvn -Pjmh -DskipTests verify -Djmh.args="RoiStageBenchmark -prof gc"
+*/
+
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Wave;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoiStageBenchmark {
+
+    @Param({"1400x310", "2800x620"})
+    public String size;
+
+    @Param({"scan", "native"})
+    public String mode;
+
+    private final RoiFeatureExtractor extractor = new RoiFeatureExtractor();
+    private LineScanMode scanMode;
+    private Mat roi;
+    private RoiFeatures features;
+    private int y1, y3;
+
+    @Setup
+    public void setup() {
+        Loader.load(opencv_java.class);
+        scanMode = LineScanMode.of(mode);
+        String[] wh = size.split("x");
+        roi = ScopeImageGenerator.renderPanel(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]),
+                Wave.of(300000, 50, 0), 200000);
+        features = extractor.extract(roi);
+        List<Integer> lines = features.solidLineRows((int) Math.ceil(features.width() * 0.6));
+        y1 = lines.get(0);
+        y3 = lines.get(lines.size() - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        roi.release();
+    }
+
+    /* ==================== 特征提取 ==================== */
+
+    @Benchmark
+    public RoiFeatures extractBgr() {
+        return extractor.extract(roi, EnumSet.of(RoiFeatures.Plane.BGR), scanMode);
+    }
+
+    @Benchmark
+    public RoiFeatures extractOtsu() {
+        return extractor.extract(roi, EnumSet.of(RoiFeatures.Plane.OTSU), scanMode);
+    }
+
+    @Benchmark
+    public RoiFeatures extractAdaptive() {
+        return extractor.extract(roi, EnumSet.of(RoiFeatures.Plane.ADAPTIVE), scanMode);
+    }
+
+    @Benchmark
+    public RoiFeatures extractHsv() {
+        return extractor.extract(roi, EnumSet.of(RoiFeatures.Plane.HSV));
+    }
+
+    /* ==================== 检测 / 跟踪 ==================== */
+
+    @Benchmark
+    public List<Integer> solidLineRows() {
+        return features.solidLineRows((int) Math.ceil(features.width() * 0.6));
+    }
+
+    @Benchmark
+    public List<Integer> dashRows() {
+        return features.dashRows(y1, y3, 5, 1.2);
+    }
+
+    @Benchmark
+    public List<Integer> gridColumns() {
+        return features.gridColumns((int) (features.height() * 0.55), 4);
+    }
+
+    @Benchmark
+    public int[] traceTop() {
+        return features.traceUncached(false, y1, y3);
+    }
+
+    @Benchmark
+    public int[] traceCenter() {
+        return features.traceUncached(true, y1, y3);
+    }
+
+    @Benchmark
+    public float[] traceCentroid() {
+        return features.traceCentroidUncached(y1, y3);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    四个分析器的单相流水线（ROI 特征提取 + Analyzer.analyze），输入为合成面板，尺寸可调。
+    - 每次调用都重新提取特征（特征对象内有跟踪缓存，复用会只测到缓存命中）
+    - 不经过解码 / 结果缓存 / 线程池，只测算法本身
+    运行：mvn -Pjmh -DskipTests verify -Djmh.args="PipelineBenchmark -prof gc"
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Wave;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /** ROI 宽x高（1400x310 为现场截图尺寸） */
+    @Param({"1400x310", "2800x620"})
+    public String size;
+
+    private final RoiFeatureExtractor extractor = new RoiFeatureExtractor();
+    private final TransientAnalyzer zantai = new TransientAnalyzer(AnalysisMetrics.standalone());
+    private final SteadyAnalyzer wentai = new SteadyAnalyzer(AnalysisMetrics.standalone());
+    private final FrequencyAnalyzer pinlv = new FrequencyAnalyzer(AnalysisMetrics.standalone());
+    private final PowerAnalyzer gonglv = new PowerAnalyzer(AnalysisMetrics.standalone());
+    private Mat voltage, current;
+
+    @Setup
+    public void setup() {
+        Loader.load(opencv_java.class);
+        String[] wh = size.split("x");
+        int w = Integer.parseInt(wh[0]), h = Integer.parseInt(wh[1]);
+        voltage = ScopeImageGenerator.renderPanel(w, h, Wave.of(300000, 50, 0), 200000);
+        current = ScopeImageGenerator.renderPanel(w, h, Wave.of(700, 50, -30), 500);
+    }
+
+    @TearDown
+    public void tearDown() {
+        voltage.release();
+        current.release();
+    }
+
+    @Benchmark
+    public Object zantai() {
+        return zantai.analyze(PhaseInput.of(extractor.extract(voltage, TransientAnalyzer.PLANES), "A"));
+    }
+
+    @Benchmark
+    public Object wentai() {
+        return wentai.analyze(PhaseInput.of(extractor.extract(voltage, SteadyAnalyzer.PLANES), "A"));
+    }
+
+    @Benchmark
+    public Object pinlv() {
+        return pinlv.analyze(PhaseInput.of(extractor.extract(voltage, FrequencyAnalyzer.PLANES), "A"));
+    }
+
+    @Benchmark
+    public Object gonglv() {
+        return gonglv.analyze(PhaseInput.of(extractor.extract(voltage, PowerAnalyzer.PLANES), "A")
+                .paired(extractor.extract(current, PowerAnalyzer.PLANES)));
+    }
+}
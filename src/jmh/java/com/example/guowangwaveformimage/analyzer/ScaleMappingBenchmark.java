@@ -0,0 +1,89 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    刻度相关阶段：暂态分析器的黑实线 / 虚线行检测，稳态 / 功率接口逐列的像素 -> 物理量换算。
+    换算按接口实际用法：每相构建一次刻度表（ScaleCalibration），整条跟踪序列查表换算。
+    周期估计（自相关最佳滞后）见 bench.PeriodEstimatorBenchmark。
+    运行：mvn -Pjmh -DskipTests verify -Djmh.args="ScaleMappingBenchmark -prof gc"
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.ScaleCalibration;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Wave;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScaleMappingBenchmark {
+
+    @Param({"1400x310", "2800x620"})
+    public String size;
+
+    private TransientAnalyzer zantai;
+    private RoiFeatures bgr, full;
+    private int y2;
+    private List<Integer> dashYs;
+    private int[] trace;
+    private ScaleCalibration scale;
+    private double[] out;
+
+    @Setup
+    public void setup() {
+        Loader.load(opencv_java.class);
+        String[] wh = size.split("x");
+        Mat roi = ScopeImageGenerator.renderPanel(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]),
+                Wave.of(300000, 50, 0), 200000);
+        RoiFeatureExtractor extractor = new RoiFeatureExtractor();
+        try {
+            bgr = extractor.extract(roi, TransientAnalyzer.PLANES);
+            full = extractor.extract(roi, SteadyAnalyzer.PLANES);
+        } finally {
+            roi.release();
+        }
+        zantai = new TransientAnalyzer(AnalysisMetrics.standalone());
+
+        List<Integer> lines = full.solidLineRows((int) Math.ceil(full.width() * 0.6));
+        int y1 = lines.get(0), y3 = lines.get(lines.size() - 1);
+        y2 = lines.get(lines.size() / 2);
+        dashYs = full.dashRows(y1, y3, 5, 1.2);
+        trace = full.traceTop(y1, y3);
+        scale = ScaleCalibration.of(y2, dashYs, 200000, 300, full.height());
+        out = new double[trace.length];
+    }
+
+    @Benchmark
+    public List<Integer> zantaiBlackLines() {
+        return zantai.detectHorizontalBlackLines(bgr, 0.6);
+    }
+
+    @Benchmark
+    public List<Integer> zantaiDashLines() {
+        return zantai.detectHorizontalDashLines(bgr, 400, 800);
+    }
+
+    /** 构建刻度表 + 整条序列换算（每相一次的实际开销） */
+    @Benchmark
+    public double[] calibrateAndMap() {
+        return ScaleCalibration.of(y2, dashYs, 200000, 300, full.height()).map(trace, 0, trace.length);
+    }
+
+    /** 刻度表已建好时的整条序列换算（不分配） */
+    @Benchmark
+    public double[] mapOnly() {
+        scale.map(trace, 0, trace.length, out);
+        return out;
+    }
+}
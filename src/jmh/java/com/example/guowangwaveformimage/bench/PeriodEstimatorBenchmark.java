@@ -0,0 +1,52 @@
+package com.example.guowangwaveformimage.bench;
+
+/*
+    周期估计对比：直接自相关（原算法） vs FFT 自相关 vs 频谱峰。
+    信号规模与频率接口右侧 60% 窗口相当（约 840 个样本，周期约 213 像素）。
+*/
+
+import com.example.guowangwaveformimage.analysis.period.PeriodEstimator;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PeriodEstimatorBenchmark {
+
+    @Param({"autocorr", "fft", "spectrum"})
+    public String method;
+
+    @Param({"840", "1680"})
+    public int samples;
+
+    private PeriodEstimator estimator;
+    private double[] sig;
+    private int minLag, maxLag;
+
+    @Setup
+    public void setup() {
+        estimator = PeriodMethod.of(method).estimator();
+        double period = 213.37 * samples / 840.0;
+        Random rnd = new Random(42);
+        sig = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            sig[i] = 60 * Math.sin(2 * Math.PI * i / period) + rnd.nextGaussian();
+        }
+        // 与 FrequencyAnalyzer 相同：12–30 ms 对应的像素范围
+        minLag = (int) Math.round(period * 12 / 20.0);
+        maxLag = Math.min(samples / 2, (int) Math.round(period * 30 / 20.0));
+    }
+
+    @Benchmark
+    public double estimate() {
+        return estimator.estimate(sig, minLag, maxLag, new HashMap<>()).periodPx;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    分析线程池（有界）：
+    - 文件级、相级任务都提交到同一个池，结果按输入顺序返回
+    - 等待结果时，尚未开始的任务由等待线程自己执行，嵌套提交不会因池满而死锁
+    - 队列满时任务不丢弃，同样留给等待线程执行
+    - forEachCompleted 按完成先后逐个交出结果，供流式响应使用
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+@Component
+public class AnalysisExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    public AnalysisExecutor(AnalysisProperties props) {
+        AnalysisProperties.Executor cfg = props.getExecutor();
+        int threads = cfg.getThreads() > 0 ? cfg.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cfg.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "analysis-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** 并行执行 fn，按 items 顺序返回结果；任一任务异常时原样抛出 */
+    public <T, R> List<R> invokeAll(List<T> items, Function<? super T, ? extends R> fn) {
+        List<FutureTask<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items) {
+            FutureTask<R> task = new FutureTask<>(() -> fn.apply(item));
+            tasks.add(task);
+        }
+        // 第一个任务留给当前线程，其余尽量交给池
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                pool.execute(tasks.get(i));
+            } catch (RejectedExecutionException full) {
+                break; // 池满：剩下的由当前线程逐个执行
+            }
+        }
+
+        List<R> out = new ArrayList<>(tasks.size());
+        try {
+            for (FutureTask<R> task : tasks) {
+                task.run(); // 未开始则在当前线程执行；已开始/已完成时立即返回
+                out.add(task.get());
+            }
+        } catch (ExecutionException e) {
+            tasks.forEach(t -> t.cancel(false));
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            if (c instanceof Error) throw (Error) c;
+            throw new IllegalStateException(c);
+        } catch (InterruptedException e) {
+            tasks.forEach(t -> t.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("分析被中断");
+        }
+        return out;
+    }
+
+    /**
+     * 并行执行 fn，每个结果一完成就交给 sink(下标, 结果)，按完成先后、在当前线程上调用；
+     * 结果交出后即不再持有。任务或 sink 异常时取消剩余任务并原样抛出。
+     */
+    public <T, R> void forEachCompleted(List<T> items, Function<? super T, ? extends R> fn,
+                                        BiConsumer<Integer, ? super R> sink) {
+        int n = items.size();
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        List<FutureTask<R>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            T item = items.get(i);
+            int idx = i;
+            tasks.add(new FutureTask<>(() -> fn.apply(item)) {
+                @Override
+                protected void done() { completed.add(idx); }
+            });
+        }
+        for (int i = 1; i < n; i++) {
+            try {
+                pool.execute(tasks.get(i));
+            } catch (RejectedExecutionException full) {
+                break;
+            }
+        }
+
+        int next = 0; // 下一个可能尚未开始、可由当前线程执行的任务
+        try {
+            for (int emitted = 0; emitted < n; emitted++) {
+                Integer idx = completed.poll();
+                // 没有现成结果时：先帮忙执行尚未开始的任务，都已开始才阻塞等待
+                while (idx == null && next < n) {
+                    FutureTask<R> t = tasks.get(next++);
+                    if (t != null) t.run(); // 已交出结果的置空
+                    idx = completed.poll();
+                }
+                if (idx == null) idx = completed.take();
+                FutureTask<R> task = tasks.set(idx, null);
+                sink.accept(idx, task.get());
+            }
+        } catch (ExecutionException e) {
+            cancelAll(tasks);
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            if (c instanceof Error) throw (Error) c;
+            throw new IllegalStateException(c);
+        } catch (InterruptedException e) {
+            cancelAll(tasks);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("分析被中断");
+        } catch (RuntimeException | Error e) {
+            cancelAll(tasks);
+            throw e;
+        }
+    }
+
+    private static void cancelAll(List<? extends Future<?>> tasks) {
+        for (Future<?> t : tasks) {
+            if (t != null) t.cancel(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    彩色像素的色相聚类（一个 ROI 内有多条不同颜色的波形时，自动划分各条的色相区间）：
+    - 输入：ROI 内彩色像素（S、V 均超过阈值）的色相直方图，180 个桶，环形
+    - 环形平滑后取局部峰，按高度从大到小挑选，彼此相距不足 MIN_SEPARATION 的并入更高的峰，最多 maxClusters 个
+    - 相邻两峰之间取平滑直方图的最低点为分界，每个桶都归入某一簇（抗锯齿边缘的混色按就近归属）
+    - 输出按色相升序；只有一个峰时返回全色相（与单波形跟踪一致）
+    纯计算，无状态。
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class HueClusters {
+
+    // 两条波形色相至少相差的桶数（约 24°），更近的视为同一颜色的抗锯齿 / 压缩偏色
+    static final int MIN_SEPARATION = 12;
+    // 平滑半径（桶）
+    private static final int SMOOTH_R = 2;
+    // 峰附近（±MIN_SEPARATION/2）像素数不足总数的该比例时忽略（文字、图例等零星彩色）
+    private static final double MIN_SHARE = 0.03;
+
+    private HueClusters() {}
+
+    /** 按直方图聚类；没有彩色像素时返回空数组 */
+    public static HueRange[] cluster(int[] hist, int maxClusters) {
+        int n = HueRange.HUE_BINS;
+        long total = 0;
+        for (int c : hist) total += c;
+        if (total == 0 || maxClusters < 1) return new HueRange[0];
+
+        double[] sm = new double[n];
+        for (int i = 0; i < n; i++) {
+            double s = 0;
+            for (int k = -SMOOTH_R; k <= SMOOTH_R; k++) s += hist[Math.floorMod(i + k, n)];
+            sm[i] = s / (2 * SMOOTH_R + 1);
+        }
+
+        // 局部峰（平台取第一个桶），附近像素占比足够
+        List<Integer> peaks = new ArrayList<>();
+        long minPixels = (long) Math.ceil(total * MIN_SHARE);
+        for (int i = 0; i < n; i++) {
+            double prev = sm[Math.floorMod(i - 1, n)], next = sm[(i + 1) % n];
+            if (sm[i] <= 0 || sm[i] <= prev || sm[i] < next) continue;
+            long near = 0;
+            for (int k = -MIN_SEPARATION / 2; k <= MIN_SEPARATION / 2; k++) near += hist[Math.floorMod(i + k, n)];
+            if (near >= minPixels) peaks.add(i);
+        }
+        peaks.sort(Comparator.comparingDouble((Integer i) -> -sm[i]));
+
+        List<Integer> taken = new ArrayList<>();
+        for (int p : peaks) {
+            if (taken.size() >= maxClusters) break;
+            boolean far = true;
+            for (int q : taken) if (distance(p, q) < MIN_SEPARATION) { far = false; break; }
+            if (far) taken.add(p);
+        }
+        if (taken.size() <= 1) return new HueRange[]{HueRange.all()};
+
+        int[] c = taken.stream().mapToInt(Integer::intValue).sorted().toArray();
+        int m = c.length;
+        // valley[k]：c[k] 与 c[k+1]（环形）之间的最低点，归入 c[k]
+        int[] valley = new int[m];
+        for (int k = 0; k < m; k++) {
+            int from = c[k], span = Math.floorMod(c[(k + 1) % m] - from, n);
+            int best = from;
+            double bestV = Double.MAX_VALUE;
+            for (int d = 1; d < span; d++) {
+                int i = (from + d) % n;
+                if (sm[i] < bestV) { bestV = sm[i]; best = i; }
+            }
+            valley[k] = best;
+        }
+        HueRange[] out = new HueRange[m];
+        for (int k = 0; k < m; k++) {
+            out[k] = new HueRange((valley[Math.floorMod(k - 1, m)] + 1) % n, valley[k]);
+        }
+        return out;
+    }
+
+    /**
+     * 按角色分配色相区间：fixed[i] 非 null 的直接使用，其余按色相升序依次取聚类结果中
+     * 未被已指定区间覆盖的簇；簇不够时对应位置为 null。
+     */
+    public static HueRange[] assign(HueRange[] found, HueRange[] fixed) {
+        HueRange[] out = Arrays.copyOf(fixed, fixed.length);
+        boolean[] used = new boolean[found.length];
+        for (int k = 0; k < found.length; k++) {
+            for (HueRange f : fixed) if (f != null && f.contains(found[k].center())) used[k] = true;
+        }
+        int next = 0;
+        for (int i = 0; i < out.length; i++) {
+            if (out[i] != null) continue;
+            while (next < found.length && used[next]) next++;
+            if (next < found.length) used[next] = true;
+            out[i] = next < found.length ? found[next++] : null;
+        }
+        return out;
+    }
+
+    private static int distance(int a, int b) {
+        int d = Math.abs(a - b);
+        return Math.min(d, HueRange.HUE_BINS - d);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    色相区间（OpenCV 8 位 HSV 的 H，0..179），闭区间；lo > hi 表示跨过 0（如 170-10 为红色）。
+    文本形式 "lo-hi"：布局配置 analysis.layouts[].traces 与请求参数 voltageHue / currentHue 使用。
+*/
+
+public final class HueRange {
+
+    public static final int HUE_BINS = 180;
+
+    private final int lo;
+    private final int hi;
+
+    public HueRange(int lo, int hi) {
+        if (lo < 0 || lo >= HUE_BINS || hi < 0 || hi >= HUE_BINS) {
+            throw new IllegalArgumentException("色相须在 0..179 之间: " + lo + "-" + hi);
+        }
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    /** 全部色相（只有一条波形时） */
+    public static HueRange all() {
+        return new HueRange(0, HUE_BINS - 1);
+    }
+
+    /** "lo-hi" 或单个色相 "h"（±10）；格式不对抛 IllegalArgumentException */
+    public static HueRange of(String text) {
+        if (text == null || text.isBlank()) throw new IllegalArgumentException("色相区间为空");
+        String s = text.trim();
+        try {
+            int dash = s.indexOf('-');
+            if (dash < 0) {
+                int h = Integer.parseInt(s);
+                return new HueRange(Math.floorMod(h - 10, HUE_BINS), Math.floorMod(h + 10, HUE_BINS));
+            }
+            return new HueRange(Integer.parseInt(s.substring(0, dash).trim()), Integer.parseInt(s.substring(dash + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("色相区间格式应为 lo-hi（0..179）: " + text);
+        }
+    }
+
+    public int lo() { return lo; }
+    public int hi() { return hi; }
+
+    public boolean contains(int h) {
+        return lo <= hi ? h >= lo && h <= hi : h >= lo || h <= hi;
+    }
+
+    /** 区间中点（跨 0 时按环形计算） */
+    public int center() {
+        int span = Math.floorMod(hi - lo, HUE_BINS);
+        return (lo + span / 2) % HUE_BINS;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof HueRange && ((HueRange) o).lo == lo && ((HueRange) o).hi == hi;
+    }
+
+    @Override
+    public int hashCode() {
+        return lo * HUE_BINS + hi;
+    }
+
+    @Override
+    public String toString() {
+        return lo + "-" + hi;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    单张图片的 ROI 特征来源：
+    - 先查 ROI 特征缓存（图片内容摘要 + ROI），所有相都命中时完全不解码
+    - 有相未命中时才解码一次，只补提缺少的平面，合并后写回缓存
+    - 解码出的图像交给 MatTracker 按接口计数，ImageFeatures.close() 时立即释放
+    - 按布局打开时先由 LayoutProfiles 识别布局；文件头尺寸不足以区分时才为识别而解码，解码结果随后复用
+    open() 必须在读取 EncodedImage 的线程中调用；返回的 ImageFeatures 可在各相任务中并发 get()
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures.Plane;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.MatTracker;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Component
+public class ImageFeatureLoader {
+
+    private final ImageDecoder decoder;
+    private final RoiFeatureExtractor extractor;
+    private final RoiFeatureCache cache;
+    private final AnalysisMetrics metrics;
+    private final MatTracker mats;
+    private final LayoutProfiles layouts;
+
+    public ImageFeatureLoader(ImageDecoder decoder, RoiFeatureExtractor extractor, RoiFeatureCache cache,
+                              AnalysisMetrics metrics, MatTracker mats, LayoutProfiles layouts) {
+        this.decoder = decoder;
+        this.extractor = extractor;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.mats = mats;
+        this.layouts = layouts;
+    }
+
+    public LayoutProfiles layouts() { return layouts; }
+
+    /** 按布局打开：forced 为 null 时自动识别；endpoint 为计数用的接口名 */
+    public ImageFeatures open(String endpoint, ImageDecoder.EncodedImage enc, LayoutProfile forced, Set<Plane> planes) {
+        LayoutProfile layout = layouts.resolve(enc, forced);
+        MatTracker.Owned img = null;
+        if (layout == null) {
+            img = decode(endpoint, enc);
+            try {
+                layout = img.mat().empty() ? layouts.primary() : layouts.detect(img.mat(), enc.hash());
+            } catch (RuntimeException e) {
+                img.close();
+                throw e;
+            }
+        }
+        return open(endpoint, enc, layout, layout.rects(), planes, img);
+    }
+
+    /** 按给定 ROI 打开（不涉及布局，layout() 为 null） */
+    public ImageFeatures open(String endpoint, ImageDecoder.EncodedImage enc, Rect[] rois, Set<Plane> planes) {
+        return open(endpoint, enc, null, rois, planes, null);
+    }
+
+    private ImageFeatures open(String endpoint, ImageDecoder.EncodedImage enc, LayoutProfile layout, Rect[] rois,
+                               Set<Plane> planes, MatTracker.Owned img) {
+        RoiFeatures[] cached = new RoiFeatures[rois.length];
+        boolean allHit = true;
+        for (int i = 0; i < rois.length; i++) {
+            cached[i] = cache.get(RoiFeatureCache.key(enc.hash(), rois[i]));
+            if (cached[i] == null || !cached[i].hasPlanes(planes)) allHit = false;
+        }
+        if (!allHit && img == null) img = decode(endpoint, enc);
+        return new ImageFeatures(enc.hash(), layout, rois, planes, cached, img);
+    }
+
+    private MatTracker.Owned decode(String endpoint, ImageDecoder.EncodedImage enc) {
+        long t = metrics.start();
+        MatTracker.Owned img = mats.track(endpoint, decoder.decode(enc));
+        metrics.stage(Stage.DECODE, t);
+        return img;
+    }
+
+    /** 一张图片各 ROI 的特征；close() 释放解码出的图像 */
+    public class ImageFeatures implements AutoCloseable {
+        private final String hash;
+        private final LayoutProfile layout;
+        private final Rect[] rois;
+        private final Set<Plane> planes;
+        private final RoiFeatures[] cached;
+        private MatTracker.Owned img;
+
+        private ImageFeatures(String hash, LayoutProfile layout, Rect[] rois, Set<Plane> planes,
+                              RoiFeatures[] cached, MatTracker.Owned img) {
+            this.hash = hash;
+            this.layout = layout;
+            this.rois = rois;
+            this.planes = planes;
+            this.cached = cached;
+            this.img = img;
+        }
+
+        public String hash() { return hash; }
+
+        /** 使用的布局（按给定 ROI 打开时为 null） */
+        public LayoutProfile layout() { return layout; }
+
+        /** 是否真正解码了图片（全部命中缓存时为 false） */
+        public boolean decoded() { return img != null; }
+
+        /** 已解码但内容为空：图片无法解码 */
+        public boolean decodeFailed() { return img != null && img.mat().empty(); }
+
+        /** 解码后的图像（未解码时为 null），仅供打印尺寸等用途 */
+        public Mat image() { return img != null ? img.mat() : null; }
+
+        public RoiFeatures get(int i) {
+            RoiFeatures hit = cached[i];
+            if (hit != null && hit.hasPlanes(planes)) return hit;
+
+            Set<Plane> missing = EnumSet.copyOf(planes);
+            if (hit != null) missing.removeAll(hit.planes());
+            long t = metrics.start();
+            RoiFeatures f = extractor.extract(img.mat(), rois[i], missing);
+            metrics.stage(Stage.ROI, t);
+            if (hit != null) f = f.union(hit);
+            cache.put(RoiFeatureCache.key(hash, rois[i]), f);
+            return f;
+        }
+
+        @Override
+        public void close() {
+            if (img != null) img.close();
+            img = null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    ROI 行 / 列统计的提取方式（analysis.lines.mode）：
+    - scan  ：二值图拷贝到 Java 缓冲后逐像素扫描（原实现，默认）
+    - native：OpenCV 原生运算（inRange / 长核开运算 / Core.reduce），只把逐行、逐列向量拷回 Java
+    两种方式得到同样结构的 RoiFeatures，可对同一张图交叉核对。
+*/
+
+import java.util.Locale;
+
+public enum LineScanMode {
+
+    SCAN, NATIVE;
+
+    /** 不区分大小写；未知名称抛 IllegalArgumentException */
+    public static LineScanMode of(String name) {
+        if (name == null || name.isBlank()) return SCAN;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的行列统计方式: " + name + "（可选 scan / native）");
+        }
+    }
+}
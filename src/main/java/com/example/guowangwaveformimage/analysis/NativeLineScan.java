@@ -0,0 +1,119 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    行 / 列统计的 OpenCV 原生实现（LineScanMode.NATIVE），填充与逐像素扫描相同的特征数组：
+    - BGR：inRange 得黑色掩码，逐通道 max/min 得彩色掩码，Core.reduce 求逐行计数 / 逐行是否含波形
+    - OTSU：1xK、Kx1 长核开运算只保留长度 >= K 的黑段，再逐行 / 逐列求和。
+      K 取边长一半 + 1，每行（列）至多留下一段，和即为该段长度，
+      所以最长黑段 >= K 的行（列）与逐像素扫描完全一致，更短的记为 0
+      （实线、竖网格线的阈值都在边长的 0.55 倍以上，检测结果不变）；
+      边界外按背景（0）填充，否则腐蚀时边界外视为黑色，贴边的短段只需约 K/2 长就会被保留
+    - ADAPTIVE：Core.reduce 逐行求和即虚线行计数
+    像素数据全程留在原生内存，只有长度为 h / w 的向量拷回 Java；中间 Mat 与核均取自调用方的临时池作用域。
+*/
+
+import com.example.guowangwaveformimage.image.ScratchPool;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+final class NativeLineScan {
+
+    // 与 Pixels.isBlack / isColorful 相同的阈值
+    private static final Scalar BLACK_LO = new Scalar(0, 0, 0);
+    private static final Scalar BLACK_HI = new Scalar(149, 149, 149);
+    private static final double COLOR_SPREAD = 40;
+    private static final double COLOR_MAX = 80;
+    private static final Scalar ONE = Scalar.all(1);
+    private static final Scalar ZERO = Scalar.all(0);
+    private static final Point ANCHOR = new Point(-1, -1);
+
+    private NativeLineScan() {}
+
+    /** 开运算核长：边长一半 + 1（保证每行 / 列至多一段保留） */
+    static int minRun(int length) {
+        return length / 2 + 1;
+    }
+
+    // BGR：每行黑像素数 + 是否含“彩色且非黑”像素
+    static void bgr(RoiFeatures f, Mat roi, ScratchPool.Scope tmp) {
+        Mat black = tmp.mat(), b = tmp.mat(), g = tmp.mat(), r = tmp.mat();
+        Mat mx = tmp.mat(), mn = tmp.mat(), spread = tmp.mat(), wave = tmp.mat(), v = tmp.mat();
+
+        Core.inRange(roi, BLACK_LO, BLACK_HI, black);
+        f.rowBlackCount = rowSums(black, v);
+
+        Core.extractChannel(roi, b, 0);
+        Core.extractChannel(roi, g, 1);
+        Core.extractChannel(roi, r, 2);
+        Core.max(b, g, mx);
+        Core.max(mx, r, mx);
+        Core.min(b, g, mn);
+        Core.min(mn, r, mn);
+        Core.subtract(mx, mn, spread);
+        Imgproc.threshold(spread, spread, COLOR_SPREAD, 255, Imgproc.THRESH_BINARY);
+        Imgproc.threshold(mx, mx, COLOR_MAX, 255, Imgproc.THRESH_BINARY);
+        Core.bitwise_and(spread, mx, wave);
+        Core.bitwise_not(black, black);
+        Core.bitwise_and(wave, black, wave);
+
+        f.rowHasWave = rowAny(wave, v);
+    }
+
+    // OTSU 二值（黑 = 非 0）：长黑段的逐行 / 逐列长度
+    static void otsu(RoiFeatures f, Mat bin, ScratchPool.Scope tmp) {
+        int w = bin.cols(), h = bin.rows();
+        Mat kernel = tmp.mat(), open = tmp.mat(), v = tmp.mat();
+        // 全 1 的 1xK / Kx1 矩形核
+        kernel.create(1, minRun(w), CvType.CV_8U);
+        kernel.setTo(ONE);
+        morphOpen(bin, open, kernel);
+        f.rowMaxRun = rowSums(open, v);
+        kernel.create(minRun(h), 1, CvType.CV_8U);
+        kernel.setTo(ONE);
+        morphOpen(bin, open, kernel);
+        f.colMaxRun = colSums(open, v);
+    }
+
+    // 开运算，边界外为背景
+    private static void morphOpen(Mat bin, Mat dst, Mat kernel) {
+        Imgproc.morphologyEx(bin, dst, Imgproc.MORPH_OPEN, kernel, ANCHOR, 1, Core.BORDER_CONSTANT, ZERO);
+    }
+
+    // 自适应二值：逐行黑像素数
+    static void adaptive(RoiFeatures f, Mat bin, ScratchPool.Scope tmp) {
+        f.rowDashCount = rowSums(bin, tmp.mat());
+    }
+
+    /* ==================== 逐行 / 逐列归约 ==================== */
+
+    // 0/255 掩码 -> 每行非 0 像素数（v 为归约输出的临时 Mat）
+    private static int[] rowSums(Mat mask, Mat v) {
+        return sums(mask, 1, mask.rows(), v);
+    }
+
+    private static int[] colSums(Mat mask, Mat v) {
+        return sums(mask, 0, mask.cols(), v);
+    }
+
+    private static int[] sums(Mat mask, int dim, int n, Mat v) {
+        Core.reduce(mask, v, dim, Core.REDUCE_SUM, CvType.CV_32S);
+        int[] out = new int[n];
+        v.get(0, 0, out);
+        for (int i = 0; i < n; i++) out[i] /= 255;
+        return out;
+    }
+
+    // 0/255 掩码 -> 每行是否有非 0 像素（REDUCE_MAX 只支持同深度输出）
+    private static boolean[] rowAny(Mat mask, Mat v) {
+        Core.reduce(mask, v, 1, Core.REDUCE_MAX, -1);
+        byte[] b = new byte[mask.rows()];
+        v.get(0, 0, b);
+        boolean[] out = new boolean[b.length];
+        for (int y = 0; y < b.length; y++) out[y] = b[y] != 0;
+        return out;
+    }
+}
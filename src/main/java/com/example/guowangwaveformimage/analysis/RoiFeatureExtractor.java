@@ -0,0 +1,164 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    ROI 特征提取：
+    - 每个平面只做一次颜色转换 / 阈值化，并只拷贝一次到 Java 缓冲
+    - 每个缓冲只遍历一遍，同时得到行、列两个方向的统计
+    - 灰度图在 OTSU 与自适应阈值之间共用
+    - 行 / 列统计可选逐像素扫描（默认）或 OpenCV 原生运算（NativeLineScan），见 analysis.lines.mode
+    - 灰度 / 二值 / HSV 等中间 Mat 与扫描用像素缓冲取自每线程临时池（ScratchPool），作用域结束即归还
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures.Plane;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.image.Pixels;
+import com.example.guowangwaveformimage.image.RasterBuffer;
+import com.example.guowangwaveformimage.image.ScratchPool;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Component
+public class RoiFeatureExtractor {
+
+    // 自适应阈值参数（虚线刻度）
+    private static final int ADAPTIVE_BLOCK = 15;
+    private static final double ADAPTIVE_C = 10;
+
+    private final LineScanMode mode;
+    private final ScratchPool scratch;
+
+    public RoiFeatureExtractor() {
+        this(LineScanMode.SCAN);
+    }
+
+    public RoiFeatureExtractor(LineScanMode mode) {
+        this(mode, new ScratchPool());
+    }
+
+    public RoiFeatureExtractor(LineScanMode mode, ScratchPool scratch) {
+        this.mode = mode;
+        this.scratch = scratch;
+    }
+
+    @Autowired
+    public RoiFeatureExtractor(AnalysisProperties props, ScratchPool scratch) {
+        this(props.getLines().getMode(), scratch);
+    }
+
+    public LineScanMode mode() { return mode; }
+
+    public RoiFeatures extract(Mat roi) {
+        return extract(roi, EnumSet.allOf(Plane.class));
+    }
+
+    /** 从整图中裁出 rect 后提取，子图头用完即释放（整图由调用方负责） */
+    public RoiFeatures extract(Mat img, Rect rect, Set<Plane> planes) {
+        Mat roi = img.submat(rect);
+        try {
+            return extract(roi, planes);
+        } finally {
+            roi.release();
+        }
+    }
+
+    public RoiFeatures extract(Mat roi, Set<Plane> planes) {
+        return extract(roi, planes, mode);
+    }
+
+    /** 指定行 / 列统计方式提取（交叉核对、基准测量用） */
+    public RoiFeatures extract(Mat roi, Set<Plane> planes, LineScanMode mode) {
+        RoiFeatures f = new RoiFeatures(roi.cols(), roi.rows());
+        boolean nat = mode == LineScanMode.NATIVE;
+
+        try (ScratchPool.Scope tmp = scratch.open()) {
+            if (planes.contains(Plane.BGR)) {
+                if (nat) NativeLineScan.bgr(f, roi, tmp);
+                else scanBgr(f, tmp.raster(roi));
+            }
+
+            if (planes.contains(Plane.OTSU) || planes.contains(Plane.ADAPTIVE)) {
+                Mat gray = tmp.mat(), bin = tmp.mat();
+                Imgproc.cvtColor(roi, gray, Imgproc.COLOR_BGR2GRAY);
+                if (planes.contains(Plane.OTSU)) {
+                    Imgproc.threshold(gray, bin, 0, 255, Imgproc.THRESH_BINARY_INV + Imgproc.THRESH_OTSU);
+                    if (nat) NativeLineScan.otsu(f, bin, tmp);
+                    else scanOtsu(f, tmp.raster(bin));
+                }
+                if (planes.contains(Plane.ADAPTIVE)) {
+                    Imgproc.adaptiveThreshold(gray, bin, 255, Imgproc.ADAPTIVE_THRESH_MEAN_C,
+                            Imgproc.THRESH_BINARY_INV, ADAPTIVE_BLOCK, ADAPTIVE_C);
+                    if (nat) NativeLineScan.adaptive(f, bin, tmp);
+                    else scanAdaptive(f, tmp.raster(bin));
+                }
+            }
+
+            if (planes.contains(Plane.HSV)) {
+                Mat hsv = tmp.mat();
+                Imgproc.cvtColor(roi, hsv, Imgproc.COLOR_BGR2HSV);
+                // HSV 缓冲随特征长期保留（波形跟踪、特征缓存），单独分配
+                f.hsv = RasterBuffer.of(hsv);
+            }
+        }
+        return f;
+    }
+
+    /* ==================== 单遍扫描 ==================== */
+
+    // BGR：每行黑像素数 + 是否含彩色波形
+    private void scanBgr(RoiFeatures f, RasterBuffer px) {
+        int h = px.height(), w = px.width(), ch = px.channels();
+        byte[] d = px.data();
+        int[] black = new int[h];
+        boolean[] wave = new boolean[h];
+        int off = 0;
+        for (int y = 0; y < h; y++) {
+            int cnt = 0; boolean hasWave = false;
+            for (int x = 0; x < w; x++, off += ch) {
+                if (Pixels.isBlack(d, off)) cnt++;
+                else if (!hasWave && Pixels.isColorful(d, off)) hasWave = true;
+            }
+            black[y] = cnt;
+            wave[y] = hasWave;
+        }
+        f.rowBlackCount = black;
+        f.rowHasWave = wave;
+    }
+
+    // OTSU 二值：一遍同时得到逐行、逐列最长黑连续段
+    private void scanOtsu(RoiFeatures f, RasterBuffer px) {
+        int h = px.height(), w = px.width();
+        byte[] d = px.data();
+        int[] rowMax = new int[h];
+        int[] colRun = new int[w], colMax = new int[w];
+        int off = 0;
+        for (int y = 0; y < h; y++) {
+            int run = 0, maxRun = 0;
+            for (int x = 0; x < w; x++, off++) {
+                if (d[off] != 0) {
+                    if (++run > maxRun) maxRun = run;
+                    if (++colRun[x] > colMax[x]) colMax[x] = colRun[x];
+                } else {
+                    run = 0;
+                    colRun[x] = 0;
+                }
+            }
+            rowMax[y] = maxRun;
+        }
+        f.rowMaxRun = rowMax;
+        f.colMaxRun = colMax;
+    }
+
+    // 自适应二值：逐行黑像素数
+    private void scanAdaptive(RoiFeatures f, RasterBuffer px) {
+        int h = px.height();
+        int[] cnt = new int[h];
+        for (int y = 0; y < h; y++) cnt[y] = px.rowCount(y, Pixels.NON_ZERO);
+        f.rowDashCount = cnt;
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    单个 ROI（一相）的特征集合，由 RoiFeatureExtractor 一次性提取：
+    - BGR 平面：逐行黑像素数、逐行是否含彩色波形（暂态用）
+    - OTSU 二值平面：逐行 / 逐列最长黑连续段（实线、竖网格线）
+    - 自适应二值平面：逐行黑像素数（虚线刻度）
+    - HSV 平面：保留像素缓冲，按需逐列跟踪波形（同一区间只算一次）；
+      整数跟踪（上边 / 中点）与亚像素质心跟踪（float[]，见 TraceMode）；
+      一个 ROI 内叠加多条不同颜色的波形时，按色相区间单遍分离各条（区间可配置，或由 HueClusters 自动聚类）
+    提取完成后不再持有任何 Mat，各平面数组只读，可在多个分析流程、多个线程之间复用（含特征缓存）。
+*/
+
+import com.example.guowangwaveformimage.image.Pixels;
+import com.example.guowangwaveformimage.image.RasterBuffer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class RoiFeatures {
+
+    /** 需要提取的平面 */
+    public enum Plane { BGR, OTSU, ADAPTIVE, HSV }
+
+    // 彩色像素阈值（HSV）
+    public static final int HSV_S_THRESH = 40;
+    public static final int HSV_V_THRESH = 40;
+    private static final RasterBuffer.PixelTest WAVE_PIXEL = Pixels.hsvColored(HSV_S_THRESH, HSV_V_THRESH);
+
+    // 波形 y 的移动平均半径
+    private static final int TRACE_SMOOTH_K = 3;
+    // 质心权重 = 饱和度 - 该值（只统计亮度够的像素），滤掉背景 / 黑线的低饱和噪声
+    private static final int CENTROID_S_FLOOR = 8;
+    // 虚线峰值合并容忍像素
+    private static final int DASH_MERGE_TOL = 3;
+
+    final int width;
+    final int height;
+
+    int[] rowBlackCount;     // BGR：每行黑像素数
+    boolean[] rowHasWave;    // BGR：每行是否有“彩色且非黑”像素
+    int[] rowMaxRun;         // OTSU：每行最长黑连续段
+    int[] colMaxRun;         // OTSU：每列最长黑连续段
+    int[] rowDashCount;      // ADAPTIVE：每行黑像素数
+    RasterBuffer hsv;        // HSV 像素缓冲
+
+    private final Map<Long, int[]> traceCache = new ConcurrentHashMap<>();
+    private final Map<Long, float[]> floatTraceCache = new ConcurrentHashMap<>();
+    private final Map<String, float[][]> hueTraceCache = new ConcurrentHashMap<>();
+    private final Map<Long, HueRange[]> hueClusterCache = new ConcurrentHashMap<>();
+
+    /** 质心跟踪的每线程工作数组（按最大宽度增长，跨 ROI 复用） */
+    private static final class CentroidScratch {
+        int[] top = new int[0], bottom = new int[0];
+        float[] sumW = new float[0], sumWy = new float[0], raw = new float[0];
+
+        CentroidScratch ensure(int w) {
+            if (top.length < w) {
+                top = new int[w]; bottom = new int[w];
+                sumW = new float[w]; sumWy = new float[w]; raw = new float[w];
+            }
+            return this;
+        }
+    }
+
+    private static final ThreadLocal<CentroidScratch> CENTROID_SCRATCH = ThreadLocal.withInitial(CentroidScratch::new);
+
+    /** 多波形分离的每线程工作数组：第 k 条波形的第 x 列在下标 k * w + x */
+    private static final class HueScratch {
+        final byte[] lut = new byte[HueRange.HUE_BINS];
+        int[] top = new int[0], bottom = new int[0];
+        float[] sumW = new float[0], sumWy = new float[0], raw = new float[0];
+
+        HueScratch ensure(int n, int w) {
+            if (top.length < n * w) {
+                top = new int[n * w]; bottom = new int[n * w];
+                sumW = new float[n * w]; sumWy = new float[n * w];
+            }
+            if (raw.length < w) raw = new float[w];
+            return this;
+        }
+    }
+
+    private static final ThreadLocal<HueScratch> HUE_SCRATCH = ThreadLocal.withInitial(HueScratch::new);
+
+    RoiFeatures(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int width() { return width; }
+    public int height() { return height; }
+
+    /** 已提取的平面 */
+    public Set<Plane> planes() {
+        Set<Plane> s = EnumSet.noneOf(Plane.class);
+        if (rowBlackCount != null) s.add(Plane.BGR);
+        if (rowMaxRun != null) s.add(Plane.OTSU);
+        if (rowDashCount != null) s.add(Plane.ADAPTIVE);
+        if (hsv != null) s.add(Plane.HSV);
+        return s;
+    }
+
+    public boolean hasPlanes(Set<Plane> need) {
+        return planes().containsAll(need);
+    }
+
+    /** 合并两份同一 ROI 的特征（共享平面数组，不拷贝） */
+    public RoiFeatures union(RoiFeatures o) {
+        if (o.width != width || o.height != height) throw new IllegalArgumentException("ROI 尺寸不一致");
+        RoiFeatures f = new RoiFeatures(width, height);
+        f.rowBlackCount = rowBlackCount != null ? rowBlackCount : o.rowBlackCount;
+        f.rowHasWave = rowHasWave != null ? rowHasWave : o.rowHasWave;
+        f.rowMaxRun = rowMaxRun != null ? rowMaxRun : o.rowMaxRun;
+        f.colMaxRun = colMaxRun != null ? colMaxRun : o.colMaxRun;
+        f.rowDashCount = rowDashCount != null ? rowDashCount : o.rowDashCount;
+        f.hsv = hsv != null ? hsv : o.hsv;
+        return f;
+    }
+
+    /** 特征数组大致占用的字节数（特征缓存按此计重） */
+    public long sizeInBytes() {
+        long n = 64;
+        if (rowBlackCount != null) n += 4L * rowBlackCount.length + rowHasWave.length;
+        if (rowMaxRun != null) n += 4L * (rowMaxRun.length + colMaxRun.length);
+        if (rowDashCount != null) n += 4L * rowDashCount.length;
+        if (hsv != null) n += hsv.data().length;
+        return n;
+    }
+
+    /* ==================== BGR ==================== */
+
+    public int blackCount(int y) {
+        return require(rowBlackCount, Plane.BGR)[y];
+    }
+
+    public boolean hasWave(int y) {
+        return require(rowHasWave, Plane.BGR)[y];
+    }
+
+    /* ==================== 实线 / 竖网格线 ==================== */
+
+    /** 最长黑连续段 >= minRun 的所有行（未合并） */
+    public List<Integer> solidLineRows(int minRun) {
+        int[] runs = require(rowMaxRun, Plane.OTSU);
+        List<Integer> ys = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            if (runs[y] >= minRun) ys.add(y);
+        }
+        return ys;
+    }
+
+    /** 水平黑实线：相邻行间距 <= mergePx 的合并为一条，取中点 */
+    public List<Integer> mergedSolidLines(int minRun, int mergePx) {
+        return mergeRuns(solidLineRows(minRun), mergePx);
+    }
+
+    /** 竖直网格线：最长黑连续段 >= minRun 的列，近邻列合并取中点 */
+    public List<Integer> gridColumns(int minRun, int mergePx) {
+        int[] runs = require(colMaxRun, Plane.OTSU);
+        List<Integer> xs = new ArrayList<>();
+        for (int x = 0; x < width; x++) {
+            if (runs[x] >= minRun) xs.add(x);
+        }
+        return mergeRuns(xs, mergePx);
+    }
+
+    private static List<Integer> mergeRuns(List<Integer> idx, int mergePx) {
+        List<Integer> merged = new ArrayList<>();
+        int s = -1, e = -1;
+        for (int v : idx) {
+            if (e < 0 || v - e <= mergePx) {
+                if (s < 0) s = v;
+                e = v;
+            } else {
+                merged.add((s + e) / 2);
+                s = v; e = v;
+            }
+        }
+        if (s >= 0) merged.add((s + e) / 2);
+        return merged;
+    }
+
+    /* ==================== 虚线刻度 ==================== */
+
+    /** [y1,y3] 内的虚线刻度：行计数平滑后取局部峰（高于均值 peakGain 倍），近邻合并 */
+    public List<Integer> dashRows(int y1, int y3, int smoothWin, double peakGain) {
+        int[] rowSum = require(rowDashCount, Plane.ADAPTIVE);
+        y1 = Math.max(0, y1); y3 = Math.min(height - 1, y3);
+
+        // 平滑
+        double[] sm = new double[height];
+        for (int y = y1; y <= y3; y++) {
+            int L = Math.max(y1, y - smoothWin), R = Math.min(y3, y + smoothWin);
+            double s = 0; int c = 0;
+            for (int k = L; k <= R; k++) { s += rowSum[k]; c++; }
+            sm[y] = s / Math.max(1, c);
+        }
+        // 阈值选峰
+        double mean = 0; int c = 0;
+        for (int y = y1; y <= y3; y++) { mean += sm[y]; c++; }
+        mean /= Math.max(1, c);
+
+        List<Integer> merged = new ArrayList<>();
+        for (int y = y1 + 1; y < y3; y++) {
+            if (sm[y] > sm[y - 1] && sm[y] > sm[y + 1] && sm[y] > mean * peakGain) {
+                // 合并近邻
+                if (merged.isEmpty() || y - merged.get(merged.size() - 1) > DASH_MERGE_TOL) merged.add(y);
+                else {
+                    int prev = merged.get(merged.size() - 1);
+                    merged.set(merged.size() - 1, (prev + y) / 2);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /* ==================== 波形跟踪（返回数组为共享缓存，请勿修改） ==================== */
+
+    /** 每列 [y1,y3] 内最上面的彩色像素 y，平滑后输出；无则 -1 */
+    public int[] traceTop(int y1, int y3) {
+        return trace(false, y1, y3);
+    }
+
+    /** 每列 [y1,y3] 内彩色像素上下边中点，平滑后输出；无则 -1 */
+    public int[] traceCenter(int y1, int y3) {
+        return trace(true, y1, y3);
+    }
+
+    /** 每列 [y1,y3] 内彩色线条邻域按饱和度加权的亚像素质心，平滑后输出；无则 NaN */
+    public float[] traceCentroid(int y1, int y3) {
+        RasterBuffer px = require(hsv, Plane.HSV);
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        long key = ((long) yy1 << 32) | ((long) yy3 << 2) | 2;
+        return floatTraceCache.computeIfAbsent(key, k -> centroidColumns(px, yy1, yy3));
+    }
+
+    /**
+     * 按跟踪方式取 float 序列：PIXEL 为 traceTop / traceCenter 的 float 形式（-1 变为 NaN，数值不变），
+     * CENTROID 为亚像素质心（上边与中点都取质心）
+     */
+    public float[] trace(TraceMode mode, boolean center, int y1, int y3) {
+        if (mode == TraceMode.CENTROID) return traceCentroid(y1, y3);
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        long key = ((long) yy1 << 32) | ((long) yy3 << 2) | (center ? 1 : 0);
+        return floatTraceCache.computeIfAbsent(key, k -> {
+            int[] ys = trace(center, yy1, yy3);
+            float[] out = new float[ys.length];
+            for (int x = 0; x < ys.length; x++) out[x] = ys[x] < 0 ? Float.NaN : ys[x];
+            return out;
+        });
+    }
+
+    /** 不经缓存重新做质心跟踪（供基准测量） */
+    float[] traceCentroidUncached(int y1, int y3) {
+        return centroidColumns(require(hsv, Plane.HSV), Math.max(0, y1), Math.min(height - 1, y3));
+    }
+
+    /* ==================== 多波形（按色相分离） ==================== */
+
+    /** [y1,y3] 内彩色像素的色相直方图（HueRange.HUE_BINS 个桶） */
+    public int[] hueHistogram(int y1, int y3) {
+        RasterBuffer px = require(hsv, Plane.HSV);
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        int ch = px.channels(), stride = width * ch;
+        byte[] d = px.data();
+        int[] hist = new int[HueRange.HUE_BINS];
+        for (int y = yy1; y <= yy3; y++) {
+            for (int x = 0, o = y * stride; x < width; x++, o += ch) {
+                if ((d[o + 1] & 0xFF) > HSV_S_THRESH && (d[o + 2] & 0xFF) > HSV_V_THRESH) {
+                    int h = d[o] & 0xFF;
+                    if (h < hist.length) hist[h]++;
+                }
+            }
+        }
+        return hist;
+    }
+
+    /** [y1,y3] 内最多 maxTraces 条波形的色相区间（自动聚类，色相升序） */
+    public HueRange[] hueClusters(int y1, int y3, int maxTraces) {
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        long key = ((long) yy1 << 40) | ((long) yy3 << 16) | (maxTraces & 0xFFFF);
+        return hueClusterCache.computeIfAbsent(key, k -> HueClusters.cluster(hueHistogram(yy1, yy3), maxTraces)).clone();
+    }
+
+    /**
+     * 按色相区间分离 [y1,y3] 内的多条波形，第 k 条只统计色相落在 ranges[k] 的彩色像素（区间重叠时归前者）。
+     * 一遍行主序扫描同时累计所有波形；PIXEL 为各自上下边中点（整数平滑），
+     * CENTROID 为各自按饱和度加权的质心（不外扩邻行，以免混入另一条波形）。无效列为 NaN。
+     */
+    public float[][] hueTraces(TraceMode mode, HueRange[] ranges, int y1, int y3) {
+        RasterBuffer px = require(hsv, Plane.HSV);
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        String key = mode + ":" + yy1 + ":" + yy3 + ":" + Arrays.toString(ranges);
+        return hueTraceCache.computeIfAbsent(key, k -> hueColumns(px, mode == TraceMode.CENTROID, ranges, yy1, yy3));
+    }
+
+    private float[][] hueColumns(RasterBuffer px, boolean centroid, HueRange[] ranges, int yy1, int yy3) {
+        int n = ranges.length, w = width, ch = px.channels(), stride = w * ch;
+        byte[] d = px.data();
+        HueScratch s = HUE_SCRATCH.get().ensure(n, w);
+        byte[] lut = s.lut;
+        Arrays.fill(lut, (byte) -1);
+        for (int h = 0; h < lut.length; h++) {
+            for (int k = 0; k < n; k++) if (ranges[k].contains(h)) { lut[h] = (byte) k; break; }
+        }
+        int[] top = s.top, bottom = s.bottom;
+        float[] sumW = s.sumW, sumWy = s.sumWy;
+        Arrays.fill(top, 0, n * w, -1);
+        if (centroid) {
+            Arrays.fill(sumW, 0, n * w, 0f);
+            Arrays.fill(sumWy, 0, n * w, 0f);
+        }
+
+        for (int y = yy1; y <= yy3; y++) {
+            float fy = y;
+            for (int x = 0, o = y * stride; x < w; x++, o += ch) {
+                int sat = d[o + 1] & 0xFF;
+                if (sat <= HSV_S_THRESH || (d[o + 2] & 0xFF) <= HSV_V_THRESH) continue;
+                int h = d[o] & 0xFF;
+                int k = h < lut.length ? lut[h] : -1;
+                if (k < 0) continue;
+                int j = k * w + x;
+                if (top[j] < 0) top[j] = y;
+                bottom[j] = y;
+                if (centroid) {
+                    sumW[j] += sat - CENTROID_S_FLOOR;
+                    sumWy[j] += (sat - CENTROID_S_FLOOR) * fy;
+                }
+            }
+        }
+
+        float[][] out = new float[n][];
+        for (int k = 0; k < n; k++) {
+            int base = k * w;
+            if (centroid) {
+                float[] raw = s.raw;
+                for (int x = 0; x < w; x++) raw[x] = sumW[base + x] > 0 ? sumWy[base + x] / sumW[base + x] : Float.NaN;
+                out[k] = smoothTrace(raw, w);
+            } else {
+                int[] ys = new int[w];
+                for (int x = 0; x < w; x++) ys[x] = top[base + x] < 0 ? -1 : (top[base + x] + bottom[base + x]) / 2;
+                int[] sm = smoothTrace(ys);
+                float[] f = new float[w];
+                for (int x = 0; x < w; x++) f[x] = sm[x] < 0 ? Float.NaN : sm[x];
+                out[k] = f;
+            }
+        }
+        return out;
+    }
+
+    private int[] trace(boolean center, int y1, int y3) {
+        RasterBuffer px = require(hsv, Plane.HSV);
+        int yy1 = Math.max(0, y1), yy3 = Math.min(height - 1, y3);
+        long key = ((long) yy1 << 32) | ((long) yy3 << 1) | (center ? 1 : 0);
+        return traceCache.computeIfAbsent(key, k -> traceColumns(px, center, yy1, yy3));
+    }
+
+    /** 不经缓存重新跟踪（供基准测量逐列扫描本身） */
+    int[] traceUncached(boolean center, int y1, int y3) {
+        return traceColumns(require(hsv, Plane.HSV), center, Math.max(0, y1), Math.min(height - 1, y3));
+    }
+
+    private int[] traceColumns(RasterBuffer px, boolean center, int yy1, int yy3) {
+        int w = width;
+        int[] ys = new int[w];
+        for (int x = 0; x < w; x++) {
+            int top = px.columnFirst(x, yy1, yy3, WAVE_PIXEL);
+            if (top < 0 || !center) ys[x] = top;
+            else ys[x] = (top + px.columnLast(x, top, yy3, WAVE_PIXEL)) / 2;
+        }
+        return smoothTrace(ys);
+    }
+
+    // 质心：两遍行主序扫描（连续内存、内层循环无调用），工作数组取自每线程缓存，只分配输出
+    //  1) 每列彩色像素的上下边（与 traceCenter 同一判定）
+    //  2) 上下边各外扩 1 行的邻域内，权重 = 饱和度 - CENTROID_S_FLOOR（亮度不足的不计），累加 Σw、Σw·y
+    private float[] centroidColumns(RasterBuffer px, int yy1, int yy3) {
+        int w = width, ch = px.channels(), stride = w * ch;
+        byte[] d = px.data();
+        CentroidScratch s = CENTROID_SCRATCH.get().ensure(w);
+        int[] top = s.top, bottom = s.bottom;
+        float[] sumW = s.sumW, sumWy = s.sumWy, raw = s.raw;
+        Arrays.fill(top, 0, w, -1);
+        Arrays.fill(sumW, 0, w, 0f);
+        Arrays.fill(sumWy, 0, w, 0f);
+
+        for (int y = yy1; y <= yy3; y++) {
+            for (int x = 0, o = y * stride + 1; x < w; x++, o += ch) {
+                if ((d[o] & 0xFF) > HSV_S_THRESH && (d[o + 1] & 0xFF) > HSV_V_THRESH) {
+                    if (top[x] < 0) top[x] = y;
+                    bottom[x] = y;
+                }
+            }
+        }
+        for (int y = yy1; y <= yy3; y++) {
+            float fy = y;
+            for (int x = 0, o = y * stride + 1; x < w; x++, o += ch) {
+                int t = top[x];
+                if (t < 0 || y < t - 1 || y > bottom[x] + 1) continue;
+                int wgt = (d[o + 1] & 0xFF) > HSV_V_THRESH ? (d[o] & 0xFF) - CENTROID_S_FLOOR : 0;
+                if (wgt > 0) {
+                    sumW[x] += wgt;
+                    sumWy[x] += wgt * fy;
+                }
+            }
+        }
+        for (int x = 0; x < w; x++) raw[x] = sumW[x] > 0 ? sumWy[x] / sumW[x] : Float.NaN;
+        return smoothTrace(raw, w);
+    }
+
+    // 浮点平滑（忽略 NaN），半径与整数版相同
+    private static float[] smoothTrace(float[] ys, int w) {
+        int k = TRACE_SMOOTH_K;
+        float[] sm = new float[w];
+        for (int x = 0; x < w; x++) {
+            int L = Math.max(0, x - k), R = Math.min(w - 1, x + k);
+            int cnt = 0;
+            float sum = 0;
+            for (int i = L; i <= R; i++) {
+                float v = ys[i];
+                if (v == v) { cnt++; sum += v; }
+            }
+            sm[x] = cnt == 0 ? Float.NaN : sum / cnt;
+        }
+        return sm;
+    }
+
+    // 简单平滑（忽略 -1）
+    private static int[] smoothTrace(int[] ys) {
+        int w = ys.length, k = TRACE_SMOOTH_K;
+        int[] sm = new int[w];
+        for (int x = 0; x < w; x++) {
+            int L = Math.max(0, x - k), R = Math.min(w - 1, x + k);
+            int cnt = 0, sum = 0;
+            for (int i = L; i <= R; i++) {
+                if (ys[i] >= 0) { cnt++; sum += ys[i]; }
+            }
+            sm[x] = cnt == 0 ? -1 : (sum / cnt);
+        }
+        return sm;
+    }
+
+    private static <T> T require(T plane, Plane p) {
+        if (plane == null) throw new IllegalStateException("ROI 特征未提取平面: " + p);
+        return plane;
+    }
+}
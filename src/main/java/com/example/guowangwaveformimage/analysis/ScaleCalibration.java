@@ -0,0 +1,157 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    单相刻度换算（像素行 y -> 物理量），每相按中线 y2 + 虚线行 + 每格数值构建一次：
+    - 断点表：中线以上的虚线按离中线由近到远排列（up），以下同理（down），均为 int[]
+    - 逐行查表：ROI 内每一行预先换算成数值（上正下负，按 y 与 y2 的关系选上 / 下方向），
+      整条跟踪序列换算时每点一次数组读取，不排序、不装箱、不分配
+    - 换算规则与原先各接口逐点调用的 pixelToValueByDashes / calcMaxValueByDashes 完全一致
+      （含超出最外侧虚线时的延长与没有虚线时的兜底像素数）
+    - 亚像素（float / double）行：不查表，按同一断点公式直接计算，整数行上与查表结果相同
+    构建完成后只读，可在线程之间共享。
+*/
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class ScaleCalibration {
+
+    private final int y2;
+    private final double perSeg;
+    private final int[] up;      // 中线以上的虚线，由近到远（y 递减）
+    private final int[] down;    // 中线以下的虚线，由近到远（y 递增）
+    private final double upFallback;
+    private final double downFallback;
+    private final double[] lut;  // lut[y]：y < y2 取上方向，否则取下方向
+
+    private ScaleCalibration(int y2, int[] dashes, double perSeg, double upFallback, double downFallback, int rows) {
+        this.y2 = y2;
+        this.perSeg = perSeg;
+        this.upFallback = upFallback;
+        this.downFallback = downFallback;
+
+        int[] sorted = dashes.clone();
+        Arrays.sort(sorted);
+        int nUp = 0, nDown = 0;
+        for (int d : sorted) {
+            if (d < y2) nUp++;
+            else if (d > y2) nDown++;
+        }
+        up = new int[nUp];
+        down = new int[nDown];
+        int u = nUp, k = 0;
+        for (int d : sorted) {
+            if (d < y2) up[--u] = d;
+            else if (d > y2) down[k++] = d;
+        }
+
+        lut = new double[Math.max(0, rows)];
+        for (int y = 0; y < lut.length; y++) lut[y] = y < y2 ? upValue(y) : downValue(y);
+    }
+
+    /**
+     * @param y2           中线行
+     * @param dashYs       虚线行（任意顺序）
+     * @param perSeg       每格数值（V 或 A）
+     * @param fallbackPx   某一侧没有虚线时，中线到边界的假定像素数
+     * @param rows         ROI 高度（查表覆盖 [0, rows)）
+     */
+    public static ScaleCalibration of(int y2, List<Integer> dashYs, double perSeg, double fallbackPx, int rows) {
+        return of(y2, dashYs, perSeg, fallbackPx, fallbackPx, rows);
+    }
+
+    /** 上下两侧兜底像素数不同（暂态接口：上侧按中线到顶边的距离） */
+    public static ScaleCalibration of(int y2, List<Integer> dashYs, double perSeg,
+                                      double upFallbackPx, double downFallbackPx, int rows) {
+        int[] d = new int[dashYs.size()];
+        for (int i = 0; i < d.length; i++) d[i] = dashYs.get(i);
+        return new ScaleCalibration(y2, d, perSeg, upFallbackPx, downFallbackPx, rows);
+    }
+
+    public int centerRow() { return y2; }
+    public double perSegment() { return perSeg; }
+
+    /** y -> 物理量，方向按 y 与中线的关系决定；y < 0（该列无波形）为 NaN */
+    public double value(int y) {
+        if (y < 0) return Double.NaN;
+        if (y < lut.length) return lut[y];
+        return y < y2 ? upValue(y) : downValue(y);
+    }
+
+    /** y -> 物理量，方向由调用方指定（峰值点按离中线更远的一侧换算） */
+    public double value(int y, boolean isUp) {
+        if (y < 0) return Double.NaN;
+        return isUp ? upValue(y) : downValue(y);
+    }
+
+    /** 亚像素 y -> 物理量，方向按 y 与中线的关系决定；NaN 或 y < 0 为 NaN */
+    public double value(double y) {
+        if (!(y >= 0)) return Double.NaN;
+        return y < y2 ? upValue(y) : downValue(y);
+    }
+
+    /** 亚像素 y -> 物理量，方向由调用方指定 */
+    public double value(double y, boolean isUp) {
+        if (!(y >= 0)) return Double.NaN;
+        return isUp ? upValue(y) : downValue(y);
+    }
+
+    /** 亚像素跟踪序列 ys[from, to) 换算写入 out[0, to - from)，不分配 */
+    public void map(float[] ys, int from, int to, double[] out) {
+        for (int x = from, i = 0; x < to; x++, i++) out[i] = value((double) ys[x]);
+    }
+
+    public double[] map(float[] ys, int from, int to) {
+        double[] out = new double[to - from];
+        map(ys, from, to, out);
+        return out;
+    }
+
+    /** 整条跟踪序列 ys[from, to) 换算写入 out[0, to - from)，不分配 */
+    public void map(int[] ys, int from, int to, double[] out) {
+        double[] t = lut;
+        int n = t.length;
+        for (int x = from, i = 0; x < to; x++, i++) {
+            int y = ys[x];
+            out[i] = y < 0 ? Double.NaN : y < n ? t[y] : value(y);
+        }
+    }
+
+    public double[] map(int[] ys, int from, int to) {
+        double[] out = new double[to - from];
+        map(ys, from, to, out);
+        return out;
+    }
+
+    private double upValue(double y) {
+        int prev = y2, section = 0;
+        for (int d : up) {
+            if (y <= d) {
+                double ratio = (prev - y) / (prev - d);
+                return section * perSeg + ratio * perSeg;
+            }
+            prev = d; section++;
+        }
+        if (up.length > 0) {
+            double ratio = (prev - y) / (prev - up[up.length - 1]);
+            return section * perSeg + ratio * perSeg;
+        }
+        return (y2 - y) * perSeg / upFallback;
+    }
+
+    private double downValue(double y) {
+        int prev = y2, section = 0;
+        for (int d : down) {
+            if (y >= d) {
+                double ratio = (y - prev) / (d - prev);
+                return -(section * perSeg + ratio * perSeg);
+            }
+            prev = d; section++;
+        }
+        if (down.length > 0) {
+            double ratio = (y - prev) / (down[down.length - 1] - prev);
+            return -(section * perSeg + ratio * perSeg);
+        }
+        return -(y - y2) * perSeg / downFallback;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.guowangwaveformimage.analysis;
+
+/*
+    逐列波形跟踪方式（请求参数 trace=pixel|centroid）：
+    - pixel   ：彩色像素上边 / 上下边中点，整数行，整数移动平均（原实现，默认）
+    - centroid：线条邻域内按 HSV 饱和度加权的亚像素质心，浮点移动平均；
+                抗锯齿边缘的半饱和像素按权重参与，精度不再受整像素量化限制
+*/
+
+import java.util.Locale;
+
+public enum TraceMode {
+
+    PIXEL, CENTROID;
+
+    /** 不区分大小写；未知名称抛 IllegalArgumentException */
+    public static TraceMode of(String name) {
+        if (name == null || name.isBlank()) return PIXEL;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的波形跟踪方式: " + name + "（可选 pixel / centroid）");
+        }
+    }
+}
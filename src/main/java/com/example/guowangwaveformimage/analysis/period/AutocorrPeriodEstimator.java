@@ -0,0 +1,108 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    直接自相关：对 [minLag, maxLag] 每个滞后逐点求和，O(n·L)，周期为整数像素。
+    得分低于 MIN_SCORE 时退回“同类极值相邻间距的中位数”。
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class AutocorrPeriodEstimator implements PeriodEstimator {
+
+    // 自相关可信度阈值（低于此值走极值兜底）
+    static final double MIN_SCORE = 0.15;
+
+    @Override
+    public Result estimate(double[] sig, int minLag, int maxLag, Map<String, Object> debug) {
+        double[] best = bestLag(sig, minLag, maxLag);
+        double score = best[0];
+        int lag = (int) best[1];
+
+        if (score >= MIN_SCORE) {
+            if (debug != null) {
+                debug.put("auto_score", score);
+                debug.put("auto_lag_px", lag);
+            }
+            return Result.ok(lag);
+        }
+        Result r = extremaPeriod(sig, minLag, maxLag);
+        if (r.error != null) {
+            if (debug != null) debug.put("autocorr_score", score);
+        } else {
+            if (debug != null) {
+                debug.put("auto_score", score);
+                debug.put("auto_lag_px", lag);
+            }
+        }
+        return r;
+    }
+
+    /** 返回 {最高得分, 对应滞后} */
+    static double[] bestLag(double[] s, int minLag, int maxLag) {
+        double bestScore = -1e9;
+        int bestLag = minLag;
+
+        // 归一化能量
+        double energy = 0;
+        for (double v : s) energy += v * v;
+        if (energy <= 1e-12) return new double[]{0, minLag};
+
+        for (int k = minLag; k <= maxLag; k++) {
+            double acc = 0;
+            int n = s.length - k;
+            for (int i = 0; i < n; i++) acc += s[i] * s[i + k];
+            // 归一化到 [−1,1] 近似
+            double score = acc / Math.sqrt(energy * energy);
+            if (score > bestScore) {
+                bestScore = score; bestLag = k;
+            }
+        }
+        return new double[]{bestScore, bestLag};
+    }
+
+    /* ==================== 极值兜底 ==================== */
+
+    /** 同类型极值（峰/谷）的相邻距离，取落在 [minLag, maxLag] 内的中位数 */
+    static Result extremaPeriod(double[] sig, int minLag, int maxLag) {
+        int[] peaks = findExtremaIndices(sig);
+        List<Integer> deltas = new ArrayList<>();
+        for (int i = 1; i < peaks.length; i++) {
+            int d = peaks[i] - peaks[i - 1];
+            if (d >= minLag && d <= maxLag) deltas.add(d);
+        }
+        if (deltas.isEmpty()) return Result.fail("极值不足或间距异常");
+        Collections.sort(deltas);
+        return Result.ok(deltas.get(deltas.size() / 2));
+    }
+
+    private static int[] findExtremaIndices(double[] s) {
+        // 简易导数符号法 + 最小间距（用长度的3%）
+        int n = s.length;
+        int[] sgn = new int[n];
+        for (int i = 1; i < n; i++) {
+            double d = s[i] - s[i - 1];
+            sgn[i] = (d > 0) ? 1 : ((d < 0) ? -1 : 0);
+        }
+        int[] maxima = new int[n], minima = new int[n];
+        int nMax = 0, nMin = 0;
+        for (int i = 1; i < n - 1; i++) {
+            if (sgn[i - 1] > 0 && sgn[i] < 0) maxima[nMax++] = i;
+            if (sgn[i - 1] < 0 && sgn[i] > 0) minima[nMin++] = i;
+        }
+        int[] chosen = (nMax >= nMin) ? maxima : minima;
+        int nChosen = Math.max(nMax, nMin);
+
+        int minGap = Math.max(3, (int) (n * 0.03));
+        int[] filtered = new int[nChosen];
+        int nf = 0, last = -10000;
+        for (int k = 0; k < nChosen; k++) {
+            int p = chosen[k];
+            if (p - last >= minGap) { filtered[nf++] = p; last = p; }
+        }
+        return Arrays.copyOf(filtered, nf);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    FFT 工具：
+    - 原地基 2 复数 FFT（长度须为 2 的幂），旋转因子按长度缓存
+    - 实信号自相关：实序列打包成半长复序列做正变换，功率谱再按同样方式打包做逆变换，计算量约为直接复数 FFT 的一半
+*/
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class Fft {
+
+    private Fft() {}
+
+    // 长度 -> {cos[], sin[]}，下标 j 对应角度 2πj/n
+    private static final Map<Integer, double[][]> TWIDDLES = new ConcurrentHashMap<>();
+
+    static int nextPow2(int n) {
+        int p = 1;
+        while (p < n) p <<= 1;
+        return p;
+    }
+
+    private static double[][] twiddles(int n) {
+        return TWIDDLES.computeIfAbsent(n, k -> {
+            double[] c = new double[k / 2], s = new double[k / 2];
+            for (int j = 0; j < k / 2; j++) {
+                c[j] = Math.cos(2 * Math.PI * j / k);
+                s[j] = Math.sin(2 * Math.PI * j / k);
+            }
+            return new double[][]{c, s};
+        });
+    }
+
+    /** inverse=true 时为逆变换（含 1/n 缩放） */
+    static void transform(double[] re, double[] im, boolean inverse) {
+        transform(re, im, re.length, inverse);
+    }
+
+    /** 只变换前 n 个元素 */
+    static void transform(double[] re, double[] im, int n, boolean inverse) {
+        if (n <= 1) return;
+        // 位反转置换
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+        // 蝶形
+        double[][] tw = twiddles(n);
+        double[] cos = tw[0], sin = tw[1];
+        double sign = inverse ? 1 : -1;
+        for (int len = 2; len <= n; len <<= 1) {
+            int half = len >> 1, step = n / len;
+            for (int k = 0; k < half; k++) {
+                double wr = cos[k * step], wi = sign * sin[k * step];
+                for (int a = k; a < n; a += len) {
+                    int b = a + half;
+                    double xr = re[b] * wr - im[b] * wi;
+                    double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr; im[b] = im[a] - xi;
+                    re[a] += xr;        im[a] += xi;
+                }
+            }
+        }
+        if (inverse) {
+            double inv = 1.0 / n;
+            for (int i = 0; i < n; i++) { re[i] *= inv; im[i] *= inv; }
+        }
+    }
+
+    /**
+     * 非循环自相关 r[k] = Σ s[i]·s[i+k]，k = 0..maxLag。
+     * 补零到 N >= n + maxLag（滞后不超过 maxLag 时不会回绕）。
+     */
+    static double[] autocorr(double[] s, int maxLag) {
+        int n = s.length;
+        int N = Math.max(4, nextPow2(n + maxLag + 1)), M = N / 2;
+        double[][] tw = twiddles(N);
+        double[] cos = tw[0], sin = tw[1];
+
+        // 1) 实序列打包：z[m] = s[2m] + i·s[2m+1]，做 N/2 点 FFT
+        double[] re = new double[M], im = new double[M];
+        for (int i = 0; i < n; i++) {
+            if ((i & 1) == 0) re[i >> 1] = s[i]; else im[i >> 1] = s[i];
+        }
+        transform(re, im, M, false);
+
+        // 2) 拆出 N 点谱 X[k]（k = 0..N/2），求功率 P[k] = |X[k]|²
+        double[] p = new double[M + 1];
+        for (int k = 0; k <= M; k++) {
+            int a = k % M, b = (M - k) % M;
+            double er = 0.5 * (re[a] + re[b]), ei = 0.5 * (im[a] - im[b]);   // 偶数位样本的谱
+            double or = 0.5 * (im[a] + im[b]), oi = -0.5 * (re[a] - re[b]);  // 奇数位样本的谱
+            double c = k < M ? cos[k] : -1, sn = k < M ? -sin[k] : 0;        // e^{-2πik/N}
+            double xr = er + c * or - sn * oi;
+            double xi = ei + c * oi + sn * or;
+            p[k] = xr * xr + xi * xi;
+        }
+
+        // 3) 功率谱（实、偶对称）打包后做 N/2 点逆变换，直接得到 r 的偶数位（实部）与奇数位（虚部）
+        for (int k = 0; k < M; k++) {
+            double fe = 0.5 * (p[k] + p[M - k]);
+            double fo = 0.5 * (p[k] - p[M - k]);
+            double c = cos[k], sn = sin[k];                                  // e^{+2πik/N}
+            re[k] = fe - fo * sn;
+            im[k] = fo * c;
+        }
+        transform(re, im, M, true);
+
+        int len = Math.min(n, maxLag + 1);
+        double[] r = new double[len];
+        for (int k = 0; k < len; k++) r[k] = (k & 1) == 0 ? re[k >> 1] : im[k >> 1];
+        return r;
+    }
+
+    /** 抛物线插值：三点 (−1,a) (0,b) (1,c) 的顶点偏移，范围约束在 [-0.5, 0.5] */
+    static double parabolicOffset(double a, double b, double c) {
+        double den = a - 2 * b + c;
+        if (den >= 0) return 0; // 不是极大值
+        double d = 0.5 * (a - c) / den;
+        return Math.max(-0.5, Math.min(0.5, d));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    FFT 自相关：补零到 >= n + maxLag 后 r = IFFT(|FFT(s)|²)，一次得到全部滞后，O(n log n)；
+    在 [minLag, maxLag] 取最大值后用相邻两点做抛物线插值，周期为小数像素。
+    归一化与直接法一致（除以能量），得分过低时同样退回极值兜底。
+*/
+
+import java.util.Map;
+
+public class FftAutocorrPeriodEstimator implements PeriodEstimator {
+
+    @Override
+    public Result estimate(double[] sig, int minLag, int maxLag, Map<String, Object> debug) {
+        double[] r = Fft.autocorr(sig, maxLag + 1); // 多算一个滞后供插值
+        double energy = r[0];
+        if (energy <= 1e-12) {
+            if (debug != null) debug.put("autocorr_score", 0.0);
+            return Result.fail("极值不足或间距异常");
+        }
+
+        int hi = Math.min(maxLag, r.length - 1);
+        int lag = minLag;
+        for (int k = minLag + 1; k <= hi; k++) {
+            if (r[k] > r[lag]) lag = k;
+        }
+        double score = r[lag] / energy;
+        if (score < AutocorrPeriodEstimator.MIN_SCORE) {
+            Result fb = AutocorrPeriodEstimator.extremaPeriod(sig, minLag, maxLag);
+            if (debug != null) debug.put(fb.error != null ? "autocorr_score" : "fft_score", score);
+            return fb;
+        }
+
+        double d = (lag > 0 && lag + 1 < r.length) ? Fft.parabolicOffset(r[lag - 1], r[lag], r[lag + 1]) : 0;
+        if (debug != null) {
+            debug.put("fft_score", score);
+            debug.put("fft_lag_px", lag + d);
+        }
+        return Result.ok(lag + d);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    周期估计：输入为已平滑、去均值的等间距信号（每像素一个样本），
+    在 [minLag, maxLag] 像素范围内估计周期，结果可为小数像素。
+*/
+
+import java.util.Map;
+
+public interface PeriodEstimator {
+
+    class Result {
+        public double periodPx = Double.NaN;   // 周期（像素）；失败时为 NaN
+        public String error;                   // 失败原因
+
+        public static Result ok(double periodPx) {
+            Result r = new Result();
+            r.periodPx = periodPx;
+            return r;
+        }
+
+        public static Result fail(String error) {
+            Result r = new Result();
+            r.error = error;
+            return r;
+        }
+    }
+
+    /** debug：各实现写入自己的中间量（得分、峰位等）；为 null 时不记录 */
+    Result estimate(double[] sig, int minLag, int maxLag, Map<String, Object> debug);
+}
@@ -0,0 +1,35 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    可按请求选择的周期估计方法：
+    - autocorr：逐滞后直接求自相关，整数像素（原算法，默认）
+    - fft     ：FFT 求自相关 + 峰值抛物线插值，亚像素
+    - spectrum：加窗频谱峰 + 对数幅度抛物线插值，亚像素
+*/
+
+import java.util.Locale;
+
+public enum PeriodMethod {
+
+    AUTOCORR(new AutocorrPeriodEstimator()),
+    FFT(new FftAutocorrPeriodEstimator()),
+    SPECTRUM(new SpectralPeriodEstimator());
+
+    private final PeriodEstimator estimator;
+
+    PeriodMethod(PeriodEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    public PeriodEstimator estimator() { return estimator; }
+
+    /** 不区分大小写；未知名称抛 IllegalArgumentException */
+    public static PeriodMethod of(String name) {
+        if (name == null || name.isBlank()) return AUTOCORR;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的周期估计方法: " + name + "（可选 autocorr / fft / spectrum）");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+/*
+    频谱峰：Hann 加窗后，只在周期搜索范围 [minLag, maxLag] 对应的频带内逐点求功率（Goertzel），
+    频点间隔相当于补零到 ZERO_PAD·n 的 DFT；取最大频点后对相邻三点的对数功率做抛物线插值，
+    周期 = 频点密度 / 峰位（小数像素）。只算频带内的几十个频点，不做整段 FFT。
+    得分 = 峰值频点功率占全部功率（Parseval）的比例。
+    窗口内周期数少（3～4 个）时受旁瓣影响会有少量偏差，精度一般不如 fft。
+*/
+
+import java.util.Map;
+
+public class SpectralPeriodEstimator implements PeriodEstimator {
+
+    // 频点密度（相当于补零倍数；越大频点越密，插值前的量化误差越小）
+    private static final int ZERO_PAD = 8;
+    // 峰值功率占比下限
+    private static final double MIN_SCORE = 0.02;
+
+    @Override
+    public Result estimate(double[] sig, int minLag, int maxLag, Map<String, Object> debug) {
+        int n = sig.length;
+        int N = ZERO_PAD * n;
+        double[] xw = new double[n];
+        double energy = 0;
+        for (int i = 0; i < n; i++) {
+            double w = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / Math.max(1, n - 1));
+            xw[i] = sig[i] * w;
+            energy += xw[i] * xw[i];
+        }
+        double total = energy * N; // Parseval：N 点 DFT 的总功率
+        if (total <= 1e-12) {
+            if (debug != null) debug.put("spec_score", 0.0);
+            return Result.fail("信号能量为零");
+        }
+
+        // 周期 [minLag, maxLag] 对应频点 [N/maxLag, N/minLag]，两端各多算一点供插值
+        int kLo = Math.max(1, (int) Math.floor((double) N / maxLag));
+        int kHi = Math.min(N / 2 - 1, (int) Math.ceil((double) N / minLag));
+        double[] pow = new double[kHi - kLo + 3];
+        for (int k = kLo - 1; k <= kHi + 1; k++) pow[k - kLo + 1] = goertzel(xw, 2 * Math.PI * k / N);
+
+        int peak = 1;
+        for (int j = 2; j <= kHi - kLo + 1; j++) {
+            if (pow[j] > pow[peak]) peak = j;
+        }
+        double score = pow[peak] / total;
+        if (debug != null) debug.put("spec_score", score);
+        if (score < MIN_SCORE) return Result.fail("频谱峰不明显");
+
+        double d = Fft.parabolicOffset(Math.log(pow[peak - 1] + 1e-300),
+                Math.log(pow[peak] + 1e-300), Math.log(pow[peak + 1] + 1e-300));
+        double periodPx = N / (kLo - 1 + peak + d);
+        if (periodPx < minLag || periodPx > maxLag) return Result.fail("频谱峰超出周期搜索范围");
+        if (debug != null) debug.put("spec_period_px", periodPx);
+        return Result.ok(periodPx);
+    }
+
+    /** 单频点功率 |Σ x[i]·e^{-jωi}|² */
+    private static double goertzel(double[] x, double omega) {
+        double coeff = 2 * Math.cos(omega);
+        double s1 = 0, s2 = 0;
+        for (double v : x) {
+            double s0 = v + coeff * s1 - s2;
+            s2 = s1;
+            s1 = s0;
+        }
+        return s1 * s1 + s2 * s2 - coeff * s1 * s2;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    单相分析器（SPI）：
+    - 输入已提取好的 ROI 特征（PhaseInput），输出带类型的单相结果；不接触 HTTP、解码与缓存
+    - planes() 声明所需的特征平面，调用方据此一次提取多个分析器所需平面的并集
+    - 实现注册为 Spring bean 即被 AnalyzerRegistry 收录（@Order 决定综合报告中的顺序），新增分析无需改动控制器
+    - columns() 声明导出表格（CSV / XLSX）中的数值列，表头为 名称.列名
+    - 实现须线程安全：同一实例被各相、各文件并行调用
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+public interface Analyzer<R extends AnalyzerResult> {
+
+    /** 名称（综合报告中的字段名、调试追踪中的相后缀） */
+    String name();
+
+    /** 所需的特征平面 */
+    Set<RoiFeatures.Plane> planes();
+
+    /** 输入是否满足本分析的前提（如功率需要电流波形）；不满足时调用方跳过 */
+    default boolean applies(PhaseInput in) {
+        return true;
+    }
+
+    R analyze(PhaseInput in);
+
+    /** 导出表格的列（不含错误信息，错误列由导出统一追加）；默认没有 */
+    default List<Column<R>> columns() {
+        return List.of();
+    }
+
+    /** 导出列：列名（沿用 JSON 字段名）与取值（数值、字符串或 null） */
+    final class Column<R> {
+        private final String name;
+        private final Function<? super R, ?> value;
+
+        private Column(String name, Function<? super R, ?> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public static <R> Column<R> of(String name, Function<? super R, ?> value) {
+            return new Column<>(name, value);
+        }
+
+        public String name() { return name; }
+
+        /** result 须为所属分析器的结果类型 */
+        @SuppressWarnings("unchecked")
+        public Object value(AnalyzerResult result) {
+            return value.apply((R) result);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    已注册的分析器（全部 Analyzer bean，按 @Order 排列）：
+    - get(name)：按名称取；planes(names)：所需平面的并集，一次提取
+    - analyze(in, names, debug)：同一份特征上依次调用各分析器（综合报告、目录批量导入）
+    名称重复时启动失败。
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+@Component
+public class AnalyzerRegistry {
+
+    private final Map<String, Analyzer<?>> byName = new LinkedHashMap<>();
+    private final Set<RoiFeatures.Plane> planes = EnumSet.noneOf(RoiFeatures.Plane.class);
+
+    public AnalyzerRegistry(List<Analyzer<?>> analyzers) {
+        for (Analyzer<?> a : analyzers) {
+            if (byName.putIfAbsent(a.name(), a) != null) {
+                throw new IllegalStateException("分析器名称重复: " + a.name());
+            }
+            planes.addAll(a.planes());
+        }
+    }
+
+    /** 按名称取；未注册时抛 IllegalArgumentException */
+    public Analyzer<?> get(String name) {
+        Analyzer<?> a = byName.get(name);
+        if (a == null) throw new IllegalArgumentException("未注册的分析器: " + name);
+        return a;
+    }
+
+    public List<Analyzer<?>> all() {
+        return List.copyOf(byName.values());
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(byName.keySet());
+    }
+
+    /** 全部分析器所需平面的并集 */
+    public Set<RoiFeatures.Plane> planes() {
+        return Collections.unmodifiableSet(planes);
+    }
+
+    /** names 中分析器所需平面的并集；names 为空时同 planes() */
+    public Set<RoiFeatures.Plane> planes(Collection<String> names) {
+        if (names.isEmpty()) return planes();
+        Set<RoiFeatures.Plane> u = EnumSet.noneOf(RoiFeatures.Plane.class);
+        for (String n : names) u.addAll(get(n).planes());
+        return u;
+    }
+
+    /**
+     * 按注册顺序调用 names 中（为空时全部）适用于 in 的分析器；
+     * debug 按分析器名称给出各自的调试记录（键名互不覆盖）。in 的 debug 会被逐个改写。
+     */
+    public PhaseReport analyze(PhaseInput in, Collection<String> names, Function<String, PhaseDebug> debug) {
+        PhaseReport p = new PhaseReport(in.phase());
+        for (Analyzer<?> a : byName.values()) {
+            if (!names.isEmpty() && !names.contains(a.name())) continue;
+            if (!a.applies(in)) continue;
+            p.getResults().put(a.name(), a.analyze(in.debug(debug.apply(a.name()))));
+        }
+        return p;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    单相结果的公共部分：相名与错误信息（成功时 error 为 null）。
+    各实现以公开字段输出 JSON，这里的方法不参与序列化。
+*/
+
+public interface AnalyzerResult {
+
+    String phase();
+
+    String error();
+}
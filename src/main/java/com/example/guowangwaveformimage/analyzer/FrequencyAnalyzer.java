@@ -0,0 +1,204 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    频率：竖实线间距（中位数）结合每格时间换算秒/像素，右侧 60% 窗口内跟踪波形、去均值后估计周期。
+    周期估计方法由 PhaseInput.period 选择，搜索范围限制在 12–30 ms。
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodEstimator;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+@Component
+@Order(3)
+public class FrequencyAnalyzer implements Analyzer<FrequencyResult> {
+
+    // 使用右侧 60% 计算频率（避开最左的暂态）
+    private static final double RIGHT_PORTION = 0.60;
+
+    // 纵向“长黑线”判定阈值：一列中黑色连续像素长度占高度的比例
+    private static final double VLINE_RUN_RATIO = 0.55;   // 可调 0.5~0.7
+    private static final int VLINE_MERGE_PX = 4;          // 竖线去重时的合并容忍像素
+
+    // 工频合理范围（秒）用于自相关搜索窗口：40–70 Hz ≈ 25–14.3 ms，再稍微放宽
+    private static final double PERIOD_MIN_SEC = 0.012;   // 12 ms
+    private static final double PERIOD_MAX_SEC = 0.030;   // 30 ms
+
+    // 频率需要：竖网格线（OTSU）、波形（HSV）
+    public static final Set<RoiFeatures.Plane> PLANES = EnumSet.of(RoiFeatures.Plane.OTSU, RoiFeatures.Plane.HSV);
+
+    private final AnalysisMetrics metrics;
+
+    public FrequencyAnalyzer(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return "pinlv";
+    }
+
+    @Override
+    public Set<RoiFeatures.Plane> planes() {
+        return PLANES;
+    }
+
+    @Override
+    public List<Column<FrequencyResult>> columns() {
+        return List.of(
+                Column.of("freqHz", r -> r.freqHz),
+                Column.of("periodMs", r -> r.periodMs));
+    }
+
+    @Override
+    public FrequencyResult analyze(PhaseInput in) {
+        RoiFeatures roi = in.roi();
+        PeriodMethod period = in.period();
+        TraceMode traceMode = in.traceMode();
+        PhaseDebug dbg = in.debug();
+        FrequencyResult out = new FrequencyResult();
+        out.phase = in.phase();
+        out.debug = dbg.values();
+
+        int h = roi.height(), w = roi.width();
+
+        // 1) 竖实线识别（整幅 ROI 内做，逐列最大黑连通长度，近邻列合并）
+        long t = metrics.start();
+        List<Integer> vlines = roi.gridColumns((int)(h * VLINE_RUN_RATIO), VLINE_MERGE_PX);
+        metrics.stage(Stage.LINES, t);
+        if (vlines.size() < 2) {
+            out.error = "竖实线检测不足，无法标定时间刻度";
+            dbg.put("vlines", vlines);
+            return out;
+        }
+        Collections.sort(vlines);
+
+        // 去掉极端边界（靠近0或w-1的）
+        if (!vlines.isEmpty() && vlines.get(0) < 5) vlines.remove(0);
+        if (!vlines.isEmpty() && vlines.get(vlines.size()-1) > w - 6) vlines.remove(vlines.size()-1);
+        if (vlines.size() < 2) {
+            out.error = "有效竖实线不足";
+            dbg.put("vlines_trim", vlines);
+            return out;
+        }
+
+        // 2) 网格像素（用中位数） -> 秒/像素
+        List<Integer> diffs = new ArrayList<>();
+        for (int i=1;i<vlines.size();i++){
+            int d = vlines.get(i) - vlines.get(i-1);
+            if (d > 1) diffs.add(d);
+        }
+        if (diffs.isEmpty()) {
+            out.error = "竖线间距异常";
+            dbg.put("vline_diffs", diffs);
+            return out;
+        }
+        Collections.sort(diffs);
+        double pixelsPerGrid = diffs.get(diffs.size()/2);
+        double secondsPerPixel = in.secondsPerGrid() / Math.max(1.0, pixelsPerGrid);
+
+        // 3) 右侧 60% 窗口
+        int xStart = (int)Math.round(w * (1.0 - RIGHT_PORTION));
+        xStart = Math.max(0, Math.min(w-2, xStart));
+
+        // 4) 跟踪波形 y(x)：像素模式取每列彩色像素上下边中点 + 平滑，质心模式取亚像素质心
+        t = metrics.start();
+        float[] yTrace = roi.trace(traceMode, true, 0, h-1);
+        metrics.stage(Stage.TRACE, t);
+
+        // 4.1 窗口内转成连续有效样本并去均值
+        double[] sig = compactValid(yTrace, xStart, w);
+        if (sig.length < 30) {
+            out.error = "稳态窗口有效样本不足";
+            if (dbg.on()) dbg.put("xStart", xStart);
+            return out;
+        }
+        // 平滑（移动平均 3～5）
+        sig = movingAverage(sig, 3);
+        // 去均值（自相关用）
+        double mean = Arrays.stream(sig).average().orElse(0);
+        for (int i=0;i<sig.length;i++) sig[i] -= mean;
+
+        // 5) 估计周期（限制在 12–30ms 转成像素的范围；方法由请求参数 period 选择）
+        int minLagPx = Math.max(3, (int)Math.round(PERIOD_MIN_SEC / secondsPerPixel));
+        int maxLagPx = Math.min(sig.length/2, (int)Math.round(PERIOD_MAX_SEC / secondsPerPixel));
+        if (minLagPx >= maxLagPx) {
+            out.error = "可搜索的周期像素范围无效";
+            if (dbg.on()) {
+                dbg.put("minLagPx", minLagPx);
+                dbg.put("maxLagPx", maxLagPx);
+            }
+            return out;
+        }
+
+        Map<String, Object> est = dbg.on() ? new LinkedHashMap<>() : null;
+        t = metrics.start();
+        PeriodEstimator.Result pr = period.estimator().estimate(sig, minLagPx, maxLagPx, est);
+        metrics.stage(Stage.ESTIMATE, t);
+        if (pr.error != null) {
+            out.error = pr.error;
+            if (dbg.on()) est.forEach(dbg::put);
+            return out;
+        }
+        double periodPx = pr.periodPx;
+
+        double Tsec = periodPx * secondsPerPixel;
+        double freq = (Tsec > 0) ? (1.0 / Tsec) : Double.NaN;
+
+        out.periodMs = sanitizeNumber(Tsec * 1000.0);
+        out.freqHz   = sanitizeNumber(freq);
+
+        // debug（中间数组只进追踪产物）
+        if (dbg.on()) {
+            dbg.put("vlines", vlines);
+            dbg.put("pixelsPerGrid", pixelsPerGrid);
+            dbg.put("secondsPerPixel", secondsPerPixel);
+            dbg.put("xStart", xStart);
+            dbg.put("sig_len", sig.length);
+            if (traceMode != TraceMode.PIXEL) dbg.put("trace_mode", traceMode.name().toLowerCase());
+            if (period != PeriodMethod.AUTOCORR) dbg.put("period_method", period.name().toLowerCase());
+            est.forEach(dbg::put);
+            dbg.array("trace", yTrace);
+            dbg.array("window_signal", sig);
+        }
+        return out;
+    }
+
+    /* ---------- 小工具 ---------- */
+    private static double[] compactValid(float[] y, int from, int to){
+        // 取 [from, to) 并去掉 NaN 无效值，转 double（反转使“上为正”不是必须，这里只做相对变化）
+        double[] out = new double[to - from];
+        int n = 0;
+        for (int x = from; x < to; x++) if (!Float.isNaN(y[x])) out[n++] = y[x];
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static double[] movingAverage(double[] s, int win){
+        if (win <= 1) return s;
+        int n = s.length;
+        double[] out = new double[n];
+        double sum = 0;
+        int half = win/2;
+        for (int i=0;i<n;i++){
+            int L = Math.max(0, i-half);
+            int R = Math.min(n-1, i+half);
+            sum = 0;
+            for (int k=L;k<=R;k++) sum += s[k];
+            out[i] = sum / (R-L+1);
+        }
+        return out;
+    }
+
+    private static Double sanitizeNumber(double v){
+        if (Double.isNaN(v) || Double.isInfinite(v)) return null;
+        return v;
+    }
+}
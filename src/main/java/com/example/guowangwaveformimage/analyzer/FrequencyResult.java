@@ -0,0 +1,27 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    频率单相结果（/pinlv）。
+*/
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+public class FrequencyResult implements AnalyzerResult {
+    public String phase;        // A/B/C
+    public Double freqHz;       // 频率（Hz）
+    public Double periodMs;     // 周期（ms）
+    public String  error;       // 异常信息（若有）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String,Object> debug;   // 调试值（仅开启调试追踪时输出）
+
+    public static FrequencyResult error(String phase, String msg) {
+        FrequencyResult p = new FrequencyResult();
+        p.phase = phase; p.error = msg;
+        return p;
+    }
+
+    @Override public String phase() { return phase; }
+    @Override public String error() { return error; }
+}
@@ -0,0 +1,65 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    单相分析的输入：主 ROI 特征 + 可选的配对 ROI（功率的电流图），以及刻度、标定、跟踪方式等参数。
+    各分析器只读取自己用到的项；未设置的项取与各接口默认请求相同的值。
+*/
+
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+
+public final class PhaseInput {
+
+    private final RoiFeatures roi;
+    private final String phase;
+    private RoiFeatures paired;
+    private double perSeg = 200000.0;           // 每段物理量（主图）
+    private double pairedPerSeg = 500.0;        // 每段物理量（配对图 / 叠加截图中的电流）
+    private double displayScale = 1.0 / 1000.0; // 稳态输出换算：电压 V -> kV
+    private double secondsPerGrid = 0.025;
+    private CalibrationStore.Slot calibration = CalibrationStore.Slot.NONE;
+    private CalibrationStore.Slot pairedCalibration = CalibrationStore.Slot.NONE;
+    private TraceMode traceMode = TraceMode.PIXEL;
+    private PeriodMethod period = PeriodMethod.AUTOCORR;
+    private HueRange[] hues;                    // 叠加截图：{电压, 电流}，元素为 null 时自动聚类
+    private PhaseDebug debug = PhaseDebug.OFF;
+
+    private PhaseInput(RoiFeatures roi, String phase) {
+        this.roi = roi;
+        this.phase = phase;
+    }
+
+    public static PhaseInput of(RoiFeatures roi, String phase) {
+        return new PhaseInput(roi, phase);
+    }
+
+    public PhaseInput paired(RoiFeatures paired) { this.paired = paired; return this; }
+    public PhaseInput perSeg(double perSeg) { this.perSeg = perSeg; return this; }
+    public PhaseInput pairedPerSeg(double pairedPerSeg) { this.pairedPerSeg = pairedPerSeg; return this; }
+    public PhaseInput displayScale(double displayScale) { this.displayScale = displayScale; return this; }
+    public PhaseInput secondsPerGrid(double secondsPerGrid) { this.secondsPerGrid = secondsPerGrid; return this; }
+    public PhaseInput calibration(CalibrationStore.Slot calibration) { this.calibration = calibration; return this; }
+    public PhaseInput pairedCalibration(CalibrationStore.Slot c) { this.pairedCalibration = c; return this; }
+    public PhaseInput traceMode(TraceMode traceMode) { this.traceMode = traceMode; return this; }
+    public PhaseInput period(PeriodMethod period) { this.period = period; return this; }
+    public PhaseInput hues(HueRange voltageHue, HueRange currentHue) { this.hues = new HueRange[]{voltageHue, currentHue}; return this; }
+    public PhaseInput debug(PhaseDebug debug) { this.debug = debug; return this; }
+
+    public RoiFeatures roi() { return roi; }
+    public String phase() { return phase; }
+    public RoiFeatures paired() { return paired; }
+    public double perSeg() { return perSeg; }
+    public double pairedPerSeg() { return pairedPerSeg; }
+    public double displayScale() { return displayScale; }
+    public double secondsPerGrid() { return secondsPerGrid; }
+    public CalibrationStore.Slot calibration() { return calibration; }
+    public CalibrationStore.Slot pairedCalibration() { return pairedCalibration; }
+    public TraceMode traceMode() { return traceMode; }
+    public PeriodMethod period() { return period; }
+    public HueRange[] hues() { return hues == null ? null : hues.clone(); }
+    public PhaseDebug debug() { return debug; }
+}
@@ -0,0 +1,25 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    一相的多项分析结果：分析器名称 -> 单相结果，与 phase 平铺输出
+    （如 {"phase":"A","zantai":{...},"wentai":{...},"pinlv":{...}}）。综合报告与目录批量导入共用。
+*/
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PhaseReport {
+    public String phase;
+    private final Map<String, AnalyzerResult> results = new LinkedHashMap<>();
+
+    public PhaseReport() {}
+
+    public PhaseReport(String phase) {
+        this.phase = phase;
+    }
+
+    @JsonAnyGetter
+    public Map<String, AnalyzerResult> getResults() { return results; }
+}
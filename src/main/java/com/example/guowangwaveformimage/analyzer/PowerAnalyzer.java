@@ -0,0 +1,299 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    功率：右侧 60% 稳态窗口内分别提取 v(x)、i(x)，按各自虚线刻度换算、平滑并对齐后算 Vrms、Irms、P、S、PF。
+    - 配对图：PhaseInput.roi 为电压图、paired 为电流图，各自的实线、虚线与标定
+    - 叠加截图：未给 paired 而给了 hues 时，同一 ROI 共用实线与虚线刻度，按色相分离电压、电流两条波形
+    两者都没有时不适用（综合报告只有电压图时跳过）。
+*/
+
+import com.example.guowangwaveformimage.analysis.HueClusters;
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.ScaleCalibration;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@Order(4)
+public class PowerAnalyzer implements Analyzer<PowerResult> {
+
+    // 右侧稳态窗口比例
+    private static final double RIGHT_PORTION = 0.60;
+
+    // 某一侧没有虚线时，假定中线到边界的像素数（兜底）
+    private static final double FALLBACK_PIXELS = 300.0;
+
+    // 找虚线/实线等的参数
+    private static final double HLINE_RUN_RATIO = 0.60;   // 水平黑实线占宽度阈值
+    private static final int    HLINE_MERGE_PX   = 10;
+    private static final int    DASH_SMOOTH_WIN  = 5;
+    private static final double DASH_PEAK_GAIN   = 1.2;   // 相对均值阈
+
+    // 功率需要：实线（OTSU）、虚线（自适应）、波形（HSV）
+    public static final Set<RoiFeatures.Plane> PLANES =
+            EnumSet.of(RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE, RoiFeatures.Plane.HSV);
+
+    private final AnalysisMetrics metrics;
+
+    public PowerAnalyzer(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return "gonglv";
+    }
+
+    @Override
+    public Set<RoiFeatures.Plane> planes() {
+        return PLANES;
+    }
+
+    @Override
+    public List<Column<PowerResult>> columns() {
+        return List.of(
+                Column.of("vrms_kV", r -> r.vrms_kV),
+                Column.of("irms_A", r -> r.irms_A),
+                Column.of("P_kW", r -> r.P_kW),
+                Column.of("S_kVA", r -> r.S_kVA),
+                Column.of("PF", r -> r.PF));
+    }
+
+    @Override
+    public boolean applies(PhaseInput in) {
+        return in.paired() != null || in.hues() != null;
+    }
+
+    @Override
+    public PowerResult analyze(PhaseInput in) {
+        if (in.paired() != null) return analyzePair(in);
+        if (in.hues() != null) return analyzeCombined(in);
+        return PowerResult.error(in.phase(), "缺少电流波形（电流图或色相区间）");
+    }
+
+    /* ===== 配对图 ===== */
+    private PowerResult analyzePair(PhaseInput in) {
+        RoiFeatures vROI = in.roi(), iROI = in.paired();
+        CalibrationStore.Slot vCal = in.calibration(), iCal = in.pairedCalibration();
+        TraceMode traceMode = in.traceMode();
+        PhaseDebug dbg = in.debug();
+        PowerResult out = new PowerResult();
+        out.phase = in.phase();
+        out.debug = dbg.values();
+
+        // 1) 找三条水平黑实线，用于确定中线与上下边界
+        long t = metrics.start();
+        List<Integer> vLines = vROI.mergedSolidLines((int)(vROI.width() * HLINE_RUN_RATIO), HLINE_MERGE_PX);
+        List<Integer> iLines = iROI.mergedSolidLines((int)(iROI.width() * HLINE_RUN_RATIO), HLINE_MERGE_PX);
+        metrics.stage(Stage.LINES, t);
+        if (vLines.size() < 3 || iLines.size() < 3) {
+            out.error = "黑实线不足(电压或电流)";
+            dbg.put("vLines", vLines);
+            dbg.put("iLines", iLines);
+            return out;
+        }
+        Collections.sort(vLines);
+        Collections.sort(iLines);
+        int vy1=vLines.get(0), vy2=vLines.get(vLines.size()/2), vy3=vLines.get(vLines.size()-1);
+        int iy1=iLines.get(0), iy2=iLines.get(iLines.size()/2), iy3=iLines.get(iLines.size()-1);
+        if (dbg.on()) {
+            dbg.put("v_y1y2y3", Arrays.asList(vy1, vy2, vy3));
+            dbg.put("i_y1y2y3", Arrays.asList(iy1, iy2, iy3));
+        }
+
+        // 2) 找虚线刻度（像素->物理量）：布局已有生效的标定时直接使用，否则检测并交给标定学习
+        t = metrics.start();
+        List<Integer> vDash = vCal.dashes(vy2), iDash = iCal.dashes(iy2);
+        if (vDash == null) {
+            vDash = vROI.dashRows(vy1, vy3, DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+            vCal.observe(vy2, vDash);
+        }
+        if (iDash == null) {
+            iDash = iROI.dashRows(iy1, iy3, DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+            iCal.observe(iy2, iDash);
+        }
+        metrics.stage(Stage.DASHES, t);
+        dbg.put("vDash", vDash);
+        dbg.put("iDash", iDash);
+
+        // 3) 逐列跟踪波形中心 y(x)：像素模式为上下边中点，质心模式为亚像素质心；无效列为 NaN
+        t = metrics.start();
+        float[] vY = vROI.trace(traceMode, true, vy1, vy3);
+        float[] iY = iROI.trace(traceMode, true, iy1, iy3);
+        metrics.stage(Stage.TRACE, t);
+
+        if (dbg.on()) dbg.put("traceMode", traceMode);
+        return power(out, vY, ScaleCalibration.of(vy2, vDash, in.perSeg(), FALLBACK_PIXELS, vROI.height()),
+                iY, ScaleCalibration.of(iy2, iDash, in.pairedPerSeg(), FALLBACK_PIXELS, iROI.height()), dbg);
+    }
+
+    /* ===== 叠加截图：同一 ROI 共用实线与虚线刻度，按色相分离电压（hues[0]）、电流（hues[1]）两条波形 ===== */
+    private PowerResult analyzeCombined(PhaseInput in) {
+        RoiFeatures roi = in.roi();
+        HueRange[] fixed = in.hues();
+        CalibrationStore.Slot cal = in.calibration();
+        TraceMode traceMode = in.traceMode();
+        PhaseDebug dbg = in.debug();
+        PowerResult out = new PowerResult();
+        out.phase = in.phase();
+        out.debug = dbg.values();
+
+        // 1) 三条水平黑实线
+        long t = metrics.start();
+        List<Integer> lines = roi.mergedSolidLines((int)(roi.width() * HLINE_RUN_RATIO), HLINE_MERGE_PX);
+        metrics.stage(Stage.LINES, t);
+        if (lines.size() < 3) {
+            out.error = "黑实线不足";
+            dbg.put("lines", lines);
+            return out;
+        }
+        Collections.sort(lines);
+        int y1 = lines.get(0), y2 = lines.get(lines.size()/2), y3 = lines.get(lines.size()-1);
+        if (dbg.on()) dbg.put("y1y2y3", Arrays.asList(y1, y2, y3));
+
+        // 2) 虚线刻度（电压、电流共用，每段物理量不同）
+        t = metrics.start();
+        List<Integer> dash = cal.dashes(y2);
+        if (dash == null) {
+            dash = roi.dashRows(y1, y3, DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+            cal.observe(y2, dash);
+        }
+        metrics.stage(Stage.DASHES, t);
+        dbg.put("dash", dash);
+
+        // 3) 色相区间：未指定的由自动聚类补齐（只聚出一种颜色时无从分配）；再一遍扫描同时跟踪两条波形
+        t = metrics.start();
+        HueRange[] hues = fixed;
+        if (fixed[0] == null || fixed[1] == null) {
+            HueRange[] found = roi.hueClusters(y1, y3, 2);
+            hues = HueClusters.assign(found.length >= 2 ? found : new HueRange[0], fixed);
+        }
+        if (hues[0] == null || hues[1] == null) {
+            metrics.stage(Stage.TRACE, t);
+            out.error = "未能按颜色分离出电压、电流两条波形";
+            if (dbg.on()) dbg.put("hueHistogram", roi.hueHistogram(y1, y3));
+            return out;
+        }
+        float[][] ys = roi.hueTraces(traceMode, hues, y1, y3);
+        metrics.stage(Stage.TRACE, t);
+        if (dbg.on()) {
+            dbg.put("voltageHue", hues[0].toString());
+            dbg.put("currentHue", hues[1].toString());
+            dbg.put("traceMode", traceMode);
+        }
+
+        return power(out, ys[0], ScaleCalibration.of(y2, dash, in.perSeg(), FALLBACK_PIXELS, roi.height()),
+                ys[1], ScaleCalibration.of(y2, dash, in.pairedPerSeg(), FALLBACK_PIXELS, roi.height()), dbg);
+    }
+
+    // 4) ~ 7)：右侧窗口换算、平滑、对齐后计算功率
+    private PowerResult power(PowerResult out, float[] vY, ScaleCalibration vScale, float[] iY, ScaleCalibration iScale,
+                             PhaseDebug dbg) {
+        // 4) 取右侧稳态窗口
+        int vw = vY.length, iw = iY.length;
+        int vx0 = Math.max(0, Math.min(vw-2, (int)Math.round(vw*(1.0 - RIGHT_PORTION))));
+        int ix0 = Math.max(0, Math.min(iw-2, (int)Math.round(iw*(1.0 - RIGHT_PORTION))));
+        if (dbg.on()) {
+            dbg.put("v_xStart", vx0);
+            dbg.put("i_xStart", ix0);
+            dbg.array("v_trace", vY);
+            dbg.array("i_trace", iY);
+        }
+
+        // 5) 像素 -> 物理量：电压(V)，电流(A)；每相构建一次刻度表，整段窗口查表换算
+        long t = metrics.start();
+        double[] vSig = vScale.map(vY, vx0, vw);
+        double[] iSig = iScale.map(iY, ix0, iw);
+        metrics.stage(Stage.MAPPING, t);
+
+        vSig = compactValid(vSig);
+        iSig = compactValid(iSig);
+        if (dbg.on()) {
+            dbg.put("v_samples", vSig.length);
+            dbg.put("i_samples", iSig.length);
+        }
+        if (vSig.length < 30 || iSig.length < 30) {
+            out.error = "有效样本不足(电压或电流)";
+            return out;
+        }
+
+        vSig = movingAvg(vSig, 3);
+        iSig = movingAvg(iSig, 3);
+
+        // 映射、平滑后的整段序列（V / A），确认是否“随着时间变化”
+        dbg.array("v_window", vSig);
+        dbg.array("i_window", iSig);
+
+        // 6) 对齐长度（线性重采样到共同长度）
+        t = metrics.start();
+        int N = Math.min(vSig.length, iSig.length);
+        double[] vS = (vSig.length == N) ? vSig : resampleLinear(vSig, N);
+        double[] iS = (iSig.length == N) ? iSig : resampleLinear(iSig, N);
+        if (dbg.on()) dbg.put("resampled_len", N);
+
+        // 7) 计算 Vrms / Irms / P / S / PF
+        double Vrms = rms(vS);
+        double Irms = rms(iS);
+        double P = meanProduct(vS, iS);  // W
+        double S = Vrms * Irms;          // VA
+        double PF = (S > 1e-12) ? clamp(P / S, 0.0, 1.0) : 0.0;
+        metrics.stage(Stage.ESTIMATE, t);
+
+        out.vrms_kV = Vrms / 1000.0;     // kV
+        out.irms_A  = Irms;              // A
+        out.P_kW    = P / 1000.0;        // kW
+        out.S_kVA   = S / 1000.0;        // kVA
+        out.PF      = PF;
+
+        return out;
+    }
+
+    /* ====== 数学小工具 ====== */
+    private static double[] compactValid(double[] a){
+        return Arrays.stream(a).filter(v -> !Double.isNaN(v)).toArray();
+    }
+    private static double[] movingAvg(double[] s, int win){
+        if (win<=1) return s;
+        int n=s.length; double[] out=new double[n];
+        for (int i=0;i<n;i++){
+            int L=Math.max(0,i-win/2), R=Math.min(n-1,i+win/2);
+            double sum=0; int c=0;
+            for (int k=L;k<=R;k++){ sum+=s[k]; c++; }
+            out[i]=sum/Math.max(1,c);
+        }
+        return out;
+    }
+    private static double[] resampleLinear(double[] s, int N){
+        int n=s.length; if (n==N) return s.clone();
+        double[] out=new double[N];
+        for (int i=0;i<N;i++){
+            double t = i*(n-1.0)/(N-1.0);
+            int t0 = (int)Math.floor(t), t1 = Math.min(n-1, t0+1);
+            double a = t - t0;
+            out[i] = (1-a)*s[t0] + a*s[t1];
+        }
+        return out;
+    }
+    private static double rms(double[] s){
+        double sum=0; for (double v: s) sum+=v*v;
+        return Math.sqrt(sum/Math.max(1, s.length));
+    }
+    private static double meanProduct(double[] a, double[] b){
+        int n=Math.min(a.length,b.length); if (n==0) return 0;
+        double s=0; for (int i=0;i<n;i++) s+=a[i]*b[i];
+        return s/n;
+    }
+    private static double clamp(double v, double lo, double hi){ return Math.max(lo, Math.min(hi, v)); }
+}
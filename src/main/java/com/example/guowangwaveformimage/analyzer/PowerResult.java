@@ -0,0 +1,30 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    功率单相结果（/gonglv）。
+*/
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+public class PowerResult implements AnalyzerResult {
+    public String phase;     // A/B/C
+    public Double vrms_kV;   // 电压有效值 (kV)
+    public Double irms_A;    // 电流有效值 (A)
+    public Double P_kW;      // 有功功率 (kW)
+    public Double S_kVA;     // 视在功率 (kVA)
+    public Double PF;        // 功率因数 (0~1)
+    public String error;     // 错误信息
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String,Object> debug;   // 调试值（仅开启调试追踪时输出）
+
+    public static PowerResult error(String phase, String msg) {
+        PowerResult p = new PowerResult();
+        p.phase = phase; p.error = msg;
+        return p;
+    }
+
+    @Override public String phase() { return phase; }
+    @Override public String error() { return error; }
+}
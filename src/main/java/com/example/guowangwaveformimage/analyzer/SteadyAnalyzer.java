@@ -0,0 +1,172 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    稳态峰值 / 有效值：右侧 40% 窗口内取离 0 轴最远的峰（谷）换算峰值，理论 RMS = |峰值|/√2，
+    另对窗口内逐点换算后求采样 RMS。虚线刻度优先使用布局已生效的标定。
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.ScaleCalibration;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@Order(2)
+public class SteadyAnalyzer implements Analyzer<SteadyResult> {
+
+    private static final int    DASH_FALLBACK_PIXELS = 300;
+    private static final double STEADY_WINDOW_RIGHT_PORTION = 0.40;   // 右侧40%
+    private static final double HLINE_RUN_RATIO = 0.6;                 // 水平黑实线占宽度阈值
+    private static final int    DASH_SMOOTH_WIN = 5;
+    private static final double DASH_PEAK_GAIN  = 1.2;
+
+    // 稳态需要：实线（OTSU）、虚线（自适应）、波形（HSV）
+    public static final Set<RoiFeatures.Plane> PLANES =
+            EnumSet.of(RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE, RoiFeatures.Plane.HSV);
+
+    private final AnalysisMetrics metrics;
+
+    public SteadyAnalyzer(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return "wentai";
+    }
+
+    @Override
+    public Set<RoiFeatures.Plane> planes() {
+        return PLANES;
+    }
+
+    @Override
+    public List<Column<SteadyResult>> columns() {
+        return List.of(
+                Column.of("steadyPeakV", r -> r.steadyPeakV),
+                Column.of("steadyRmsV", r -> r.steadyRmsV),
+                Column.of("sampleRmsV", r -> r.sampleRmsV));
+    }
+
+    @Override
+    public SteadyResult analyze(PhaseInput in) {
+        RoiFeatures roi = in.roi();
+        CalibrationStore.Slot cal = in.calibration();
+        TraceMode traceMode = in.traceMode();
+        PhaseDebug dbg = in.debug();
+        SteadyResult pr = new SteadyResult();
+        pr.phase = in.phase();
+        pr.debug = dbg.values();
+
+        // 1) 三条黑实线
+        long t = metrics.start();
+        List<Integer> blackLines = roi.solidLineRows((int) Math.ceil(roi.width() * HLINE_RUN_RATIO));
+        metrics.stage(Stage.LINES, t);
+        if (blackLines.size() < 3) {
+            pr.error = "检测到的黑实线不足3条";
+            dbg.put("blackLines", blackLines);
+            return pr;
+        }
+        Collections.sort(blackLines);
+        int y1 = blackLines.get(0), y2 = blackLines.get(blackLines.size()/2), y3 = blackLines.get(blackLines.size()-1);
+
+        // 2) 虚线刻度：布局已有生效的标定时直接使用，否则检测并交给标定学习
+        t = metrics.start();
+        List<Integer> dashYs = cal.dashes(y2);
+        boolean calibrated = dashYs != null;
+        if (!calibrated) {
+            dashYs = roi.dashRows(y1, y3, DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+            cal.observe(y2, dashYs);
+        }
+        metrics.stage(Stage.DASHES, t);
+
+        // 3) 跟踪波形 y(x)：像素模式为彩色上边（与原整数跟踪相同），质心模式为亚像素质心；无效列为 NaN
+        t = metrics.start();
+        float[] yTrace = roi.trace(traceMode, false, y1, y3);
+        metrics.stage(Stage.TRACE, t);
+
+        // 4) 右侧 40% 窗口
+        int w = roi.width();
+        int xStart = (int)Math.round(w * (1.0 - STEADY_WINDOW_RIGHT_PORTION));
+        xStart = Math.max(0, Math.min(w-1, xStart));
+        int valid = 0;
+        float ymax = Float.NEGATIVE_INFINITY, ymin = Float.POSITIVE_INFINITY;
+        for (int x = xStart; x < w; x++) {
+            float yy = yTrace[x];
+            if (Float.isNaN(yy)) continue;
+            valid++;
+            if (yy > ymax) ymax = yy;
+            if (yy < ymin) ymin = yy;
+        }
+        if (valid < 10) {
+            pr.error = "稳态窗口有效样本不足";
+            if (dbg.on()) dbg.put("xStart", xStart);
+            return pr;
+        }
+
+        // 5) 找峰/谷，取离中线更远的
+        float devTop    = Math.abs(ymin - y2);
+        float devBottom = Math.abs(ymax - y2);
+        float peakY = (devTop >= devBottom) ? ymin : ymax;
+        boolean isUp = (devTop >= devBottom);
+
+        // 6) 像素 -> 物理量（V 或 A）：刻度表每相构建一次
+        t = metrics.start();
+        ScaleCalibration scale = ScaleCalibration.of(y2, dashYs, in.perSeg(), DASH_FALLBACK_PIXELS, roi.height());
+        double peakVal = scale.value((double) peakY, isUp);
+
+        // 7) 有效值（正）：理论 RMS = |peak|/√2
+        double steadyRms = Math.abs(peakVal) / Math.sqrt(2.0);
+
+        // 8) 采样 RMS（正）：窗口内逐点查表，再算 RMS
+        double[] samples = new double[w - xStart];
+        int idx = 0;
+        for (int x = xStart; x < w; x++) {
+            float yy = yTrace[x];
+            if (!Float.isNaN(yy)) samples[idx++] = Math.abs(scale.value((double) yy)); // 取绝对值，保证RMS为正
+        }
+        double sampleRms = calcRms(samples, idx);
+        metrics.stage(Stage.MAPPING, t);
+
+        // 9) 按显示单位输出：电压->kV，电流->A
+        double displayScale = in.displayScale();
+        pr.steadyPeakV = peakVal * displayScale;
+        pr.steadyRmsV  = steadyRms * displayScale;
+        pr.sampleRmsV  = sampleRms * displayScale;
+
+        // 调参信息（中间数组只进追踪产物）
+        if (dbg.on()) {
+            dbg.put("y1y2y3", Arrays.asList(y1,y2,y3));
+            dbg.put("dashYs", dashYs);
+            dbg.put("dashCalibrated", calibrated);
+            dbg.put("xStart", xStart);
+            dbg.put("traceMode", traceMode);
+            dbg.put("windowSamples", idx);
+            dbg.array("trace", yTrace);
+            dbg.array("window_abs_values", Arrays.copyOf(samples, idx));
+        }
+        return pr;
+    }
+
+    // RMS（对前 validCount 个样本；样本值已取绝对）
+    private static double calcRms(double[] arr, int validCount) {
+        if (validCount <= 0) return Double.NaN;
+        double s=0; int c=0;
+        for (int i=0; i<validCount; i++){
+            double v = arr[i];
+            if (!Double.isNaN(v)) { s += v*v; c++; }
+        }
+        return c==0 ? Double.NaN : Math.sqrt(s/c);
+    }
+}
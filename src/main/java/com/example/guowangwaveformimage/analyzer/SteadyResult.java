@@ -0,0 +1,28 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    稳态单相结果（/wentai）：峰值与两种有效值，已按显示单位换算。
+*/
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+public class SteadyResult implements AnalyzerResult {
+    public String phase;            // A/B/C
+    public Double steadyPeakV;      // 稳态峰值（已按单位换算：电压=kV，电流=A）
+    public Double steadyRmsV;       // 稳态RMS（同上单位，且为正）
+    public Double sampleRmsV;       // 采样RMS（同上单位，且为正）
+    public String  error;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, Object> debug;  // 调试值（仅开启调试追踪时输出）
+
+    public static SteadyResult error(String phase, String msg) {
+        SteadyResult p = new SteadyResult();
+        p.phase = phase; p.error = msg;
+        return p;
+    }
+
+    @Override public String phase() { return phase; }
+    @Override public String error() { return error; }
+}
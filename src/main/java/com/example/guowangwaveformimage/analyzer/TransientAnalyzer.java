@@ -0,0 +1,155 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    暂态最大值：三条黑实线定 0 轴，虚线定刻度，实线之间最靠上的彩色行为波形最高点，按虚线换算为物理量。
+    暂态的虚线检测口径（整行黑像素数落在区间内）与稳态不同，不使用布局保存的虚线标定。
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.ScaleCalibration;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@Order(1)
+public class TransientAnalyzer implements Analyzer<TransientResult> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransientAnalyzer.class);
+
+    // 暂态只用 BGR 平面
+    public static final Set<RoiFeatures.Plane> PLANES = EnumSet.of(RoiFeatures.Plane.BGR);
+
+    private final AnalysisMetrics metrics;
+
+    public TransientAnalyzer(AnalysisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String name() {
+        return "zantai";
+    }
+
+    @Override
+    public Set<RoiFeatures.Plane> planes() {
+        return PLANES;
+    }
+
+    @Override
+    public List<Column<TransientResult>> columns() {
+        return List.of(
+                Column.of("value", r -> r.value),
+                Column.of("wave_top_y", r -> r.wave_top_y));
+    }
+
+    @Override
+    public TransientResult analyze(PhaseInput in) {
+        RoiFeatures px = in.roi();
+        String phaseName = in.phase();
+        PhaseDebug dbg = in.debug();
+        TransientResult r = new TransientResult();
+        r.phase = phaseName;
+        r.debug = dbg.values();
+
+        // 检测三条黑实线
+        long t = metrics.start();
+        List<Integer> lineY = detectHorizontalBlackLines(px, 0.6);
+        metrics.stage(Stage.LINES, t);
+        if (lineY.size() < 3) {
+            if (log.isDebugEnabled()) log.debug("相{}：检测到的黑实线不足3条，实际行y={}", phaseName, lineY);
+            r.error = "检测到的黑实线不足3条";
+            r.lines = lineY;
+            return r;
+        }
+        Collections.sort(lineY);
+        int y1 = lineY.get(0), y2 = lineY.get(lineY.size() / 2), y3 = lineY.get(lineY.size() - 1);
+
+        // 检测所有“虚线”y
+        t = metrics.start();
+        List<Integer> dashLines = detectHorizontalDashLines(px, 400, 800);
+        Collections.sort(dashLines);
+        metrics.stage(Stage.DASHES, t);
+
+        // 只在y1~y3之间检测彩色波形最高点
+        t = metrics.start();
+        int waveTopY = findWaveformTopY(px, y1, y3);
+        boolean isUp = waveTopY < y2;
+        metrics.stage(Stage.TRACE, t);
+
+        t = metrics.start();
+        double value = calcMaxValueByDashes(y2, dashLines, waveTopY, isUp, in.perSeg());
+        metrics.stage(Stage.MAPPING, t);
+
+        if (dbg.on()) {
+            dbg.put("y1y2y3", Arrays.asList(y1, y2, y3));
+            dbg.put("dashLines", dashLines);
+            dbg.put("isUp", isUp);
+            dbg.array("lineRows", lineY);
+        }
+        r.wave_top_y = waveTopY;
+        r.value = value;
+        return r;
+    }
+
+    public List<Integer> detectHorizontalBlackLines(RoiFeatures img, double totalRunRatio) {
+        List<Integer> lines = new ArrayList<>();
+        int minTotalRun = (int) (img.width() * totalRunRatio);
+        for (int y = 0; y < img.height(); y++) {
+            // 所有黑色连续段长度之和 = 该行黑像素数
+            int totalRun = img.blackCount(y);
+            if (totalRun > minTotalRun) lines.add(y);
+        }
+        List<Integer> uniq = new ArrayList<>();
+        int last = -1000;
+        for (int y : lines) {
+            if (y - last > 10) uniq.add(y);
+            last = y;
+        }
+        return uniq;
+    }
+
+    // 只在实线y1~y3之间找“最靠上”且有彩色像素的那一行y
+    public int findWaveformTopY(RoiFeatures img, int y1, int y3) {
+        for (int y = y1 + 1; y < y3; y++) {
+            if (img.hasWave(y)) {
+                return y;
+            }
+        }
+        return y3;
+    }
+
+    public List<Integer> detectHorizontalDashLines(RoiFeatures img, int minTotal, int maxTotal) {
+        List<Integer> lines = new ArrayList<>();
+        for (int y = 0; y < img.height(); y++) {
+            int total = img.blackCount(y);
+            if (total >= minTotal && total < maxTotal) lines.add(y);
+        }
+        List<Integer> uniq = new ArrayList<>();
+        int last = -100;
+        for (int y : lines) {
+            if (y - last > 8) uniq.add(y);
+            last = y;
+        }
+        return uniq;
+    }
+
+    /**
+     * 计算最大值，基于0轴（中间实线）、所有虚线、波形最高点
+     */
+    public double calcMaxValueByDashes(int y2, List<Integer> dashLines, int waveTopY, boolean isUp, double perSegmentValue) {
+        // 没有虚线时兜底：上侧按 0 轴到图顶的距离，下侧假设最下面实线与 0 轴相距 300 像素
+        return ScaleCalibration.of(y2, dashLines, perSegmentValue, y2 + 1e-9, 300.0, 0).value(waveTopY, isUp);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.guowangwaveformimage.analyzer;
+
+/*
+    暂态单相结果（/zantai）：成功时 wave_top_y、value，失败时 error、lines；空字段不输出。
+*/
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransientResult implements AnalyzerResult {
+    public String phase;                // A/B/C
+    public Integer wave_top_y;          // 波形最高点行（ROI 内）
+    public Double value;                // 暂态最大值（V 或 A）
+    public String error;
+    public List<Integer> lines;         // 出错时检测到的黑实线行
+    public Map<String, Object> debug;   // 调试值（仅开启调试追踪时输出）
+
+    @Override public String phase() { return phase; }
+    @Override public String error() { return error; }
+}
@@ -0,0 +1,41 @@
+package com.example.guowangwaveformimage.cache;
+
+/*
+    分析结果缓存：key = 图片内容摘要 + 接口 + 影响结果的参数（mode、每段物理量等）
+    缓存的是各相结果列表，文件名等随请求变化的字段由调用方每次重新填写。
+    缓存对象被多个请求共享，取出后请勿修改。
+    含错误的结果不缓存（布局、标定修正后须能重新分析）；唯一例外是功率接口中无法解码的图片对。
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AnalysisResultCache {
+
+    private final LruCache<String, Object> cache;
+
+    public AnalysisResultCache(AnalysisProperties props) {
+        AnalysisProperties.Cache cfg = props.getCache();
+        this.cache = new LruCache<>(cfg.getResultMaxEntries(), cfg.getResultTtl());
+    }
+
+    public static String key(String endpoint, String contentHash, Object... params) {
+        StringBuilder sb = new StringBuilder(endpoint).append('|').append(contentHash);
+        for (Object p : params) sb.append('|').append(p);
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        return (T) cache.get(key);
+    }
+
+    public void put(String key, Object value) {
+        cache.put(key, value);
+    }
+
+    public LruCache.Stats stats() { return cache.stats(); }
+
+    public void clear() { cache.clear(); }
+}
@@ -0,0 +1,119 @@
+package com.example.guowangwaveformimage.cache;
+
+/*
+    有界 LRU 缓存：
+    - 按访问顺序淘汰，总权重（条目数或字节数）不超过上限
+    - 写入后超过 TTL 的条目视为失效
+    - 记录命中 / 未命中 / 淘汰次数
+*/
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+public class LruCache<K, V> {
+
+    /** 统计信息（直接作为 JSON 输出） */
+    public static class Stats {
+        public long hits;
+        public long misses;
+        public long evictions;
+        public int size;
+        public long weight;
+        public long maxWeight;
+        public double hitRate;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final long expireAt;
+
+        Entry(V value, long weight, long expireAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<? super V> weigher;
+
+    private long weight, hits, misses, evictions;
+
+    /** 按条目数限制 */
+    public LruCache(long maxEntries, Duration ttl) {
+        this(maxEntries, ttl, v -> 1);
+    }
+
+    /** 按权重限制（weigher 返回单个条目的权重，例如字节数） */
+    public LruCache(long maxWeight, Duration ttl, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.ttlNanos = (ttl == null || ttl.isZero() || ttl.isNegative()) ? Long.MAX_VALUE : ttl.toNanos();
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e != null && e.expireAt != Long.MAX_VALUE && System.nanoTime() - e.expireAt > 0) {
+            map.remove(key);
+            weight -= e.weight;
+            e = null;
+        }
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxWeight <= 0) return;
+        long w = Math.max(0, weigher.applyAsLong(value));
+        if (w > maxWeight) return; // 单个条目就超限，不缓存
+        long expireAt = ttlNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + ttlNanos;
+        Entry<V> old = map.put(key, new Entry<>(value, w, expireAt));
+        if (old != null) weight -= old.weight;
+        weight += w;
+
+        Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            weight -= eldest.getValue().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** 移除并返回条目（已过期的返回 null） */
+    public synchronized V remove(K key) {
+        Entry<V> e = map.remove(key);
+        if (e == null) return null;
+        weight -= e.weight;
+        return e.expireAt != Long.MAX_VALUE && System.nanoTime() - e.expireAt > 0 ? null : e.value;
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    public synchronized Stats stats() {
+        Stats s = new Stats();
+        s.hits = hits;
+        s.misses = misses;
+        s.evictions = evictions;
+        s.size = map.size();
+        s.weight = weight;
+        s.maxWeight = maxWeight;
+        long total = hits + misses;
+        s.hitRate = total == 0 ? 0.0 : hits * 1.0 / total;
+        return s;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.guowangwaveformimage.cache;
+
+/*
+    ROI 特征缓存：key = 图片内容摘要 + ROI 矩形
+    同一张图先后上传到不同接口时，已提取的实线/虚线/波形平面可以直接复用；按特征数组字节数限制总量。
+*/
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.opencv.core.Rect;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RoiFeatureCache {
+
+    private final LruCache<String, RoiFeatures> cache;
+
+    public RoiFeatureCache(AnalysisProperties props) {
+        AnalysisProperties.Cache cfg = props.getCache();
+        this.cache = new LruCache<>(cfg.getFeatureMaxSize().toBytes(), cfg.getFeatureTtl(), RoiFeatures::sizeInBytes);
+    }
+
+    public static String key(String contentHash, Rect r) {
+        return contentHash + '@' + r.x + ',' + r.y + ',' + r.width + ',' + r.height;
+    }
+
+    public RoiFeatures get(String key) { return cache.get(key); }
+
+    public void put(String key, RoiFeatures f) { cache.put(key, f); }
+
+    public LruCache.Stats stats() { return cache.stats(); }
+
+    public void clear() { cache.clear(); }
+}
@@ -0,0 +1,253 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    分析相关配置（application.yml 中 analysis.* ）
+*/
+
+import com.example.guowangwaveformimage.analysis.LineScanMode;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "analysis")
+public class AnalysisProperties {
+
+    private final Executor executor = new Executor();
+    private final Decode decode = new Decode();
+    private final Cache cache = new Cache();
+    private final Jobs jobs = new Jobs();
+    private final Synthetic synthetic = new Synthetic();
+    private final Debug debug = new Debug();
+    private final Lines lines = new Lines();
+    private final Scratch scratch = new Scratch();
+    private final Mats mats = new Mats();
+    private final Calibration calibration = new Calibration();
+    private final Ingest ingest = new Ingest();
+    private final Sessions sessions = new Sessions();
+    /** 截图布局（各相 ROI、刻度），为空时使用内置 default；按图片自动识别，或由 ?layout= 指定 */
+    private List<LayoutProfile> layouts = new ArrayList<>();
+
+    public Executor getExecutor() { return executor; }
+    public Decode getDecode() { return decode; }
+    public Cache getCache() { return cache; }
+    public Jobs getJobs() { return jobs; }
+    public Synthetic getSynthetic() { return synthetic; }
+    public Debug getDebug() { return debug; }
+    public Lines getLines() { return lines; }
+    public Scratch getScratch() { return scratch; }
+    public Mats getMats() { return mats; }
+    public Calibration getCalibration() { return calibration; }
+    public Ingest getIngest() { return ingest; }
+    public Sessions getSessions() { return sessions; }
+    public List<LayoutProfile> getLayouts() { return layouts; }
+    public void setLayouts(List<LayoutProfile> layouts) { this.layouts = layouts; }
+
+    /** 分析线程池 */
+    public static class Executor {
+        /** 工作线程数，<=0 时取 CPU 核数 */
+        private int threads = 0;
+        /** 排队任务上限，队列满时由提交线程自己执行 */
+        private int queueCapacity = 256;
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    }
+
+    /** 图片解码 */
+    public static class Decode {
+        /** 每线程解码缓冲超过该大小时用完即丢弃，不再复用 */
+        private DataSize retainBufferSize = DataSize.ofMegabytes(4);
+
+        public DataSize getRetainBufferSize() { return retainBufferSize; }
+        public void setRetainBufferSize(DataSize retainBufferSize) { this.retainBufferSize = retainBufferSize; }
+    }
+
+    /** 结果缓存（按图片内容摘要 + 接口 + 参数）与 ROI 特征缓存（按图片内容摘要 + ROI） */
+    public static class Cache {
+        /** 结果缓存最多条目数，0 关闭 */
+        private int resultMaxEntries = 2048;
+        private Duration resultTtl = Duration.ofMinutes(30);
+        /** 特征缓存占用上限（按特征数组字节数计），0 关闭 */
+        private DataSize featureMaxSize = DataSize.ofMegabytes(128);
+        private Duration featureTtl = Duration.ofMinutes(10);
+
+        public int getResultMaxEntries() { return resultMaxEntries; }
+        public void setResultMaxEntries(int resultMaxEntries) { this.resultMaxEntries = resultMaxEntries; }
+        public Duration getResultTtl() { return resultTtl; }
+        public void setResultTtl(Duration resultTtl) { this.resultTtl = resultTtl; }
+        public DataSize getFeatureMaxSize() { return featureMaxSize; }
+        public void setFeatureMaxSize(DataSize featureMaxSize) { this.featureMaxSize = featureMaxSize; }
+        public Duration getFeatureTtl() { return featureTtl; }
+        public void setFeatureTtl(Duration featureTtl) { this.featureTtl = featureTtl; }
+    }
+
+    /** 异步批量任务 */
+    public static class Jobs {
+        /** 同时运行的任务数（每个任务内部的文件仍并行提交到分析线程池） */
+        private int workers = 2;
+        /** 排队任务上限，满了新提交返回 429 */
+        private int queueCapacity = 16;
+        /** 任务结束后结果保留时长 */
+        private Duration retention = Duration.ofMinutes(30);
+        /** 最多保留的已结束任务数 */
+        private int maxRetained = 256;
+
+        public int getWorkers() { return workers; }
+        public void setWorkers(int workers) { this.workers = workers; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+        public Duration getRetention() { return retention; }
+        public void setRetention(Duration retention) { this.retention = retention; }
+        public int getMaxRetained() { return maxRetained; }
+        public void setMaxRetained(int maxRetained) { this.maxRetained = maxRetained; }
+    }
+
+    /** 合成截图接口（压测 / 精度测试用） */
+    public static class Synthetic {
+        /** 是否开放 /synthetic/**，生产环境保持关闭 */
+        private boolean enabled = false;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+
+    /** 调试追踪（?debug=true 或日志器开启 DEBUG 时记录） */
+    public static class Debug {
+        /** 最多保留的追踪数 */
+        private int maxTraces = 32;
+        /** 追踪保留时长 */
+        private Duration ttl = Duration.ofMinutes(30);
+
+        public int getMaxTraces() { return maxTraces; }
+        public void setMaxTraces(int maxTraces) { this.maxTraces = maxTraces; }
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+
+    /** ROI 行 / 列统计（实线、竖网格线、虚线、黑像素计数） */
+    public static class Lines {
+        /** scan = Java 逐像素扫描；native = OpenCV 开运算 + reduce，只拷回逐行 / 逐列向量 */
+        private LineScanMode mode = LineScanMode.SCAN;
+
+        public LineScanMode getMode() { return mode; }
+        public void setMode(LineScanMode mode) { this.mode = mode; }
+    }
+
+    /** ROI 特征提取的每线程临时 Mat 池 */
+    public static class Scratch {
+        /** 关闭后每次新建、用完释放 */
+        private boolean enabled = true;
+        /** 单个线程保留的临时 Mat 与像素缓冲上限，超出后整体释放 */
+        private DataSize retainSize = DataSize.ofMegabytes(16);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public DataSize getRetainSize() { return retainSize; }
+        public void setRetainSize(DataSize retainSize) { this.retainSize = retainSize; }
+    }
+
+    /** 请求路径原生 Mat 计数与泄漏检查 */
+    public static class Mats {
+        /** 记录每个 Mat 的创建位置（测试 / 排查用，有栈采集开销） */
+        private boolean recordSites = false;
+
+        public boolean isRecordSites() { return recordSites; }
+        public void setRecordSites(boolean recordSites) { this.recordSites = recordSites; }
+    }
+
+    /** 按布局指纹保存的刻度标定（虚线位置、每段物理量） */
+    public static class Calibration {
+        /** 学习到的虚线连续一致多少次后生效（操作员确认的立即生效） */
+        private int minSamples = 3;
+        /** 虚线与 0 轴位置的容差（像素） */
+        private int tolerancePx = 2;
+        /** 操作员标定的保存文件，为空则只在内存 */
+        private String file = "";
+
+        public int getMinSamples() { return minSamples; }
+        public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+        public int getTolerancePx() { return tolerancePx; }
+        public void setTolerancePx(int tolerancePx) { this.tolerancePx = tolerancePx; }
+        public String getFile() { return file; }
+        public void setFile(String file) { this.file = file; }
+    }
+
+    /** 目录批量导入（录波器导出的截图落到本地目录，不经 HTTP 上传） */
+    public static class Ingest {
+        /** 是否启动导入；可配合 spring.main.web-application-type=none 无界面运行 */
+        private boolean enabled = false;
+        /** 监视 / 扫描的目录（不含子目录） */
+        private String dir = "";
+        /** 文件名匹配（glob） */
+        private String pattern = "*.{png,jpg,jpeg,bmp}";
+        /** 扫描完现有文件后继续监视新文件；false 时扫描一遍即结束 */
+        private boolean watch = true;
+        /** 同时分析的文件数，0 = 分析线程数 */
+        private int parallelism = 0;
+        /** 文件最后修改后至少经过该时长才读取（录波器仍在写入的文件跳过，稍后再看） */
+        private Duration settle = Duration.ofSeconds(2);
+        /** 结果文件（追加写） */
+        private String output = "ingest-results.ndjson";
+        /** 结果格式：ndjson 每个文件一行（结构同 /report）；csv 每个文件每相一行（列同 /report/export） */
+        private OutputFormat format = OutputFormat.NDJSON;
+        /** 检查点文件（已完成的文件，重启后跳过），为空时为 output + ".checkpoint" */
+        private String checkpoint = "";
+        /** 只运行这些分析器（zantai / wentai / pinlv / gonglv），为空时全部；功率只对配置了 traces 的叠加布局适用 */
+        private List<String> analyzers = new ArrayList<>();
+        /** 指定布局名称，为空时按图片识别 */
+        private String layout = "";
+        private PeriodMethod period = PeriodMethod.AUTOCORR;
+        private TraceMode trace = TraceMode.PIXEL;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getDir() { return dir; }
+        public void setDir(String dir) { this.dir = dir; }
+        public String getPattern() { return pattern; }
+        public void setPattern(String pattern) { this.pattern = pattern; }
+        public boolean isWatch() { return watch; }
+        public void setWatch(boolean watch) { this.watch = watch; }
+        public int getParallelism() { return parallelism; }
+        public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+        public Duration getSettle() { return settle; }
+        public void setSettle(Duration settle) { this.settle = settle; }
+        public String getOutput() { return output; }
+        public void setOutput(String output) { this.output = output; }
+        public OutputFormat getFormat() { return format; }
+        public void setFormat(OutputFormat format) { this.format = format; }
+        public String getCheckpoint() { return checkpoint; }
+        public void setCheckpoint(String checkpoint) { this.checkpoint = checkpoint; }
+        public List<String> getAnalyzers() { return analyzers; }
+        public void setAnalyzers(List<String> analyzers) { this.analyzers = analyzers; }
+        public String getLayout() { return layout; }
+        public void setLayout(String layout) { this.layout = layout; }
+        public PeriodMethod getPeriod() { return period; }
+        public void setPeriod(PeriodMethod period) { this.period = period; }
+        public TraceMode getTrace() { return trace; }
+        public void setTrace(TraceMode trace) { this.trace = trace; }
+
+        /** xlsx 只能整体写出，不适合追加的导入结果，不提供 */
+        public enum OutputFormat { NDJSON, CSV }
+    }
+
+    /** 连续截图会话（/sessions：同一录波的相邻截图逐帧追加，逐周期输出） */
+    public static class Sessions {
+        /** 同时保留的会话数，超出时淘汰最久未用的 */
+        private int maxSessions = 64;
+        /** 会话最后一帧后保留的时长 */
+        private Duration ttl = Duration.ofMinutes(30);
+
+        public int getMaxSessions() { return maxSessions; }
+        public void setMaxSessions(int maxSessions) { this.maxSessions = maxSessions; }
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+}
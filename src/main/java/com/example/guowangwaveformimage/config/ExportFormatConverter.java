@@ -0,0 +1,17 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    请求参数 format=csv|xlsx -> ExportFormat（不区分大小写；未知值返回 400）
+*/
+
+import com.example.guowangwaveformimage.export.ExportFormat;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExportFormatConverter implements Converter<String, ExportFormat> {
+    @Override
+    public ExportFormat convert(String source) {
+        return ExportFormat.of(source);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    请求参数 voltageHue / currentHue=lo-hi -> HueRange（OpenCV 色相 0..179；格式不对返回 400）
+*/
+
+import com.example.guowangwaveformimage.analysis.HueRange;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HueRangeConverter implements Converter<String, HueRange> {
+    @Override
+    public HueRange convert(String source) {
+        return HueRange.of(source);
+    }
+}
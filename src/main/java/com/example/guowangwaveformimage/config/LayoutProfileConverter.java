@@ -0,0 +1,25 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    请求参数 layout=<name> -> 已注册的 LayoutProfile（区分大小写；未知名称返回 400）
+*/
+
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LayoutProfileConverter implements Converter<String, LayoutProfile> {
+
+    private final LayoutProfiles layouts;
+
+    public LayoutProfileConverter(LayoutProfiles layouts) {
+        this.layouts = layouts;
+    }
+
+    @Override
+    public LayoutProfile convert(String source) {
+        return layouts.require(source.trim());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    请求参数 period=autocorr|fft|spectrum -> PeriodMethod（不区分大小写；未知值返回 400）
+*/
+
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PeriodMethodConverter implements Converter<String, PeriodMethod> {
+    @Override
+    public PeriodMethod convert(String source) {
+        return PeriodMethod.of(source);
+    }
+}
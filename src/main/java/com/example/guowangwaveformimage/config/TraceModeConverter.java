@@ -0,0 +1,17 @@
+package com.example.guowangwaveformimage.config;
+
+/*
+    请求参数 trace=pixel|centroid -> TraceMode（不区分大小写；未知值返回 400）
+*/
+
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TraceModeConverter implements Converter<String, TraceMode> {
+    @Override
+    public TraceMode convert(String source) {
+        return TraceMode.of(source);
+    }
+}
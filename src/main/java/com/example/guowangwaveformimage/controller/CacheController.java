@@ -0,0 +1,46 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    缓存统计与清理：
+    - GET    /cache/stats  结果缓存、ROI 特征缓存的命中 / 未命中 / 淘汰次数与占用
+    - DELETE /cache        清空两级缓存（例如调整算法参数后）
+*/
+
+import com.example.guowangwaveformimage.cache.AnalysisResultCache;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    private final AnalysisResultCache resultCache;
+    private final RoiFeatureCache featureCache;
+
+    public CacheController(AnalysisResultCache resultCache, RoiFeatureCache featureCache) {
+        this.resultCache = resultCache;
+        this.featureCache = featureCache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("results", resultCache.stats());
+        out.put("features", featureCache.stats());
+        return ResponseEntity.ok(out);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> clear() {
+        resultCache.clear();
+        featureCache.clear();
+        return ResponseEntity.ok(stats().getBody());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    刻度标定（按布局指纹保存，见 CalibrationStore）：
+    - GET    /calibrations                   各布局的标定（虚线位置、学习次数、每段物理量覆盖值）与命中统计
+    - POST   /calibrations/{layout}/sample   操作员上传一张确认过的样例图：测出各相虚线并确认，可同时给出每段物理量
+    - PUT    /calibrations/{layout}/scale    只修正每段物理量（voltagePerSeg / currentPerSeg），之后的请求按新刻度计算
+    - DELETE /calibrations/{layout}          清除该布局的标定（含学习结果）
+*/
+
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/calibrations")
+public class CalibrationController {
+
+    // 实线 / 虚线检测参数与稳态、功率接口一致
+    private static final double HLINE_RUN_RATIO = 0.60;
+    private static final int    HLINE_MERGE_PX  = 10;
+    private static final int    DASH_SMOOTH_WIN = 5;
+    private static final double DASH_PEAK_GAIN  = 1.2;
+
+    private static final Set<RoiFeatures.Plane> PLANES = EnumSet.of(RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE);
+
+    private final CalibrationStore calibrations;
+    private final LayoutProfiles layouts;
+    private final ImageDecoder decoder;
+    private final ImageFeatureLoader features;
+
+    public CalibrationController(CalibrationStore calibrations, LayoutProfiles layouts,
+                                 ImageDecoder decoder, ImageFeatureLoader features) {
+        this.calibrations = calibrations;
+        this.layouts = layouts;
+        this.decoder = decoder;
+        this.features = features;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        List<CalibrationStore.LayoutCalibration> all = new ArrayList<>();
+        for (LayoutProfile p : layouts.all()) all.add(calibrations.get(p));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("stats", calibrations.stats());
+        out.put("layouts", all);
+        return ResponseEntity.ok(out);
+    }
+
+    @PostMapping("/{layout}/sample")
+    public ResponseEntity<?> sample(@PathVariable("layout") LayoutProfile layout,
+                                    @RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "voltagePerSeg", required = false) Double voltagePerSeg,
+                                    @RequestParam(value = "currentPerSeg", required = false) Double currentPerSeg) throws Exception {
+        ImageDecoder.EncodedImage enc = decoder.read(file);
+        Map<Integer, CalibrationStore.PhaseDashes> measured = new TreeMap<>();
+        List<String> errors = new ArrayList<>();
+        try (ImageFeatureLoader.ImageFeatures img = features.open("calibration", enc, layout, PLANES)) {
+            if (img.decodeFailed()) return badRequest("图片解码失败");
+            String[] names = layout.names();
+            for (int i = 0; i < names.length; i++) {
+                RoiFeatures roi = img.get(i);
+                List<Integer> lines = roi.mergedSolidLines((int) (roi.width() * HLINE_RUN_RATIO), HLINE_MERGE_PX);
+                if (lines.size() < 3) {
+                    errors.add(names[i] + ": 检测到的黑实线不足3条");
+                    continue;
+                }
+                Collections.sort(lines);
+                int y1 = lines.get(0), y2 = lines.get(lines.size() / 2), y3 = lines.get(lines.size() - 1);
+                List<Integer> dashes = roi.dashRows(y1, y3, DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+                if (dashes.isEmpty()) {
+                    errors.add(names[i] + ": 未检测到虚线");
+                    continue;
+                }
+                CalibrationStore.PhaseDashes p = new CalibrationStore.PhaseDashes();
+                p.y2 = y2;
+                p.dashYs = dashes;
+                p.samples = 1;
+                measured.put(i, p);
+            }
+        }
+        // 任一相测不出时整张样例作废，避免半套标定
+        if (!errors.isEmpty()) return badRequest(String.join("; ", errors));
+        try {
+            return ResponseEntity.ok(calibrations.confirm(layout, measured, voltagePerSeg, currentPerSeg));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{layout}/scale")
+    public ResponseEntity<?> scale(@PathVariable("layout") LayoutProfile layout,
+                                   @RequestParam(value = "voltagePerSeg", required = false) Double voltagePerSeg,
+                                   @RequestParam(value = "currentPerSeg", required = false) Double currentPerSeg) {
+        if (voltagePerSeg == null && currentPerSeg == null) return badRequest("需要 voltagePerSeg 或 currentPerSeg");
+        try {
+            return ResponseEntity.ok(calibrations.setScale(layout, voltagePerSeg, currentPerSeg));
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{layout}")
+    public ResponseEntity<?> remove(@PathVariable("layout") LayoutProfile layout) {
+        calibrations.remove(layout);
+        return ResponseEntity.ok(calibrations.get(layout));
+    }
+
+    private static ResponseEntity<?> badRequest(String msg) {
+        return ResponseEntity.badRequest().body(Map.of("error", msg));
+    }
+}
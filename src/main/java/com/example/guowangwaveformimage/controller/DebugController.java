@@ -0,0 +1,47 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    调试追踪下载：
+    - GET /debug/traces/{id}   某次请求各文件各相的调试值与中间数组（JSON 附件）
+    - GET /debug/traces        保存中的追踪数量等统计
+    id 见开启追踪的响应头 X-Debug-Trace（?debug=true，或日志器 com.example.guowangwaveformimage.debug 为 DEBUG）
+*/
+
+import com.example.guowangwaveformimage.debug.DebugTrace;
+import com.example.guowangwaveformimage.debug.DebugTraces;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/debug/traces")
+public class DebugController {
+
+    private final DebugTraces traces;
+
+    public DebugController(DebugTraces traces) {
+        this.traces = traces;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(traces.stats());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> download(@PathVariable String id) {
+        DebugTrace t = traces.get(id);
+        if (t == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "调试追踪不存在或已过期: " + id));
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trace-" + t.endpoint() + "-" + id + ".json\"")
+                .body(t.artifact());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    异步批量任务查询：
+    - 提交：POST /{zantai|wentai|pinlv|gonglv}/jobs（参数与对应 /upload 相同），立即返回 202 + 任务 id
+    - GET    /jobs                       所有保留中的任务概况
+    - GET    /jobs/{id}?items=true       进度（可带每个文件的状态）
+    - GET    /jobs/{id}/results?from=n   第 n 个起已完成的文件结果；waitMs>0 时无新结果会等待（长轮询）
+    - DELETE /jobs/{id}                  取消：未开始的文件跳过，正在分析的跑完为止
+*/
+
+import com.example.guowangwaveformimage.job.AnalysisJob;
+import com.example.guowangwaveformimage.job.JobQueueFullException;
+import com.example.guowangwaveformimage.job.JobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    // 长轮询最长等待
+    private static final long MAX_WAIT_MS = 30_000;
+
+    private final JobService jobs;
+
+    public JobController(JobService jobs) {
+        this.jobs = jobs;
+    }
+
+    /** 各分析接口提交任务后的统一应答 */
+    static ResponseEntity<?> accepted(AnalysisJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.id()))
+                .body(job.status(false));
+    }
+
+    static List<String> fileNames(MultipartFile[] files) {
+        return Arrays.stream(files).map(f -> String.valueOf(f.getOriginalFilename())).collect(Collectors.toList());
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(jobs.list().stream().map(j -> j.status(false)).collect(Collectors.toList()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id,
+                                    @RequestParam(value = "items", defaultValue = "false") boolean items) {
+        return jobs.get(id).<ResponseEntity<?>>map(j -> ResponseEntity.ok(j.status(items)))
+                .orElseGet(() -> notFound(id));
+    }
+
+    @GetMapping("/{id}/results")
+    public ResponseEntity<?> results(@PathVariable String id,
+                                     @RequestParam(value = "from", defaultValue = "0") int from,
+                                     @RequestParam(value = "waitMs", defaultValue = "0") long waitMs) throws InterruptedException {
+        AnalysisJob job = jobs.get(id).orElse(null);
+        if (job == null) return notFound(id);
+        if (waitMs > 0) job.awaitProgress(from, Math.min(waitMs, MAX_WAIT_MS));
+        return ResponseEntity.ok(job.results(from));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        return jobs.cancel(id).<ResponseEntity<?>>map(j -> ResponseEntity.ok(j.status(false)))
+                .orElseGet(() -> notFound(id));
+    }
+
+    private static ResponseEntity<?> notFound(String id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "任务不存在或已过期: " + id));
+    }
+
+    /** 队列满：429 + Retry-After，由各分析接口提交任务时触发 */
+    @RestControllerAdvice
+    static class QueueFullHandler {
+        @ExceptionHandler(JobQueueFullException.class)
+        public ResponseEntity<?> queueFull(JobQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    截图布局管理：
+    - GET    /layouts         已注册的布局（含指纹）与自动识别缓存统计
+    - POST   /layouts         上传 JSON 布局，新增或替换同名布局；不合法时返回 400
+    - DELETE /layouts/{name}  删除布局（至少保留一个）
+    布局变更后自动识别缓存清空，自动识别的结果缓存条目随之失效。
+*/
+
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/layouts")
+public class LayoutController {
+
+    private final LayoutProfiles layouts;
+
+    public LayoutController(LayoutProfiles layouts) {
+        this.layouts = layouts;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("version", layouts.version());
+        out.put("layouts", layouts.all());
+        out.put("detection", layouts.stats());
+        return ResponseEntity.ok(out);
+    }
+
+    @PostMapping
+    public ResponseEntity<?> register(@RequestBody LayoutProfile profile) {
+        try {
+            return ResponseEntity.ok(layouts.register(profile));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<?> remove(@PathVariable String name) {
+        try {
+            if (!layouts.remove(name)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "布局不存在: " + name));
+            }
+            return ResponseEntity.ok(layouts.all());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    综合报告：一次上传得到暂态最大值、稳态峰值 / 有效值、频率，配对电流图时再加功率。
+    - 每张图只读取、解码一次，各相 ROI 一次提取四个接口所需平面的并集（特征缓存与单接口共用）
+    - 各相依次在同一份 RoiFeatures 上做暂态、稳态、频率（波形跟踪按区间缓存，稳态与频率共用），
+      有电流图时再与电流图同相特征算功率
+    - 依次调用 AnalyzerRegistry 中的全部分析器（与单接口同一实例），结果按分析器名称输出，结构沿用各接口的单相输出；
+      不适用的分析器（如没有电流图时的功率）不输出
+    - 参数：mode 不适用（主图按电压处理，电流图只用于功率）；trace、period、layout 与各接口相同
+    - /report/export?format=csv|xlsx：同样的分析，结果展开为表格（每个文件每相一行，见 export.ReportTable），
+      按完成先后逐个写出，服务端不保留已写出的结果
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.AnalyzerResult;
+import com.example.guowangwaveformimage.analyzer.PhaseInput;
+import com.example.guowangwaveformimage.analyzer.PhaseReport;
+import com.example.guowangwaveformimage.analyzer.PowerAnalyzer;
+import com.example.guowangwaveformimage.cache.AnalysisResultCache;
+import com.example.guowangwaveformimage.debug.DebugTrace;
+import com.example.guowangwaveformimage.debug.DebugTraces;
+import com.example.guowangwaveformimage.export.ExportFormat;
+import com.example.guowangwaveformimage.export.ReportTable;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.job.JobService;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RestController
+@RequestMapping("/report")
+public class ReportController {
+
+    // 布局未能确定前出错时按三相报告
+    private static final String[] NAMES = {"A", "B", "C"};
+    private static final String DECODE_FAILED = "图片解码失败";
+    // 导出表格的文件级列（与 FileReport 字段同名）
+    private static final List<String> EXPORT_COLUMNS = List.of("file", "currentFile", "layout");
+
+    private final AnalyzerRegistry analyzers;
+    private final AnalysisExecutor executor;
+    private final ImageDecoder decoder;
+    private final ImageFeatureLoader features;
+    private final AnalysisResultCache resultCache;
+    private final JobService jobs;
+    private final AnalysisMetrics metrics;
+    private final DebugTraces traces;
+    private final CalibrationStore calibrations;
+    private final ResultStreamer streamer;
+
+    public ReportController(AnalyzerRegistry analyzers, AnalysisExecutor executor, ImageDecoder decoder,
+                            ImageFeatureLoader features, AnalysisResultCache resultCache, JobService jobs,
+                            AnalysisMetrics metrics, DebugTraces traces, CalibrationStore calibrations,
+                            ResultStreamer streamer) {
+        this.analyzers = analyzers;
+        this.executor = executor;
+        this.decoder = decoder;
+        this.features = features;
+        this.resultCache = resultCache;
+        this.jobs = jobs;
+        this.metrics = metrics;
+        this.traces = traces;
+        this.calibrations = calibrations;
+        this.streamer = streamer;
+    }
+
+    /* ===== 输出结构（单相见 analyzer.PhaseReport） ===== */
+    public static class FileReport {
+        public String file;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String currentFile;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String layout;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String error;
+        public List<PhaseReport> phases = new ArrayList<>();
+    }
+
+    /** currentFiles 可选，给出时与 files 按顺序一一配对 */
+    @PostMapping("/upload")
+    public ResponseEntity<?> upload(@RequestParam("files") MultipartFile[] files,
+                                    @RequestParam(value = "currentFiles", required = false) MultipartFile[] currentFiles,
+                                    @RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                    @RequestParam(value = "period", defaultValue = "autocorr") PeriodMethod period,
+                                    @RequestParam(value = "trace", defaultValue = "pixel") TraceMode traceMode,
+                                    @RequestParam(value = "debug", defaultValue = "false") boolean debug) {
+        if (currentFiles != null && currentFiles.length > 0 && currentFiles.length != files.length) {
+            return ResponseEntity.badRequest().body("电流图数量需与图片数量一致（按顺序配对）");
+        }
+        MultipartFile[] cur = currentFiles != null && currentFiles.length > 0 ? currentFiles : null;
+        DebugTrace trace = traces.start("report", debug);
+        List<Integer> idx = IntStream.range(0, files.length).boxed().collect(Collectors.toList());
+        List<FileReport> out = executor.invokeAll(idx,
+                i -> analyzeOneFile(files[i], cur != null ? cur[i] : null, layout, period, traceMode, trace));
+        return DebugTraces.withHeader(ResponseEntity.ok(out), trace);
+    }
+
+    /** 表格导出（CSV / XLSX），currentFiles 同 /upload */
+    @PostMapping("/export")
+    public ResponseEntity<?> export(@RequestParam("files") MultipartFile[] files,
+                                    @RequestParam(value = "currentFiles", required = false) MultipartFile[] currentFiles,
+                                    @RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                    @RequestParam(value = "period", defaultValue = "autocorr") PeriodMethod period,
+                                    @RequestParam(value = "trace", defaultValue = "pixel") TraceMode traceMode,
+                                    @RequestParam(value = "format", defaultValue = "csv") ExportFormat format) {
+        if (currentFiles != null && currentFiles.length > 0 && currentFiles.length != files.length) {
+            return ResponseEntity.badRequest().body("电流图数量需与图片数量一致（按顺序配对）");
+        }
+        MultipartFile[] cur = currentFiles != null && currentFiles.length > 0 ? currentFiles : null;
+        ReportTable table = new ReportTable(EXPORT_COLUMNS, analyzers, List.of());
+        List<Integer> idx = IntStream.range(0, files.length).boxed().collect(Collectors.toList());
+        return streamer.table(format, "report", table.header(), idx,
+                i -> analyzeOneFile(files[i], cur != null ? cur[i] : null, layout, period, traceMode, DebugTrace.OFF),
+                (w, r) -> table.write(w, new Object[]{r.file, r.currentFile, r.layout}, r.error, r.phases));
+    }
+
+    /** 异步任务：立即返回任务 id，结果到 /jobs/{id}/results 轮询 */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("files") MultipartFile[] files,
+                                       @RequestParam(value = "currentFiles", required = false) MultipartFile[] currentFiles,
+                                       @RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                       @RequestParam(value = "period", defaultValue = "autocorr") PeriodMethod period,
+                                       @RequestParam(value = "trace", defaultValue = "pixel") TraceMode traceMode,
+                                       @RequestParam(value = "debug", defaultValue = "false") boolean debug) {
+        boolean paired = currentFiles != null && currentFiles.length > 0;
+        if (paired && currentFiles.length != files.length) {
+            return ResponseEntity.badRequest().body("电流图数量需与图片数量一致（按顺序配对）");
+        }
+        // 配对时按 主图, 电流图 交替暂存，任务条目为主图
+        List<MultipartFile> staged = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            staged.add(files[i]);
+            if (paired) staged.add(currentFiles[i]);
+        }
+        int step = paired ? 2 : 1;
+        DebugTrace trace = traces.start("report", debug);
+        return DebugTraces.withHeader(JobController.accepted(jobs.submit("report", JobController.fileNames(files), staged,
+                (fs, i) -> analyzeOneFile(fs.get(step * i), paired ? fs.get(step * i + 1) : null,
+                        layout, period, traceMode, trace))), trace);
+    }
+
+    /* ===== 单个文件（可选配对电流图） ===== */
+    private FileReport analyzeOneFile(MultipartFile file, MultipartFile currentFile, LayoutProfile forced,
+                                      PeriodMethod period, TraceMode traceMode, DebugTrace trace) {
+        FileReport r = new FileReport();
+        r.file = file.getOriginalFilename();
+        r.currentFile = currentFile != null ? currentFile.getOriginalFilename() : null;
+
+        long t0 = metrics.start();
+        try {
+            ImageDecoder.EncodedImage enc = decoder.read(file);
+            metrics.imageSize("report", enc.length());
+            String key;
+            if (currentFile == null) {
+                // 同一内容 + 同一布局 / 参数 / 标定版本的结果直接复用（调试追踪时重新分析，也不写回）
+                key = resultKey(enc, null, forced, period, traceMode);
+                LayoutProfile known = features.layouts().resolve(enc, forced);
+                if (fromCache(r, key, known, t0, trace)) return r;
+                try (ImageFeatureLoader.ImageFeatures img = features.open("report", enc, forced, analyzers.planes())) {
+                    r.layout = img.layout().getName();
+                    if (img.decodeFailed()) throw new IllegalStateException(DECODE_FAILED);
+                    r.phases.addAll(analyzePhases(img, null, period, traceMode, r.file, trace));
+                }
+            } else {
+                // 两张图共用线程读缓冲：主图读完立即 open（需要时解码），再读电流图
+                try (ImageFeatureLoader.ImageFeatures img = features.open("report", enc, forced, analyzers.planes())) {
+                    LayoutProfile layout = img.layout();
+                    ImageDecoder.EncodedImage iEnc = decoder.read(currentFile);
+                    metrics.imageSize("report", iEnc.length());
+                    key = resultKey(enc, iEnc, forced, period, traceMode);
+                    if (fromCache(r, key, layout, t0, trace)) return r;
+
+                    r.layout = layout.getName();
+                    if (img.decodeFailed()) throw new IllegalStateException(DECODE_FAILED);
+                    try (ImageFeatureLoader.ImageFeatures iImg = features.open("report", iEnc, forced, PowerAnalyzer.PLANES)) {
+                        if (iImg.decodeFailed()) throw new IllegalStateException("电流图" + DECODE_FAILED);
+                        LayoutProfile iLayout = iImg.layout();
+                        if (iLayout.names().length != layout.names().length) {
+                            throw new IllegalArgumentException("图片与电流图的相数不一致: "
+                                    + layout.getName() + " | " + iLayout.getName());
+                        }
+                        if (!iLayout.getName().equals(layout.getName())) r.layout = layout.getName() + " | " + iLayout.getName();
+                        r.phases.addAll(analyzePhases(img, iImg, period, traceMode, r.file, trace));
+                    }
+                }
+            }
+            boolean failed = false;
+            for (PhaseReport p : r.phases) {
+                for (AnalyzerResult a : p.getResults().values()) {
+                    metrics.error("report", a.error());
+                    failed |= a.error() != null;
+                }
+            }
+            // 出错的结果不缓存：布局、标定修正后（缓存键可能不变）须能重新分析
+            if (!trace.on() && !failed) resultCache.put(key, List.copyOf(r.phases));
+            metrics.file("report", t0, false);
+
+        } catch (Exception e) {
+            metrics.error("report", e);
+            r.error = e.getMessage();
+            for (String n : NAMES) r.phases.add(new PhaseReport(n));
+        }
+        return r;
+    }
+
+    /** 同一内容（对）+ 同一布局 / 参数 / 标定版本的结果缓存键 */
+    private String resultKey(ImageDecoder.EncodedImage enc, ImageDecoder.EncodedImage iEnc, LayoutProfile forced,
+                             PeriodMethod period, TraceMode traceMode) {
+        return AnalysisResultCache.key("report", enc.hash(), iEnc != null ? iEnc.hash() : "-",
+                features.layouts().cacheKey(forced), calibrations.version(), period, traceMode);
+    }
+
+    /** 命中结果缓存时填入 r 并返回 true（调试追踪时不查缓存） */
+    private boolean fromCache(FileReport r, String key, LayoutProfile layout, long t0, DebugTrace trace) {
+        List<PhaseReport> hit = trace.on() ? null : resultCache.get(key);
+        if (hit == null) return false;
+        r.layout = layout != null ? layout.getName() : null;
+        r.phases.addAll(hit);
+        metrics.file("report", t0, true);
+        return true;
+    }
+
+    /* ===== 各相：同一份特征上依次调用各分析器 ===== */
+    private List<PhaseReport> analyzePhases(ImageFeatureLoader.ImageFeatures img, ImageFeatureLoader.ImageFeatures iImg,
+                                            PeriodMethod period, TraceMode traceMode, String file, DebugTrace trace) {
+        LayoutProfile layout = img.layout();
+        LayoutProfile iLayout = iImg != null ? iImg.layout() : null;
+        String[] names = layout.names();
+        double voltPerSeg = calibrations.perSeg(layout, true);
+        double currPerSeg = iLayout != null ? calibrations.perSeg(iLayout, false) : 0;
+        // 各相并行（只读共享 img / iImg，全部完成后才会在离开作用域时释放）
+        return List.copyOf(executor.invokeAll(layout.indexes(), i -> {
+            PhaseInput in = PhaseInput.of(img.get(i), names[i])
+                    .perSeg(voltPerSeg).calibration(calibrations.slot(layout, i))
+                    .secondsPerGrid(layout.getSecondsPerGrid()).period(period).traceMode(traceMode);
+            if (iImg != null) {
+                in.paired(iImg.get(i)).pairedPerSeg(currPerSeg).pairedCalibration(calibrations.slot(iLayout, i));
+            }
+            // 各项的调试值分开记录（键名互不覆盖）
+            return analyzers.analyze(in, List.of(), a -> trace.phase(file, names[i] + "/" + a));
+        }));
+    }
+}
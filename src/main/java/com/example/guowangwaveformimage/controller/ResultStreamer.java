@@ -0,0 +1,120 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    批量接口的流式响应（?stream=ndjson|sse）：
+    - 每个文件一算完就写出一条 {"index":上传序号,"total":文件数,"result":{...}} 并 flush，不等整批结束
+    - 写出后不再持有结果，服务端内存与批量大小无关
+    - NDJSON：一行一条；SSE：event: result，全部结束后再发一条 event: done
+    - 客户端断开时写出失败，剩余未开始的文件不再分析
+    表格导出（format=csv|xlsx）同样按完成先后逐个写出，见 table()。
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.export.ExportFormat;
+import com.example.guowangwaveformimage.export.TableWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Component
+public class ResultStreamer {
+
+    public enum Format { NDJSON, SSE }
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AnalysisExecutor executor;
+    private final ObjectMapper mapper;
+
+    public ResultStreamer(AnalysisExecutor executor, ObjectMapper mapper) {
+        this.executor = executor;
+        this.mapper = mapper;
+    }
+
+    /** stream=sse 为 SSE，其余（ndjson / true / 空）为 NDJSON */
+    public static Format format(String stream) {
+        return "sse".equalsIgnoreCase(stream) ? Format.SSE : Format.NDJSON;
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Format format, List<T> items, Function<? super T, ?> fn) {
+        StreamingResponseBody body = out -> {
+            int total = items.size();
+            try {
+                executor.forEachCompleted(items, fn, (idx, result) -> {
+                    Map<String, Object> msg = new LinkedHashMap<>();
+                    msg.put("index", idx);
+                    msg.put("total", total);
+                    msg.put("result", result);
+                    write(out, format, "result", msg);
+                });
+                if (format == Format.SSE) write(out, format, "done", Map.of("total", total));
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // 客户端已断开
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format == Format.SSE ? MediaType.TEXT_EVENT_STREAM : NDJSON)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no") // 关闭 nginx 缓冲
+                .body(body);
+    }
+
+    /**
+     * 表格导出：先写表头，每个结果一完成就由 rows 写成若干行并 flush（CSV 随即送出，
+     * XLSX 超出窗口的行暂存磁盘、结束时整体送出）；name 为下载文件名（不含扩展名）
+     */
+    public <T, R> ResponseEntity<StreamingResponseBody> table(ExportFormat format, String name, List<String> header,
+                                                               List<T> items, Function<? super T, ? extends R> fn,
+                                                               TableWriter.Rows<? super R> rows) {
+        StreamingResponseBody body = out -> {
+            try (TableWriter w = format.open(out)) {
+                w.header(header);
+                executor.forEachCompleted(items, fn, (idx, result) -> {
+                    try {
+                        rows.write(w, result);
+                        w.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // 客户端已断开
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.extension() + "\"")
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    private void write(OutputStream out, Format format, String event, Object msg) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(msg);
+            if (format == Format.SSE) {
+                out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+                out.write(json);
+                out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write(json);
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    连续截图会话（同一段录波导出的相邻截图逐帧提交，逐周期输出，见 session.RecordingSession）：
+    - POST   /sessions                 创建：layout、trace、period、overlap（相邻帧重叠列数）、paired（每帧附电流图）、
+                                       voltageHue / currentHue（叠加截图的色相区间）；返回 201 + 会话概况
+    - POST   /sessions/{id}/frames     追加一帧：file（可选 currentFile、seq、overlap），返回本帧闭合的周期与滚动频率
+    - GET    /sessions/{id}            概况：已处理帧数、各相采样 / 周期数与汇总
+    - DELETE /sessions/{id}            结束会话，返回最终概况
+    帧须按时间顺序提交（同一会话的帧串行处理）；seq 与期望的帧序号不符时返回 409。
+*/
+
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.session.RecordingSession;
+import com.example.guowangwaveformimage.session.SessionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/sessions")
+public class SessionController {
+
+    private static final String ENDPOINT = "session";
+
+    private final SessionService sessions;
+    private final ImageDecoder decoder;
+    private final ImageFeatureLoader features;
+    private final AnalysisMetrics metrics;
+
+    public SessionController(SessionService sessions, ImageDecoder decoder, ImageFeatureLoader features,
+                             AnalysisMetrics metrics) {
+        this.sessions = sessions;
+        this.decoder = decoder;
+        this.features = features;
+        this.metrics = metrics;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                    @RequestParam(value = "trace", defaultValue = "pixel") TraceMode traceMode,
+                                    @RequestParam(value = "period", defaultValue = "autocorr") PeriodMethod period,
+                                    @RequestParam(value = "overlap", defaultValue = "0") int overlap,
+                                    @RequestParam(value = "paired", defaultValue = "false") boolean paired,
+                                    @RequestParam(value = "voltageHue", required = false) HueRange voltageHue,
+                                    @RequestParam(value = "currentHue", required = false) HueRange currentHue) {
+        RecordingSession s;
+        try {
+            s = sessions.create(layout, traceMode, period, overlap, paired, voltageHue, currentHue);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.created(URI.create("/sessions/" + s.id())).body(s.summary());
+    }
+
+    @PostMapping("/{id}/frames")
+    public ResponseEntity<?> frame(@PathVariable String id,
+                                   @RequestParam("file") MultipartFile file,
+                                   @RequestParam(value = "currentFile", required = false) MultipartFile currentFile,
+                                   @RequestParam(value = "seq", required = false) Long seq,
+                                   @RequestParam(value = "overlap", required = false) Integer overlap) throws IOException {
+        RecordingSession s = sessions.get(id).orElse(null);
+        if (s == null) return notFound(id);
+        ImageDecoder.EncodedImage enc = decoder.read(file);
+        metrics.imageSize(ENDPOINT, enc.length());
+        RecordingSession.FrameResult r;
+        try {
+            // 读取与 open 在同一线程（EncodedImage 的要求）：append 在当前线程上调用这两个函数；
+            // 两张图共用线程读缓冲，电流图在电压图 open（需要时解码）之后才读取
+            r = s.append(file.getOriginalFilename(), currentFile != null ? currentFile.getOriginalFilename() : null,
+                    seq, overlap,
+                    layout -> features.open(ENDPOINT, enc, layout, RecordingSession.PLANES),
+                    currentFile == null ? null : layout -> features.open(ENDPOINT, readCurrent(currentFile), layout,
+                            RecordingSession.PLANES));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        sessions.touch(s);
+        return ResponseEntity.ok(r);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> summary(@PathVariable String id) {
+        return sessions.get(id).<ResponseEntity<?>>map(s -> ResponseEntity.ok(s.summary()))
+                .orElseGet(() -> notFound(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> close(@PathVariable String id) {
+        return sessions.remove(id).<ResponseEntity<?>>map(s -> ResponseEntity.ok(s.summary()))
+                .orElseGet(() -> notFound(id));
+    }
+
+    private ImageDecoder.EncodedImage readCurrent(MultipartFile currentFile) {
+        try {
+            ImageDecoder.EncodedImage iEnc = decoder.read(currentFile);
+            metrics.imageSize(ENDPOINT, iEnc.length());
+            return iEnc;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ResponseEntity<?> notFound(String id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "会话不存在或已过期: " + id));
+    }
+}
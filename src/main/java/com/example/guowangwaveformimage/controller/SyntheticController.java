@@ -0,0 +1,73 @@
+package com.example.guowangwaveformimage.controller;
+
+/*
+    合成截图与真值（analysis.synthetic.enabled=true 时才注册）：
+    - GET /synthetic/image  按种子生成三相截图（PNG），同一组参数总是得到同一张图
+    - GET /synthetic/truth  同一组参数的真值：频率 / 周期、稳态峰值与 RMS、ROI 内最大 / 最小值
+    - GET /synthetic/power  电压图(seed) + 电流图(currentSeed) 的逐相功率真值
+    参数：seed、mode=voltage|current、transients（起始暂态）、noise（噪声占每段物理量的比例）、width/height（画布，按最小 / 最大尺寸截断）
+*/
+
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/synthetic")
+@ConditionalOnProperty(prefix = "analysis.synthetic", name = "enabled", havingValue = "true")
+public class SyntheticController {
+
+    static {
+        Loader.load(opencv_java.class);
+    }
+
+    @GetMapping(value = "/image", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> image(@RequestParam(value = "seed", defaultValue = "1") long seed,
+                                        @RequestParam(value = "mode", defaultValue = "voltage") String mode,
+                                        @RequestParam(value = "transients", defaultValue = "false") boolean transients,
+                                        @RequestParam(value = "noise", defaultValue = "0") double noise,
+                                        @RequestParam(value = "width", defaultValue = "1920") int width,
+                                        @RequestParam(value = "height", defaultValue = "1080") int height) {
+        ScopeImageGenerator.Spec spec = spec(seed, mode, transients, noise);
+        spec.width = Math.max(ScopeImageGenerator.MIN_WIDTH, Math.min(8192, width));
+        spec.height = Math.max(ScopeImageGenerator.MIN_HEIGHT, Math.min(8192, height));
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "inline; filename=\"synthetic-" + mode + "-" + seed + ".png\"")
+                .body(ScopeImageGenerator.png(spec));
+    }
+
+    @GetMapping("/truth")
+    public ResponseEntity<?> truth(@RequestParam(value = "seed", defaultValue = "1") long seed,
+                                   @RequestParam(value = "mode", defaultValue = "voltage") String mode,
+                                   @RequestParam(value = "transients", defaultValue = "false") boolean transients,
+                                   @RequestParam(value = "noise", defaultValue = "0") double noise) {
+        return ResponseEntity.ok(ScopeImageGenerator.truth(spec(seed, mode, transients, noise)));
+    }
+
+    @GetMapping("/power")
+    public ResponseEntity<?> power(@RequestParam(value = "seed", defaultValue = "1") long seed,
+                                   @RequestParam(value = "currentSeed", defaultValue = "2") long currentSeed,
+                                   @RequestParam(value = "transients", defaultValue = "false") boolean transients,
+                                   @RequestParam(value = "noise", defaultValue = "0") double noise) {
+        ScopeImageGenerator.Spec v = spec(seed, "voltage", transients, noise);
+        ScopeImageGenerator.Spec c = spec(currentSeed, "current", transients, noise);
+        List<ScopeImageGenerator.PowerTruth> out = new ArrayList<>();
+        for (int i = 0; i < 3; i++) out.add(ScopeImageGenerator.power(v, c, i));
+        return ResponseEntity.ok(out);
+    }
+
+    private static ScopeImageGenerator.Spec spec(long seed, String mode, boolean transients, double noise) {
+        return ScopeImageGenerator.Spec.random(seed, "current".equalsIgnoreCase(mode), transients,
+                Math.max(0, Math.min(1, noise)));
+    }
+}
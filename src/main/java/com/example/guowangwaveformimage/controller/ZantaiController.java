@@ -1,11 +1,22 @@
 package com.example.guowangwaveformimage.controller;
 
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analyzer.PhaseInput;
+import com.example.guowangwaveformimage.analyzer.TransientAnalyzer;
+import com.example.guowangwaveformimage.analyzer.TransientResult;
+import com.example.guowangwaveformimage.cache.AnalysisResultCache;
+import com.example.guowangwaveformimage.debug.DebugTrace;
+import com.example.guowangwaveformimage.debug.DebugTraces;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.job.JobService;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
 import org.bytedeco.javacpp.Loader;
 import org.bytedeco.opencv.opencv_java;
-import org.opencv.core.Mat;
-import org.opencv.core.MatOfByte;
-import org.opencv.core.Rect;
-import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -13,12 +24,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.util.*;
 
 @RestController
 @RequestMapping("/zantai")
 public class ZantaiController {
+
+    private static final Logger log = LoggerFactory.getLogger(ZantaiController.class);
+
     static {
         try {
             // 让 JavaCPP 自动解包并加载正确的本地库
@@ -31,221 +44,129 @@ public class ZantaiController {
         }
     }
 
+    // 各相裁剪区域与每段物理量来自布局（analysis.layouts），按图片识别或由 ?layout= 指定
+
+    private static final String DECODE_FAILED = "图片解码失败";
+
+    private final AnalysisExecutor executor;
+    private final ImageDecoder decoder;
+    private final ImageFeatureLoader features;
+    private final AnalysisResultCache resultCache;
+    private final JobService jobs;
+    private final AnalysisMetrics metrics;
+    private final DebugTraces traces;
+    private final CalibrationStore calibrations;
+    private final TransientAnalyzer analyzer;
+
+    public ZantaiController(AnalysisExecutor executor, ImageDecoder decoder,
+                            ImageFeatureLoader features, AnalysisResultCache resultCache, JobService jobs,
+                            AnalysisMetrics metrics, DebugTraces traces, CalibrationStore calibrations,
+                            TransientAnalyzer analyzer) {
+        this.executor = executor;
+        this.decoder = decoder;
+        this.features = features;
+        this.resultCache = resultCache;
+        this.jobs = jobs;
+        this.metrics = metrics;
+        this.traces = traces;
+        this.calibrations = calibrations;
+        this.analyzer = analyzer;
+    }
 
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadImages(@RequestParam("files") MultipartFile[] files,@RequestParam(value="mode", defaultValue="voltage") String mode) {
+    public ResponseEntity<?> uploadImages(@RequestParam("files") MultipartFile[] files,@RequestParam(value="mode", defaultValue="voltage") String mode,
+                                          @RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                          @RequestParam(value = "debug", defaultValue = "false") boolean debug) {
 
-        // ★改动：根据模式选择每段物理量（电压=200000，电流=500）
-        final double perSegmentValue = "current".equalsIgnoreCase(mode) ? 500.0 : 200000.0;
+        // ★改动：根据模式选择每段物理量（取自布局：电压默认 200000，电流默认 500）
+        final boolean isVoltage = !"current".equalsIgnoreCase(mode);
 
+        // 多文件并行分析，结果按上传顺序返回；失败的文件跳过
+        DebugTrace trace = traces.start("zantai", debug);
         List<Map<String, Object>> allResults = new ArrayList<>();
-
-        for (MultipartFile file : files) {
-            try {
-                // 1. 读取为 OpenCV Mat
-                InputStream in = file.getInputStream();
-                byte[] bytes = in.readAllBytes();
-                Mat img = Imgcodecs.imdecode(new MatOfByte(bytes), Imgcodecs.IMREAD_COLOR);
-
-                // 2. 获取尺寸
-                int width = img.width();
-                int height = img.height();
-                System.out.println("--------------------------------------------------");
-                System.out.println("图片尺寸: " + width + "x" + height);
-
-                // 3.裁剪区域（直接内存裁剪三相）
-                Rect rect1 = new Rect(55, 56, 1400, 310);
-                Rect rect2 = new Rect(55, 370, 1400, 310);
-                Rect rect3 = new Rect(55, 683, 1400, 310);
-
-                Mat img1 = new Mat(img, rect1);
-                Mat img2 = new Mat(img, rect2);
-                Mat img3 = new Mat(img, rect3);
-
-                String baseName = file.getOriginalFilename();
-                if (baseName == null) baseName = "unknown";
-                baseName = baseName.replaceAll("\\.[^.]+$", "");
-
-                String[] names = {"A", "B", "C"};
-                Mat[] images = {img1, img2, img3};
-                List<Map<String, Object>> phaseResults = new ArrayList<>();
-                for (int i = 0; i < 3; i++) {
-                    // ★改动：把 perSegmentValue 传入
-                    Map<String, Object> r = analyzePhase(images[i], names[i], perSegmentValue);
-                    phaseResults.add(r);
-                    // 控制台输出
-                    System.out.println("文件 " + baseName + " 相" + names[i] +
-                            "：最大值=" + r.get("value") + ", 最高点y=" + r.get("wave_top_y"));
-                }
-
-                Map<String, Object> fileResult = new LinkedHashMap<>();
-                fileResult.put("file", file.getOriginalFilename());
-                fileResult.put("phases", phaseResults);
-                allResults.add(fileResult);
-
-            } catch (Exception e) {
-                System.out.println("处理图片异常: " + e.getMessage());
-            }
+        for (Map<String, Object> r : executor.invokeAll(Arrays.asList(files), f -> analyzeOneFile(f, isVoltage, layout, trace))) {
+            if (r != null) allResults.add(r);
         }
         // 只返回结果结构
-        return ResponseEntity.ok(allResults);
-    }
-
-    public Map<String, Object> analyzePhase(Mat part, String phaseName, double perSegmentValue) {
-        // 检测三条黑实线
-        List<Integer> lineY = detectHorizontalBlackLines(part, 0.6);
-        if (lineY.size() < 3) {
-            System.out.println("相" + phaseName + "：检测到的黑实线不足3条，实际行y=" + lineY);
-            return Map.of("phase", phaseName, "error", "检测到的黑实线不足3条", "lines", lineY);
-        }
-        Collections.sort(lineY);
-        int y1 = lineY.get(0), y2 = lineY.get(lineY.size() / 2), y3 = lineY.get(lineY.size() - 1);
-
-        // 检测所有“虚线”y
-        List<Integer> dashLines = detectHorizontalDashLines(part, 400, 800);
-        Collections.sort(dashLines);
-
-        // 只在y1~y3之间检测彩色波形最高点
-        int waveTopY = findWaveformTopY(part, y1, y3);
-        boolean isUp = waveTopY < y2;
-
-        double value = calcMaxValueByDashes(y2, dashLines, waveTopY, isUp, perSegmentValue);
-
-        return Map.of(
-                "phase", phaseName,
-                "wave_top_y", waveTopY,
-                "value", value
-        );
-    }
-
-    public List<Integer> detectHorizontalBlackLines(Mat img, double totalRunRatio) {
-        List<Integer> lines = new ArrayList<>();
-        int minTotalRun = (int) (img.cols() * totalRunRatio);
-        for (int y = 0; y < img.rows(); y++) {
-            int totalRun = 0, currRun = 0;
-            for (int x = img.cols() - 1; x >= 0; x--) {
-                double[] color = img.get(y, x);
-                if (isBlack(color)) {
-                    currRun++;
-                } else {
-                    totalRun += currRun;
-                    currRun = 0;
-                }
-            }
-            totalRun += currRun;
-            if (totalRun > minTotalRun) lines.add(y);
-        }
-        List<Integer> uniq = new ArrayList<>();
-        int last = -1000;
-        for (int y : lines) {
-            if (y - last > 10) uniq.add(y);
-            last = y;
-        }
-        return uniq;
+        return DebugTraces.withHeader(ResponseEntity.ok(allResults), trace);
     }
 
-    public boolean isBlack(double[] color) {
-        return color[0] < 150 && color[1] < 150 && color[2] < 150;
+    /** 异步任务：立即返回任务 id，结果到 /jobs/{id}/results 轮询（处理失败的文件记为 ERROR） */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("files") MultipartFile[] files,
+                                       @RequestParam(value = "mode", defaultValue = "voltage") String mode,
+                                       @RequestParam(value = "layout", required = false) LayoutProfile layout,
+                                       @RequestParam(value = "debug", defaultValue = "false") boolean debug) {
+        final boolean isVoltage = !"current".equalsIgnoreCase(mode);
+        DebugTrace trace = traces.start("zantai", debug);
+        return DebugTraces.withHeader(JobController.accepted(jobs.submit("zantai", JobController.fileNames(files), Arrays.asList(files),
+                (fs, i) -> analyzeOneFile(fs.get(i), isVoltage, layout, trace))), trace);
     }
 
-    // 只在实线y1~y3之间找“最靠上”且有彩色像素的那一行y
-    public int findWaveformTopY(Mat img, int y1, int y3) {
-        for (int y = y1 + 1; y < y3; y++) {
-            for (int x = 0; x < img.cols(); x++) {
-                double[] color = img.get(y, x);
-                if (isColorful(color) && !isBlack(color)) {
-                    return y;
+    private Map<String, Object> analyzeOneFile(MultipartFile file, boolean isVoltage, LayoutProfile forced, DebugTrace trace) {
+        long t0 = metrics.start();
+        try {
+            // 1. 流式读入复用缓冲；同一内容 + 同一布局 + 同一刻度 / 标定版本的结果直接复用（调试追踪时重新分析，也不写回）
+            ImageDecoder.EncodedImage enc = decoder.read(file);
+            metrics.imageSize("zantai", enc.length());
+            String key = AnalysisResultCache.key("zantai", enc.hash(), features.layouts().cacheKey(forced),
+                    calibrations.version(), isVoltage);
+            List<TransientResult> phaseResults = trace.on() ? null : resultCache.get(key);
+            boolean hit = phaseResults != null;
+            if (!hit) {
+                phaseResults = analyzeEncoded(file, enc, isVoltage, forced, trace);
+                boolean failed = false;
+                for (TransientResult p : phaseResults) {
+                    metrics.error("zantai", p.error);
+                    failed |= p.error != null;
                 }
+                // 出错的结果不缓存：布局、标定修正后（缓存键可能不变）须能重新分析
+                if (!trace.on() && !failed) resultCache.put(key, phaseResults);
             }
+            metrics.file("zantai", t0, hit);
+
+            // 分析过的图片识别结果已按内容缓存，这里不会再次识别
+            LayoutProfile layout = features.layouts().resolve(enc, forced);
+            Map<String, Object> fileResult = new LinkedHashMap<>();
+            fileResult.put("file", file.getOriginalFilename());
+            if (layout != null) fileResult.put("layout", layout.getName());
+            fileResult.put("phases", phaseResults);
+            return fileResult;
+
+        } catch (Exception e) {
+            // 解码失败按原因计数，其余异常按异常类名
+            if (DECODE_FAILED.equals(e.getMessage())) metrics.error("zantai", DECODE_FAILED);
+            else metrics.error("zantai", e);
+            log.warn("处理图片异常: {} {}", file.getOriginalFilename(), e.getMessage());
+            return null;
         }
-        return y3;
     }
 
-    public boolean isColorful(double[] color) {
-        double max = Math.max(color[0], Math.max(color[1], color[2]));
-        double min = Math.min(color[0], Math.min(color[1], color[2]));
-        return (max - min) > 40 && max > 80;
-    }
-
-    public List<Integer> detectHorizontalDashLines(Mat img, int minTotal, int maxTotal) {
-        List<Integer> lines = new ArrayList<>();
-        for (int y = 0; y < img.rows(); y++) {
-            int total = 0, curr = 0;
-            for (int x = 0; x < img.cols(); x++) {
-                double[] color = img.get(y, x);
-                if (isBlack(color)) {
-                    curr++;
-                } else {
-                    total += curr;
-                    curr = 0;
-                }
+    private List<TransientResult> analyzeEncoded(MultipartFile file, ImageDecoder.EncodedImage enc,
+                                                 boolean isVoltage, LayoutProfile forced, DebugTrace trace) {
+        try (ImageFeatureLoader.ImageFeatures img = features.open("zantai", enc, forced, analyzer.planes())) {
+            if (img.decodeFailed()) throw new IllegalStateException(DECODE_FAILED);
+            LayoutProfile layout = img.layout();
+            String[] names = layout.names();
+            // 每段物理量取标定覆盖值（没有时为布局自带）；暂态的虚线检测口径不同，不使用保存的虚线
+            double perSegmentValue = calibrations.perSeg(layout, isVoltage);
+
+            // 2. 获取尺寸（ROI 特征全部命中缓存时不解码）
+            String name = file.getOriginalFilename();
+            if (log.isDebugEnabled() && img.decoded()) {
+                log.debug("文件 {} 图片尺寸: {}x{}", name, img.image().width(), img.image().height());
             }
-            total += curr;
-            if (total >= minTotal && total < maxTotal) lines.add(y);
-        }
-        List<Integer> uniq = new ArrayList<>();
-        int last = -100;
-        for (int y : lines) {
-            if (y - last > 8) uniq.add(y);
-            last = y;
-        }
-        return uniq;
-    }
 
-    /**
-     * 计算最大值，基于0轴（中间实线）、所有虚线（升序）、波形最高点
-     */
-    public double calcMaxValueByDashes(int y2, List<Integer> dashLines, int waveTopY, boolean isUp,double perSegmentValue) {
-        // 0轴和虚线全部合到一起，排序
-        List<Integer> allY = new ArrayList<>(dashLines);
-        allY.add(y2);
-        Collections.sort(allY);
-
-        if (isUp) {
-            List<Integer> up = new ArrayList<>();
-            for (int y : allY) if (y < y2) up.add(y);
-            Collections.sort(up, Collections.reverseOrder());
-
-            int prev = y2;
-            int section = 0;
-            for (int y : up) {
-                if (waveTopY <= y) {
-                    double ratio = (prev - waveTopY) * 1.0 / (prev - y);
-                    return section * perSegmentValue + ratio * perSegmentValue;
-                }
-                prev = y;
-                section++;
-            }
-            // 超出最上面一段
-            if (!up.isEmpty()) {
-                double ratio = (prev - waveTopY) * 1.0 / (prev - up.get(up.size() - 1));
-                return section * perSegmentValue + ratio * perSegmentValue;
-            } else {
-                return (y2 - waveTopY) * perSegmentValue / (y2 - 0+1e-9); // 没虚线就兜底
-            }
-        } else {
-            List<Integer> down = new ArrayList<>();
-            for (int y : allY) if (y > y2) down.add(y);
-            Collections.sort(down);
-
-            int prev = y2;
-            int section = 0;
-            for (int y : down) {
-                if (waveTopY >= y) {
-                    double ratio = (waveTopY - prev) * 1.0 / (y - prev);
-                    return -(section * perSegmentValue + ratio * perSegmentValue);
+            // 3. 各相并行：各自裁剪 ROI 并分析
+            return List.copyOf(executor.invokeAll(layout.indexes(), i -> {
+                // ★改动：把 perSegmentValue 传入
+                TransientResult r = analyzer.analyze(PhaseInput.of(img.get(i), names[i])
+                        .perSeg(perSegmentValue).debug(trace.phase(name, names[i])));
+                if (log.isDebugEnabled()) {
+                    log.debug("文件 {} 相{}：最大值={}, 最高点y={}", name, names[i], r.value, r.wave_top_y);
                 }
-                prev = y;
-                section++;
-            }
-            // 超出最下面一段
-            if (!down.isEmpty()) {
-                double ratio = (waveTopY - prev) * 1.0 / (down.get(down.size() - 1) - prev);
-                return -(section * perSegmentValue + ratio * perSegmentValue);
-            } else {
-                return -(waveTopY - y2) * perSegmentValue / (300.0); // 兜底，假设最下面实线与0轴相距300像素
-            }
+                return r;
+            }));
         }
     }
-
 }
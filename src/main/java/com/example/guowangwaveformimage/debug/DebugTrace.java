@@ -0,0 +1,60 @@
+package com.example.guowangwaveformimage.debug;
+
+/*
+    一次请求的调试追踪：各文件各相的 PhaseDebug 汇总，由 DebugTraces 保存并按 id 下载。
+    关闭时为共享的 OFF，phase() 直接返回 PhaseDebug.OFF。
+*/
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class DebugTrace {
+
+    /** 关闭状态（共享实例） */
+    public static final DebugTrace OFF = new DebugTrace(null, null);
+
+    private final String id;
+    private final String endpoint;
+    private final Instant createdAt;
+    private final List<PhaseDebug> phases;
+
+    DebugTrace(String id, String endpoint) {
+        this.id = id;
+        this.endpoint = endpoint;
+        this.createdAt = id == null ? null : Instant.now();
+        this.phases = id == null ? List.of() : new ArrayList<>();
+    }
+
+    public boolean on() { return id != null; }
+    public String id() { return id; }
+    public String endpoint() { return endpoint; }
+    public Instant createdAt() { return createdAt; }
+
+    /** 某文件某一相的调试记录（可在各相任务中并发调用） */
+    public PhaseDebug phase(String file, String phase) {
+        if (id == null) return PhaseDebug.OFF;
+        PhaseDebug d = new PhaseDebug(file, phase, true);
+        synchronized (phases) { phases.add(d); }
+        return d;
+    }
+
+    /** 下载内容 */
+    public static class Artifact {
+        public String id;
+        public String endpoint;
+        public String createdAt;
+        public List<PhaseDebug.Entry> phases = new ArrayList<>();
+    }
+
+    public Artifact artifact() {
+        Artifact a = new Artifact();
+        a.id = id;
+        a.endpoint = endpoint;
+        a.createdAt = createdAt == null ? null : createdAt.toString();
+        synchronized (phases) {
+            for (PhaseDebug d : phases) a.phases.add(d.entry());
+        }
+        return a;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.guowangwaveformimage.debug;
+
+/*
+    调试追踪的开关与保存：
+    - 请求带 debug=true，或日志器 com.example.guowangwaveformimage.debug 为 DEBUG 级别
+      （可经 POST /actuator/loggers/com.example.guowangwaveformimage.debug 在线调整）时开启
+    - 开启的追踪按 id 保存在有界 LRU 中（analysis.debug.*），响应头 X-Debug-Trace 给出 id
+    - 其余情况返回 DebugTrace.OFF，不分配任何东西
+*/
+
+import com.example.guowangwaveformimage.cache.LruCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@Component
+public class DebugTraces {
+
+    public static final String LOGGER = "com.example.guowangwaveformimage.debug";
+    public static final String HEADER = "X-Debug-Trace";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER);
+
+    private final LruCache<String, DebugTrace> store;
+
+    public DebugTraces(AnalysisProperties props) {
+        AnalysisProperties.Debug cfg = props.getDebug();
+        this.store = new LruCache<>(cfg.getMaxTraces(), cfg.getTtl());
+    }
+
+    /** requested 为请求参数 debug；日志器开启 DEBUG 时所有请求都追踪 */
+    public DebugTrace start(String endpoint, boolean requested) {
+        if (!requested && !log.isDebugEnabled()) return DebugTrace.OFF;
+        DebugTrace t = new DebugTrace(UUID.randomUUID().toString(), endpoint);
+        store.put(t.id(), t);
+        if (log.isDebugEnabled()) log.debug("{} 调试追踪 {}", endpoint, t.id());
+        return t;
+    }
+
+    public DebugTrace get(String id) {
+        return store.get(id);
+    }
+
+    public LruCache.Stats stats() { return store.stats(); }
+
+    /** 追踪开启时在响应上带上追踪 id */
+    public static <T> ResponseEntity<T> withHeader(ResponseEntity<T> resp, DebugTrace trace) {
+        if (!trace.on()) return resp;
+        return ResponseEntity.status(resp.getStatusCode())
+                .headers(resp.getHeaders())
+                .header(HEADER, trace.id())
+                .body(resp.getBody());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.guowangwaveformimage.debug;
+
+/*
+    单个文件单相的调试记录：
+    - values：标量与短列表（实线位置、窗口起点、样本数……），作为该相结果的 debug 字段返回
+    - arrays：中间数组（波形跟踪、稳态窗口、映射后的序列……），只进追踪产物，不进响应
+    关闭时所有相共用 OFF：写入方法第一行即返回。调用方在需要装箱 / 拼列表时先判断 on()。
+*/
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class PhaseDebug {
+
+    /** 关闭状态（共享实例，不记录任何内容） */
+    public static final PhaseDebug OFF = new PhaseDebug(null, null, false);
+
+    private final String file;
+    private final String phase;
+    private final Map<String, Object> values;
+    private final Map<String, Object> arrays;
+
+    PhaseDebug(String file, String phase, boolean on) {
+        this.file = file;
+        this.phase = phase;
+        this.values = on ? new LinkedHashMap<>() : null;
+        this.arrays = on ? new LinkedHashMap<>() : null;
+    }
+
+    public boolean on() { return values != null; }
+
+    public void put(String key, Object value) {
+        if (values == null) return;
+        synchronized (this) { values.put(key, value); }
+    }
+
+    /** 记录中间数组（按引用保存，调用方之后不得再修改） */
+    public void array(String key, Object array) {
+        if (arrays == null) return;
+        synchronized (this) { arrays.put(key, array); }
+    }
+
+    /** 结果里的 debug 字段；关闭时为 null（不输出） */
+    public Map<String, Object> values() { return values; }
+
+    /** 追踪产物中的一项 */
+    public static class Entry {
+        public String file;
+        public String phase;
+        public Map<String, Object> values;
+        public Map<String, Object> arrays;
+    }
+
+    synchronized Entry entry() {
+        Entry e = new Entry();
+        e.file = file;
+        e.phase = phase;
+        e.values = new LinkedHashMap<>(values);
+        e.arrays = new LinkedHashMap<>(arrays);
+        return e;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.guowangwaveformimage.export;
+
+/*
+    CSV 表格：逗号分隔、CRLF 换行，含逗号 / 引号 / 换行的字段加引号并双写引号（RFC 4180）。
+    表头前写 UTF-8 BOM；追加到已有文件时不调用 header()，也就不会重复写 BOM。
+    数值按十进制写出（不用科学计数法），便于各种分析工具直接识别。
+*/
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.List;
+
+public class CsvTableWriter implements TableWriter {
+
+    private static final char BOM = '\uFEFF';
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public CsvTableWriter(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+    }
+
+    @Override
+    public void header(List<String> names) throws IOException {
+        out.write(BOM);
+        row(names.toArray());
+    }
+
+    @Override
+    public void row(Object[] cells) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) line.append(',');
+            append(cells[i]);
+        }
+        line.append("\r\n");
+        out.append(line);
+    }
+
+    private void append(Object v) {
+        if (v == null) return;
+        if (v instanceof Double || v instanceof Float) {
+            double d = ((Number) v).doubleValue();
+            if (Double.isFinite(d)) line.append(BigDecimal.valueOf(d).stripTrailingZeros().toPlainString());
+            return;
+        }
+        if (v instanceof Number) {
+            line.append(v);
+            return;
+        }
+        String s = v.toString();
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(s);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') line.append('"');
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
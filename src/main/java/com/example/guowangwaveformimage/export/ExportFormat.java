@@ -0,0 +1,45 @@
+package com.example.guowangwaveformimage.export;
+
+/*
+    导出表格格式（请求参数 format=csv|xlsx）：
+    - csv ：UTF-8（带 BOM，Excel 直接打开不乱码），RFC 4180 引号转义，逐行写出
+    - xlsx：POI SXSSF 流式工作簿，内存中只保留最近 window 行，其余暂存磁盘，结束时整体写出
+*/
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+public enum ExportFormat {
+
+    CSV("text/csv;charset=UTF-8", "csv"),
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() { return contentType; }
+    public String extension() { return extension; }
+
+    /** 在 out 上开始一张表；关闭 TableWriter 时写完表格，但不关闭 out */
+    public TableWriter open(OutputStream out) {
+        return this == XLSX ? new XlsxTableWriter(out)
+                : new CsvTableWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /** 不区分大小写；未知名称抛 IllegalArgumentException */
+    public static ExportFormat of(String name) {
+        if (name == null || name.isBlank()) return CSV;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的导出格式: " + name + "（可选 csv / xlsx）");
+        }
+    }
+}
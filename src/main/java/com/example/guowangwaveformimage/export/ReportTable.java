@@ -0,0 +1,72 @@
+package com.example.guowangwaveformimage.export;
+
+/*
+    把综合报告 / 目录导入的结果展开成表格（每个文件每相一行）：
+    - 列：调用方给出的文件级列（文件名、布局……）、phase、各分析器的 名称.列名 与 名称.error、文件级 error
+    - 分析器的列由 Analyzer.columns() 声明，新增分析器无需改动这里
+    - 某相没有某分析器的结果（不适用或文件出错）时这些列为空
+    - 文件出错且没有相时仍写一行，phase 为空
+*/
+
+import com.example.guowangwaveformimage.analyzer.Analyzer;
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.AnalyzerResult;
+import com.example.guowangwaveformimage.analyzer.PhaseReport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class ReportTable {
+
+    private final int leading;
+    private final List<Analyzer<?>> analyzers = new ArrayList<>();
+    private final List<List<? extends Analyzer.Column<?>>> columns = new ArrayList<>();
+    private final List<String> header = new ArrayList<>();
+
+    /** names 为空时全部已注册的分析器（按注册顺序） */
+    public ReportTable(List<String> leading, AnalyzerRegistry registry, Collection<String> names) {
+        this.leading = leading.size();
+        header.addAll(leading);
+        header.add("phase");
+        for (Analyzer<?> a : registry.all()) {
+            if (!names.isEmpty() && !names.contains(a.name())) continue;
+            analyzers.add(a);
+            columns.add(a.columns());
+            for (Analyzer.Column<?> c : a.columns()) header.add(a.name() + "." + c.name());
+            header.add(a.name() + ".error");
+        }
+        header.add("error");
+    }
+
+    public List<String> header() {
+        return List.copyOf(header);
+    }
+
+    /** 写出一个文件的行；lead 与构造时的文件级列一一对应 */
+    public void write(TableWriter w, Object[] lead, String error, List<PhaseReport> phases) throws IOException {
+        if (lead.length != leading) {
+            throw new IllegalArgumentException("文件级列数不一致: " + lead.length + " != " + leading);
+        }
+        if (phases.isEmpty()) {
+            w.row(row(lead, null, error));
+            return;
+        }
+        for (PhaseReport p : phases) w.row(row(lead, p, error));
+    }
+
+    private Object[] row(Object[] lead, PhaseReport p, String error) {
+        Object[] cells = new Object[header.size()];
+        System.arraycopy(lead, 0, cells, 0, leading);
+        int k = leading;
+        cells[k++] = p != null ? p.phase : null;
+        for (int i = 0; i < analyzers.size(); i++) {
+            AnalyzerResult r = p != null ? p.getResults().get(analyzers.get(i).name()) : null;
+            for (Analyzer.Column<?> c : columns.get(i)) cells[k++] = r != null ? c.value(r) : null;
+            cells[k++] = r != null ? r.error() : null;
+        }
+        cells[k] = error;
+        return cells;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.guowangwaveformimage.export;
+
+/*
+    逐行写出的表格：先 header() 一次，再任意多次 row()；写出的行不再持有，内存与行数无关。
+    单线程使用。close() 写完表格（XLSX 在此时整体输出），不关闭底层输出流。
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+public interface TableWriter extends Closeable {
+
+    void header(List<String> names) throws IOException;
+
+    /** 单元格：Number 写为数值（NaN / 无穷写为空），null 写为空，其余按 toString() 写为文本 */
+    void row(Object[] cells) throws IOException;
+
+    /** 已写的行交给下游（CSV 立即送出；XLSX 只能在 close 时整体输出，这里不做事） */
+    void flush() throws IOException;
+
+    /** 把一个结果写成若干行 */
+    @FunctionalInterface
+    interface Rows<R> {
+        void write(TableWriter w, R result) throws IOException;
+    }
+}
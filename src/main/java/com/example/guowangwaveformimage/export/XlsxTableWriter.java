@@ -0,0 +1,100 @@
+package com.example.guowangwaveformimage.export;
+
+/*
+    XLSX 表格（POI SXSSF）：
+    - 内存中只保留最近 WINDOW 行，更早的行压缩后暂存到临时文件，内存与行数无关
+    - xlsx 是 zip，只能在 close() 时整体写出；临时文件随之删除
+    - 单表行数到上限（1048576）后换新表继续，表头重复
+    - 数值写为数值单元格，文本超过单元格上限（32767 字符）时截断
+*/
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public class XlsxTableWriter implements TableWriter {
+
+    static final int WINDOW = 100;
+    private static final String SHEET = "results";
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final int MAX_TEXT = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final int maxRows;
+    private List<String> header = List.of();
+    private SXSSFSheet sheet;
+    private int next;
+
+    public XlsxTableWriter(OutputStream out) {
+        this(out, MAX_ROWS);
+    }
+
+    /** maxRows：单表行数上限（含表头），测试换表时使用 */
+    XlsxTableWriter(OutputStream out, int maxRows) {
+        this.out = out;
+        this.maxRows = Math.max(2, maxRows);
+        this.workbook = new SXSSFWorkbook(WINDOW);
+        this.workbook.setCompressTempFiles(true);
+    }
+
+    @Override
+    public void header(List<String> names) {
+        header = List.copyOf(names);
+        newSheet();
+    }
+
+    private void newSheet() {
+        int n = workbook.getNumberOfSheets();
+        sheet = workbook.createSheet(n == 0 ? SHEET : SHEET + "-" + (n + 1));
+        next = 0;
+        if (header.isEmpty()) return;
+        write(header.toArray());
+        sheet.createFreezePane(0, 1);
+    }
+
+    @Override
+    public void row(Object[] cells) {
+        if (sheet == null || next >= maxRows) newSheet();
+        write(cells);
+    }
+
+    private void write(Object[] cells) {
+        Row row = sheet.createRow(next++);
+        for (int i = 0; i < cells.length; i++) {
+            Object v = cells[i];
+            if (v == null) continue;
+            if (v instanceof Number) {
+                double d = ((Number) v).doubleValue();
+                if (Double.isFinite(d)) row.createCell(i).setCellValue(d);
+                continue;
+            }
+            String s = v.toString();
+            Cell c = row.createCell(i);
+            c.setCellValue(s.length() > MAX_TEXT ? s.substring(0, MAX_TEXT) : s);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // 超出窗口的行已由 SXSSF 写到临时文件
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheet == null) newSheet();
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // close() 同时删除临时文件
+            workbook.close();
+        }
+    }
+}
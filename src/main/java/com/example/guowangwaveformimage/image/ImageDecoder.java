@@ -0,0 +1,172 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    上传图片读取与解码：
+    - 把 multipart 的输入流分块读进每线程复用的直接缓冲区（堆外），边读边算 SHA-256 内容摘要
+    - 再用包装该缓冲区的 Mat 直接 imdecode，不再调用 getBytes()/readAllBytes()，也不经 MatOfByte 多拷一份
+    - multipart 文件由容器落盘（file-size-threshold: 0），同一时刻驻留内存的只有正在解码的几份
+    - 本地文件（目录批量导入）经 FileChannel 直接读进同一线程缓冲，不进 Java 堆；
+      不用内存映射：文件在解码期间被截断 / 原地改写时，原生代码访问映射会触发 SIGBUS 使 JVM 崩溃
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@Component
+public class ImageDecoder {
+
+    private static final int CHUNK = 64 * 1024;
+    private static final int MIN_CAPACITY = 1 << 20;
+
+    /** 每线程的读缓冲 */
+    private static final class Scratch {
+        final byte[] chunk = new byte[CHUNK];
+        final MessageDigest sha256;
+        ByteBuffer buf;
+        long generation;   // 每次 read 自增，用于识别已被覆盖的 EncodedImage
+
+        Scratch() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 已读入线程缓冲、尚未解码的图片。
+     * 数据位于读取线程的复用缓冲中：只能在同一线程、且在该线程下一次 read 之前解码。
+     */
+    public static final class EncodedImage {
+        private final String hash;
+        private final int length;
+        private final Thread owner;
+        private final long generation;
+        private final ByteBuffer buf;
+        private final int[] headerSize;
+
+        private EncodedImage(String hash, int length, ByteBuffer buf, long generation) {
+            this.hash = hash;
+            this.length = length;
+            this.buf = buf;
+            this.generation = generation;
+            this.owner = Thread.currentThread();
+            this.headerSize = ImageHeader.size(buf, length);
+        }
+
+        /** 内容 SHA-256（十六进制） */
+        public String hash() { return hash; }
+        public int length() { return length; }
+
+        /** 文件头中的 {宽, 高}（读入时解析，不解码）；格式无法识别时为 null */
+        public int[] headerSize() { return headerSize; }
+    }
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final long retainBytes;
+
+    public ImageDecoder(AnalysisProperties props) {
+        this.retainBytes = props.getDecode().getRetainBufferSize().toBytes();
+    }
+
+    /** 读取并解码为 BGR 图像；无法解码时返回空 Mat（调用方负责 release） */
+    public Mat decode(MultipartFile file) throws IOException {
+        return decode(read(file));
+    }
+
+    public EncodedImage read(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return read(in, file.getSize());
+        }
+    }
+
+    public EncodedImage read(InputStream in, long sizeHint) throws IOException {
+        Scratch s = scratch.get();
+        if (s.buf != null && s.buf.capacity() > retainBytes) s.buf = null; // 上次的超大缓冲未经解码，也不保留
+        ByteBuffer buf = ensureCapacity(s, null, (int) Math.max(MIN_CAPACITY, Math.min(Integer.MAX_VALUE, sizeHint)));
+        buf.clear();
+        s.sha256.reset();
+        int n;
+        while ((n = in.read(s.chunk)) > 0) {
+            if (buf.remaining() < n) buf = ensureCapacity(s, buf, buf.capacity() * 2 + n);
+            buf.put(s.chunk, 0, n);
+            s.sha256.update(s.chunk, 0, n);
+        }
+        return new EncodedImage(toHex(s.sha256.digest()), buf.position(), buf, ++s.generation);
+    }
+
+    /**
+     * 本地文件：经 FileChannel 读进线程缓冲（堆外），读到文件末尾为止（读取期间被截断 / 追加也只取读到的内容）。
+     * 同样只能在本线程、下一次 read 之前解码。
+     */
+    public EncodedImage read(Path file) throws IOException {
+        Scratch s = scratch.get();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("文件过大: " + file);
+            if (s.buf != null && s.buf.capacity() > retainBytes) s.buf = null;
+            ByteBuffer buf = ensureCapacity(s, null, (int) Math.max(MIN_CAPACITY, Math.min(Integer.MAX_VALUE, size + 1)));
+            buf.clear();
+            // 多留一个字节：读满说明文件在此期间变长，扩容后继续读
+            while (ch.read(buf) >= 0) {
+                if (!buf.hasRemaining()) buf = ensureCapacity(s, buf, buf.capacity() * 2);
+            }
+            ByteBuffer data = buf.duplicate();
+            data.flip();
+            s.sha256.reset();
+            s.sha256.update(data);
+            return new EncodedImage(toHex(s.sha256.digest()), buf.position(), buf, ++s.generation);
+        }
+    }
+
+    /** 解码为 BGR 图像；无法解码时返回空 Mat（调用方负责 release） */
+    public Mat decode(EncodedImage enc) {
+        if (enc.owner != Thread.currentThread() || enc.generation != scratch.get().generation) {
+            throw new IllegalStateException("EncodedImage 只能在读取它的线程中、且在下一次 read 之前解码");
+        }
+        if (enc.length == 0) return new Mat();
+
+        // Mat 直接引用缓冲区内存，不发生拷贝
+        Mat wrap = new Mat(1, enc.length, CvType.CV_8UC1, enc.buf);
+        try {
+            return Imgcodecs.imdecode(wrap, Imgcodecs.IMREAD_COLOR);
+        } finally {
+            wrap.release();
+            // 偶发的超大文件不长期占用线程缓冲
+            Scratch s = scratch.get();
+            if (enc.buf == s.buf && enc.buf.capacity() > retainBytes) s.buf = null;
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(Scratch s, ByteBuffer cur, int need) {
+        ByteBuffer buf = cur != null ? cur : s.buf;
+        if (buf != null && buf.capacity() >= need) return buf;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(need);
+        if (cur != null) {
+            cur.flip();
+            bigger.put(cur);
+        }
+        s.buf = bigger;
+        return bigger;
+    }
+
+    private static String toHex(byte[] b) {
+        StringBuilder sb = new StringBuilder(b.length * 2);
+        for (byte v : b) sb.append(Character.forDigit((v >> 4) & 0xF, 16)).append(Character.forDigit(v & 0xF, 16));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    只读文件头取图片宽高（PNG / JPEG / BMP），不解码：布局识别按尺寸筛选候选时使用。
+    无法识别的格式返回 null，由调用方退回到解码后再取尺寸。
+*/
+
+import java.nio.ByteBuffer;
+
+public final class ImageHeader {
+
+    private ImageHeader() {}
+
+    /** 返回 {宽, 高}；buf 的 [0, length) 为完整文件内容 */
+    public static int[] size(ByteBuffer buf, int length) {
+        if (length < 26) return null;
+        int b0 = u8(buf, 0), b1 = u8(buf, 1);
+        if (b0 == 0x89 && b1 == 'P' && u8(buf, 2) == 'N' && u8(buf, 3) == 'G') {
+            // 8 字节签名 + IHDR 块：长度(4) 类型(4) 宽(4) 高(4)，大端
+            return new int[]{buf.getInt(16), buf.getInt(20)};
+        }
+        if (b0 == 'B' && b1 == 'M') {
+            // BITMAPINFOHEADER：宽、高为小端 int32，高为负表示自上而下存储
+            return new int[]{le32(buf, 18), Math.abs(le32(buf, 22))};
+        }
+        if (b0 == 0xFF && b1 == 0xD8) return jpeg(buf, length);
+        return null;
+    }
+
+    // 逐段跳过，直到 SOFn（C0..CF，除去 C4 DHT、C8 JPG、CC DAC）
+    private static int[] jpeg(ByteBuffer buf, int length) {
+        int p = 2;
+        while (p + 9 < length) {
+            if (u8(buf, p) != 0xFF) return null;
+            int marker = u8(buf, p + 1);
+            if (marker == 0xFF) { p++; continue; }        // 填充字节
+            if (marker == 0xD8 || (marker >= 0xD0 && marker <= 0xD7) || marker == 0x01) { p += 2; continue; }
+            int segLen = (u8(buf, p + 2) << 8) | u8(buf, p + 3);
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                int h = (u8(buf, p + 5) << 8) | u8(buf, p + 6);
+                int w = (u8(buf, p + 7) << 8) | u8(buf, p + 8);
+                return new int[]{w, h};
+            }
+            if (segLen < 2) return null;
+            p += 2 + segLen;
+        }
+        return null;
+    }
+
+    private static int u8(ByteBuffer buf, int i) {
+        return buf.get(i) & 0xFF;
+    }
+
+    private static int le32(ByteBuffer buf, int i) {
+        return u8(buf, i) | (u8(buf, i + 1) << 8) | (u8(buf, i + 2) << 16) | (u8(buf, i + 3) << 24);
+    }
+}
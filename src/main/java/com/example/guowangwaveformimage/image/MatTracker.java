@@ -0,0 +1,196 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    请求路径上原生 Mat 的归属与计数：
+    - track(endpoint, mat) 把 Mat 交给一个 Owned 句柄，close() 时立即 release 并扣减计数（try-with-resources）
+    - 按接口统计存活 Mat 数与原生字节数：analysis.mats.live{endpoint}、analysis.mats.bytes{endpoint}
+    - 句柄未 close 就被回收时由 Cleaner 兜底释放，并计入 analysis.mats.leaked{endpoint}、打印告警
+    - analysis.mats.record-sites=true（测试模式）时记录每个句柄的创建位置，leaks() / checkNoLeaks() 列出未释放的句柄
+    每线程临时池（ScratchPool）的 Mat 长期复用，不在此计数，见 analysis.scratch.*。
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class MatTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(MatTracker.class);
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** 单个接口的计数 */
+    private final class Counts {
+        final AtomicLong live = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final Counter leaked;
+
+        Counts(String endpoint) {
+            Gauge.builder("analysis.mats.live", live, AtomicLong::get)
+                    .description("存活的请求路径原生 Mat 数")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            Gauge.builder("analysis.mats.bytes", bytes, AtomicLong::get)
+                    .description("存活的请求路径原生 Mat 字节数")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            leaked = Counter.builder("analysis.mats.leaked")
+                    .description("未 close 而由 Cleaner 回收的 Mat 数")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+        }
+    }
+
+    /** Cleaner 动作：不引用 Owned 本身，句柄不可达后仍能释放 Mat */
+    private final class Release implements Runnable {
+        final Mat mat;
+        final String endpoint;
+        final long bytes;
+        final Counts counts;
+        final Throwable site;     // 仅测试模式记录
+        volatile boolean closed;
+
+        Release(Mat mat, String endpoint, Counts counts, Throwable site) {
+            this.mat = mat;
+            this.endpoint = endpoint;
+            this.bytes = mat.total() * mat.elemSize();
+            this.counts = counts;
+            this.site = site;
+        }
+
+        @Override
+        public void run() {
+            mat.release();
+            counts.live.decrementAndGet();
+            counts.bytes.addAndGet(-bytes);
+            open.remove(this);
+            if (!closed) {
+                counts.leaked.increment();
+                if (site != null) log.warn("Mat 未释放即被回收: endpoint={}, {} 字节", endpoint, bytes, site);
+                else log.warn("Mat 未释放即被回收: endpoint={}, {} 字节（开启 analysis.mats.record-sites 可定位创建位置）", endpoint, bytes);
+            }
+        }
+    }
+
+    /** 独占一个 Mat 的句柄；close() 立即释放 */
+    public static final class Owned implements AutoCloseable {
+        private final Mat mat;
+        private final Release release;
+        private Cleaner.Cleanable cleanable;
+
+        private Owned(Mat mat, Release release) {
+            this.mat = mat;
+            this.release = release;
+        }
+
+        public Mat mat() { return mat; }
+
+        @Override
+        public void close() {
+            release.closed = true;
+            cleanable.clean();    // 只会执行一次
+        }
+    }
+
+    /** 未释放的句柄（测试模式下带创建位置） */
+    public static final class Leak {
+        public final String endpoint;
+        public final long bytes;
+        public final Throwable site;
+
+        Leak(String endpoint, long bytes, Throwable site) {
+            this.endpoint = endpoint;
+            this.bytes = bytes;
+            this.site = site;
+        }
+
+        @Override
+        public String toString() {
+            if (site == null) return endpoint + " " + bytes + "B";
+            // 跳过 track() 与 ImageFeatureLoader.open()，指向调用方
+            StackTraceElement[] st = site.getStackTrace();
+            return endpoint + " " + bytes + "B @ " + st[Math.min(2, st.length - 1)];
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final boolean recordSites;
+    private final Map<String, Counts> counts = new ConcurrentHashMap<>();
+    private final Set<Release> open = ConcurrentHashMap.newKeySet();
+
+    public MatTracker(MeterRegistry registry, boolean recordSites) {
+        this.registry = registry;
+        this.recordSites = recordSites;
+    }
+
+    @Autowired
+    public MatTracker(AnalysisProperties props, AnalysisMetrics metrics) {
+        this(metrics.registry(), props.getMats().isRecordSites());
+    }
+
+    /** 独立实例（测试 / 基准中直接构造时使用）；recordSites 即测试模式 */
+    public static MatTracker standalone(boolean recordSites) {
+        return new MatTracker(new SimpleMeterRegistry(), recordSites);
+    }
+
+    /** 接管 mat：之后只能通过返回的句柄 close() 释放 */
+    public Owned track(String endpoint, Mat mat) {
+        Counts c = counts.computeIfAbsent(endpoint, Counts::new);
+        Release r = new Release(mat, endpoint, c, recordSites ? new Throwable("Mat 创建位置") : null);
+        c.live.incrementAndGet();
+        c.bytes.addAndGet(r.bytes);
+        open.add(r);
+        Owned o = new Owned(mat, r);
+        o.cleanable = CLEANER.register(o, r);
+        return o;
+    }
+
+    public long live(String endpoint) {
+        Counts c = counts.get(endpoint);
+        return c == null ? 0 : c.live.get();
+    }
+
+    public long liveBytes(String endpoint) {
+        Counts c = counts.get(endpoint);
+        return c == null ? 0 : c.bytes.get();
+    }
+
+    public long leaked(String endpoint) {
+        Counts c = counts.get(endpoint);
+        return c == null ? 0 : (long) c.leaked.count();
+    }
+
+    /** 当前尚未 close 的句柄 */
+    public List<Leak> leaks() {
+        List<Leak> out = new ArrayList<>();
+        for (Release r : open) out.add(new Leak(r.endpoint, r.bytes, r.site));
+        return out;
+    }
+
+    /** 测试模式：仍有未释放的句柄时抛 IllegalStateException */
+    public void checkNoLeaks() {
+        List<Leak> l = leaks();
+        if (!l.isEmpty()) {
+            IllegalStateException e = new IllegalStateException("存在未释放的 Mat: " + l);
+            for (Leak k : l) if (k.site != null) e.addSuppressed(k.site);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    常用像素判定（配合 RasterBuffer 的行/列扫描使用，均为无分配的静态实例）
+*/
+
+public final class Pixels {
+
+    private Pixels() {}
+
+    /** 二值图：非 0 即命中 */
+    public static final RasterBuffer.PixelTest NON_ZERO = (d, o) -> d[o] != 0;
+
+    /** BGR：三通道都 < 150 视为黑色 */
+    public static boolean isBlack(byte[] d, int o) {
+        return (d[o] & 0xFF) < 150 && (d[o + 1] & 0xFF) < 150 && (d[o + 2] & 0xFF) < 150;
+    }
+
+    /** BGR：最大最小通道差 > 40 且最大通道 > 80 视为彩色 */
+    public static boolean isColorful(byte[] d, int o) {
+        int b = d[o] & 0xFF, g = d[o + 1] & 0xFF, r = d[o + 2] & 0xFF;
+        int max = Math.max(b, Math.max(g, r));
+        int min = Math.min(b, Math.min(g, r));
+        return (max - min) > 40 && max > 80;
+    }
+
+    /** HSV：S、V 均超过阈值视为波形彩色像素 */
+    public static RasterBuffer.PixelTest hsvColored(int sThresh, int vThresh) {
+        return (d, o) -> (d[o + 1] & 0xFF) > sThresh && (d[o + 2] & 0xFF) > vThresh;
+    }
+}
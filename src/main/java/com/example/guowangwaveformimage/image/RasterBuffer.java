@@ -0,0 +1,124 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    ROI 像素缓冲：
+    - 把 Mat（通常是 ROI 子图）一次性拷贝到 Java 的 byte[]，之后的逐行/逐列扫描全部在堆内完成
+    - 取代 Mat.get(y,x)：每次调用都要跨 JNI 并分配 double[]，1400x310 的 ROI 一次扫描约 43 万次
+    - 实例可复用：load() 在容量足够时复用已有数组，不再重新分配
+*/
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+public final class RasterBuffer {
+
+    /** 像素判定（data 为整块缓冲，off 为该像素第 0 通道的下标） */
+    @FunctionalInterface
+    public interface PixelTest {
+        boolean test(byte[] data, int off);
+    }
+
+    private byte[] data = new byte[0];
+    private int width;
+    private int height;
+    private int channels;
+
+    public RasterBuffer() {}
+
+    /** 拷贝一份 Mat 数据（新建缓冲） */
+    public static RasterBuffer of(Mat mat) {
+        return new RasterBuffer().load(mat);
+    }
+
+    /** 载入 Mat 数据，容量足够时复用内部数组；仅支持 8U 类型 */
+    public RasterBuffer load(Mat mat) {
+        if (CvType.depth(mat.type()) != CvType.CV_8U) {
+            throw new IllegalArgumentException("RasterBuffer 仅支持 8 位图像, type=" + CvType.typeToString(mat.type()));
+        }
+        width = mat.cols();
+        height = mat.rows();
+        channels = mat.channels();
+        int n = width * height * channels;
+        if (data.length < n) data = new byte[n];
+        // 子图（非连续）时 Mat.get 会按行拷贝，结果仍是紧凑的行主序
+        if (n > 0) mat.get(0, 0, data);
+        return this;
+    }
+
+    public byte[] data() { return data; }
+    public int width() { return width; }
+    public int height() { return height; }
+    public int channels() { return channels; }
+
+    /** (x,y) 像素第 0 通道的下标 */
+    public int offset(int x, int y) {
+        return (y * width + x) * channels;
+    }
+
+    /** (x,y) 像素第 c 通道的无符号值 */
+    public int get(int x, int y, int c) {
+        return data[(y * width + x) * channels + c] & 0xFF;
+    }
+
+    /* ==================== 行扫描 ==================== */
+
+    /** 第 y 行满足条件的最长连续段长度 */
+    public int rowLongestRun(int y, PixelTest t) {
+        int off = y * width * channels, run = 0, maxRun = 0;
+        for (int x = 0; x < width; x++, off += channels) {
+            if (t.test(data, off)) {
+                if (++run > maxRun) maxRun = run;
+            } else run = 0;
+        }
+        return maxRun;
+    }
+
+    /** 第 y 行满足条件的像素总数（即所有连续段长度之和） */
+    public int rowCount(int y, PixelTest t) {
+        int off = y * width * channels, cnt = 0;
+        for (int x = 0; x < width; x++, off += channels) {
+            if (t.test(data, off)) cnt++;
+        }
+        return cnt;
+    }
+
+    /** 第 y 行 [x0, width) 内第一个满足条件的 x，找不到返回 -1 */
+    public int rowFirst(int y, int x0, PixelTest t) {
+        int off = offset(x0, y);
+        for (int x = x0; x < width; x++, off += channels) {
+            if (t.test(data, off)) return x;
+        }
+        return -1;
+    }
+
+    /* ==================== 列扫描 ==================== */
+
+    /** 第 x 列满足条件的最长连续段长度 */
+    public int columnLongestRun(int x, PixelTest t) {
+        int stride = width * channels, off = x * channels, run = 0, maxRun = 0;
+        for (int y = 0; y < height; y++, off += stride) {
+            if (t.test(data, off)) {
+                if (++run > maxRun) maxRun = run;
+            } else run = 0;
+        }
+        return maxRun;
+    }
+
+    /** 第 x 列 [y1, y3] 内最上面满足条件的 y，找不到返回 -1 */
+    public int columnFirst(int x, int y1, int y3, PixelTest t) {
+        int stride = width * channels, off = offset(x, y1);
+        for (int y = y1; y <= y3; y++, off += stride) {
+            if (t.test(data, off)) return y;
+        }
+        return -1;
+    }
+
+    /** 第 x 列 [y1, y3] 内最下面满足条件的 y，找不到返回 -1 */
+    public int columnLast(int x, int y1, int y3, PixelTest t) {
+        int stride = width * channels, off = offset(x, y3);
+        for (int y = y3; y >= y1; y--, off -= stride) {
+            if (t.test(data, off)) return y;
+        }
+        return -1;
+    }
+}
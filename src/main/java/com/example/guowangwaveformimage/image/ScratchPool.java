@@ -0,0 +1,213 @@
+package com.example.guowangwaveformimage.image;
+
+/*
+    ROI 特征提取用的每线程临时 Mat / 像素缓冲池：
+    - 每个线程持有一组 Mat 与 RasterBuffer，open() 得到一个作用域，作用域内按顺序取用，close() 时归还
+      （作用域可嵌套，按栈顺序归还）；ROI 尺寸固定，复用的 Mat 不会再触发原生内存分配
+    - OpenCV 写入目标 Mat 时尺寸 / 类型一致即原地复用，不一致才重新分配
+    - 最外层作用域关闭时，线程持有的原生内存与像素缓冲（堆内）合计超过 analysis.scratch.retain-size 则全部释放
+      （偶发大图不长期占用）
+    - 已结束线程留下的 Mat 在新线程登记时释放
+    - 关闭池化（analysis.scratch.enabled=false）时每次新建，作用域关闭时全部释放，便于对比
+    统计经 analysis.scratch.* 指标暴露。
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opencv.core.Mat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ScratchPool {
+
+    /** 某个线程持有的临时对象（只由该线程读写，retained 供统计读取） */
+    private static final class Slots {
+        final Thread owner = Thread.currentThread();
+        final List<Mat> mats = new ArrayList<>();
+        final List<RasterBuffer> rasters = new ArrayList<>();
+        int nextMat, nextRaster, depth;
+        volatile long retained;
+
+        long bytes() {
+            long n = 0;
+            for (Mat m : mats) n += m.total() * m.elemSize();
+            for (RasterBuffer r : rasters) n += r.data().length;
+            return n;
+        }
+
+        void releaseAll() {
+            for (Mat m : mats) m.release();
+            mats.clear();
+            rasters.clear();
+            retained = 0;
+        }
+    }
+
+    /** 取用临时对象的作用域；必须在打开它的线程中使用并关闭 */
+    public final class Scope implements AutoCloseable {
+        private final Slots slots;          // 关闭池化时为 null
+        private final int matMark, rasterMark;
+        private final List<Mat> fresh;
+        private boolean closed;
+
+        private Scope(Slots slots) {
+            this.slots = slots;
+            this.matMark = slots != null ? slots.nextMat : 0;
+            this.rasterMark = slots != null ? slots.nextRaster : 0;
+            this.fresh = slots != null ? null : new ArrayList<>();
+        }
+
+        /** 一个临时 Mat（内容未定义，作为 OpenCV 的输出参数使用） */
+        public Mat mat() {
+            if (slots == null) {
+                Mat m = new Mat();
+                fresh.add(m);
+                created.incrementAndGet();
+                return m;
+            }
+            if (slots.nextMat < slots.mats.size()) {
+                reused.incrementAndGet();
+                return slots.mats.get(slots.nextMat++);
+            }
+            Mat m = new Mat();
+            slots.mats.add(m);
+            slots.nextMat++;
+            created.incrementAndGet();
+            return m;
+        }
+
+        /** 把 Mat 拷入一个临时像素缓冲（作用域关闭后缓冲会被复用，不可外传） */
+        public RasterBuffer raster(Mat m) {
+            if (slots == null) return RasterBuffer.of(m);
+            if (slots.nextRaster == slots.rasters.size()) slots.rasters.add(new RasterBuffer());
+            return slots.rasters.get(slots.nextRaster++).load(m);
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (slots == null) {
+                for (Mat m : fresh) m.release();
+                return;
+            }
+            slots.nextMat = matMark;
+            slots.nextRaster = rasterMark;
+            if (--slots.depth == 0) {
+                long bytes = slots.bytes();
+                if (bytes > retainBytes) {
+                    slots.releaseAll();
+                    trimmed.incrementAndGet();
+                } else {
+                    slots.retained = bytes;
+                }
+            }
+        }
+    }
+
+    private final boolean enabled;
+    private final long retainBytes;
+    private final ThreadLocal<Slots> local = ThreadLocal.withInitial(this::register);
+    private final Set<Slots> all = ConcurrentHashMap.newKeySet();
+    private final AtomicLong scopes = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong trimmed = new AtomicLong();
+
+    /** 默认池（测试 / 基准中直接构造提取器时使用） */
+    public ScratchPool() {
+        this(true, 16L * 1024 * 1024);
+    }
+
+    public ScratchPool(boolean enabled, long retainBytes) {
+        this.enabled = enabled;
+        this.retainBytes = retainBytes;
+    }
+
+    @Autowired
+    public ScratchPool(AnalysisProperties props, AnalysisMetrics metrics) {
+        this(props.getScratch().isEnabled(), props.getScratch().getRetainSize().toBytes());
+        bind(metrics.registry());
+    }
+
+    public Scope open() {
+        scopes.incrementAndGet();
+        if (!enabled) return new Scope(null);
+        Slots s = local.get();
+        s.depth++;
+        return new Scope(s);
+    }
+
+    private Slots register() {
+        // 顺带回收已结束线程的 Mat（其作用域不会再被使用）
+        all.removeIf(s -> {
+            if (s.owner.isAlive()) return false;
+            s.releaseAll();
+            return true;
+        });
+        Slots s = new Slots();
+        all.add(s);
+        return s;
+    }
+
+    /* ==================== 统计 ==================== */
+
+    public static final class Stats {
+        public boolean enabled;
+        public int threads;
+        public long retainedBytes;
+        public long scopes;
+        public long matsCreated;
+        public long matsReused;
+        public long trimmed;
+    }
+
+    public Stats stats() {
+        Stats st = new Stats();
+        st.enabled = enabled;
+        st.threads = all.size();
+        st.retainedBytes = retainedBytes();
+        st.scopes = scopes.get();
+        st.matsCreated = created.get();
+        st.matsReused = reused.get();
+        st.trimmed = trimmed.get();
+        return st;
+    }
+
+    private long retainedBytes() {
+        long n = 0;
+        for (Slots s : all) n += s.retained;
+        return n;
+    }
+
+    private void bind(MeterRegistry registry) {
+        Gauge.builder("analysis.scratch.retained", this, ScratchPool::retainedBytes)
+                .description("各线程临时 Mat 占用的原生内存")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("analysis.scratch.threads", all, Set::size)
+                .description("持有临时 Mat 的线程数")
+                .register(registry);
+        FunctionCounter.builder("analysis.scratch.mats", created, AtomicLong::get)
+                .description("临时 Mat 取用次数")
+                .tag("source", "created")
+                .register(registry);
+        FunctionCounter.builder("analysis.scratch.mats", reused, AtomicLong::get)
+                .description("临时 Mat 取用次数")
+                .tag("source", "reused")
+                .register(registry);
+        FunctionCounter.builder("analysis.scratch.trimmed", trimmed, AtomicLong::get)
+                .description("超出保留上限而整体释放的次数")
+                .register(registry);
+    }
+}
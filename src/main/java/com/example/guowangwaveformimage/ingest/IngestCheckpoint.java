@@ -0,0 +1,60 @@
+package com.example.guowangwaveformimage.ingest;
+
+/*
+    导入检查点：已完成文件的 名称 + 大小 + 修改时间，每行一条，追加写并立即刷出。
+    - 启动时读回，命中的文件不再处理；同名文件被覆盖（大小或修改时间变化）时视为新文件
+    - 结果行先写出再记检查点：两者之间中断时重启会再处理一次（结果文件中可能重复一行），不会漏
+    - 中断时写了一半的行不匹配任何文件，等同未完成
+*/
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class IngestCheckpoint implements Closeable {
+
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+    private final BufferedWriter out;
+
+    IngestCheckpoint(Path file) throws IOException {
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) done.add(line);
+            }
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    static String key(String name, long size, long modifiedMillis) {
+        return name + "\t" + size + "\t" + modifiedMillis;
+    }
+
+    boolean isDone(String key) {
+        return done.contains(key);
+    }
+
+    int size() {
+        return done.size();
+    }
+
+    synchronized void markDone(String key) throws IOException {
+        if (!done.add(key)) return;
+        out.write(key);
+        out.newLine();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
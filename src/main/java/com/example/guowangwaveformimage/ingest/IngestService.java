@@ -0,0 +1,399 @@
+package com.example.guowangwaveformimage.ingest;
+
+/*
+    目录批量导入（analysis.ingest.enabled=true 时启动）：录波器把截图导出到本地目录，这里直接读取分析，不经 HTTP 上传。
+    - 启动后先扫描目录中已有的文件，watch=true 时再用 WatchService 监视新建 / 改写的文件；false 时扫描一遍即结束
+    - 文件最后修改后经过 settle 才读取，仍在写入的文件稍后再看
+    - 文件读进线程缓冲后摘要、解码（ImageDecoder.read(Path)，不用内存映射），ROI 特征与接口共用缓存
+    - 各相依次调用已注册的分析器（可用 analyzers 限定），结果追加到 output：
+      format=ndjson 每个文件一行，结构同 /report 的单相；format=csv 每个文件每相一行，列同 /report/export
+      （文件级列为 file、size、modified、hash、layout；追加到已有文件时表头须与当前配置一致，否则启动失败）
+    - 同时分析 parallelism 个文件（独立线程），各相仍交给 AnalysisExecutor 并行
+    - 完成的文件记入检查点，重启后跳过（见 IngestCheckpoint）
+    无界面运行：spring.main.web-application-type=none
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.AnalyzerResult;
+import com.example.guowangwaveformimage.analyzer.PhaseInput;
+import com.example.guowangwaveformimage.analyzer.PhaseReport;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.debug.PhaseDebug;
+import com.example.guowangwaveformimage.export.CsvTableWriter;
+import com.example.guowangwaveformimage.export.ReportTable;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(prefix = "analysis.ingest", name = "enabled", havingValue = "true")
+public class IngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestService.class);
+
+    private static final String ENDPOINT = "ingest";
+    private static final String DECODE_FAILED = "图片解码失败";
+    private static final long POLL_MS = 500;
+    // format=csv 时的文件级列
+    private static final List<String> CSV_COLUMNS = List.of("file", "size", "modified", "hash", "layout");
+
+    /** 结果文件中的一行 */
+    public static class FileRecord {
+        public String file;
+        public long size;
+        public String modified;         // 文件修改时间（ISO-8601）
+        public String hash;             // 内容 SHA-256
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String layout;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String error;
+        public List<PhaseReport> phases = new ArrayList<>();
+    }
+
+    private final AnalysisProperties.Ingest cfg;
+    private final AnalysisExecutor executor;
+    private final ImageDecoder decoder;
+    private final ImageFeatureLoader features;
+    private final AnalyzerRegistry analyzers;
+    private final CalibrationStore calibrations;
+    private final AnalysisMetrics metrics;
+    private final ObjectMapper mapper;
+
+    private final Path dir;
+    private final PathMatcher matcher;
+    private final LayoutProfile forced;
+    private final List<String> names;
+    private final Set<RoiFeatures.Plane> planes;
+    private final ThreadPoolExecutor workers;
+    private final IngestCheckpoint checkpoint;
+    private final BufferedWriter output;
+    private final ReportTable table;        // format=csv 时
+    private final CsvTableWriter csv;
+
+    // 尚未稳定的文件（等待 settle）与已提交、未完成的文件
+    private final Set<Path> waiting = ConcurrentHashMap.newKeySet();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<Path> dirty = ConcurrentHashMap.newKeySet();     // 处理期间又有事件的文件，处理完重新排队
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile Thread watcher;
+    private volatile boolean stopped;
+
+    public IngestService(AnalysisProperties props, AnalysisExecutor executor, ImageDecoder decoder,
+                         ImageFeatureLoader features, AnalyzerRegistry analyzers, CalibrationStore calibrations,
+                         AnalysisMetrics metrics, ObjectMapper mapper) {
+        this.cfg = props.getIngest();
+        this.executor = executor;
+        this.decoder = decoder;
+        this.features = features;
+        this.analyzers = analyzers;
+        this.calibrations = calibrations;
+        this.metrics = metrics;
+        this.mapper = mapper;
+
+        this.dir = Paths.get(cfg.getDir()).toAbsolutePath().normalize();
+        if (cfg.getDir().isBlank() || !Files.isDirectory(dir)) {
+            throw new IllegalStateException("analysis.ingest.dir 不是目录: " + cfg.getDir());
+        }
+        this.matcher = dir.getFileSystem().getPathMatcher("glob:" + cfg.getPattern());
+        this.forced = cfg.getLayout().isBlank() ? null : features.layouts().require(cfg.getLayout().trim());
+        this.names = List.copyOf(cfg.getAnalyzers());
+        this.planes = analyzers.planes(names);   // 未注册的分析器名称在此报错
+
+        int threads = cfg.getParallelism() > 0 ? cfg.getParallelism()
+                : props.getExecutor().getThreads() > 0 ? props.getExecutor().getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "ingest-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+
+        Path out = Paths.get(cfg.getOutput()).toAbsolutePath();
+        Path cp = cfg.getCheckpoint().isBlank() ? Paths.get(out + ".checkpoint") : Paths.get(cfg.getCheckpoint());
+        try {
+            Path parent = out.getParent();
+            if (parent != null) Files.createDirectories(parent);
+            this.checkpoint = new IngestCheckpoint(cp);
+            boolean isCsv = cfg.getFormat() == AnalysisProperties.Ingest.OutputFormat.CSV;
+            this.table = isCsv ? new ReportTable(CSV_COLUMNS, analyzers, names) : null;
+            if (isCsv) checkHeader(out, table.header());
+            boolean fresh = !Files.exists(out) || Files.size(out) == 0;
+            this.output = Files.newBufferedWriter(out, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            this.csv = isCsv ? new CsvTableWriter(output) : null;
+            if (isCsv && fresh) {
+                csv.header(table.header());
+                csv.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("导入结果 / 检查点文件无法打开: " + out, e);
+        }
+        log.info("目录导入: {}（{}），结果 {}，检查点已有 {} 个文件，并行 {}", dir, cfg.getPattern(), out,
+                checkpoint.size(), threads);
+    }
+
+    /** 应用就绪后开始（监视线程不是守护线程：无界面运行时由它维持进程） */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread t = new Thread(cfg.isWatch() ? this::watchLoop : this::runOnce, "ingest-watch");
+        watcher = t;
+        t.start();
+    }
+
+    /** 扫描一遍并等到全部处理完（含等待 settle 的文件），返回本次处理的文件数 */
+    public int runOnce() {
+        long before = processed.get();
+        try {
+            scan();
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int n = (int) (processed.get() - before);
+        log.info("目录导入扫描完成: 处理 {} 个（失败 {}），跳过已完成 {} 个", n, failed.get(), skipped.get());
+        return n;
+    }
+
+    private void watchLoop() {
+        try (WatchService ws = dir.getFileSystem().newWatchService()) {
+            // 先注册再扫描，扫描期间新建的文件不会漏掉（重复的由 waiting / inFlight 去重）
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            scan();
+            while (!stopped) {
+                WatchKey key = ws.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> ev : key.pollEvents()) {
+                        if (ev.kind() == StandardWatchEventKinds.OVERFLOW) scan();
+                        else consider(dir.resolve((Path) ev.context()));
+                    }
+                    if (!key.reset()) {
+                        log.error("目录导入：目录已不可访问，停止监视: {}", dir);
+                        return;
+                    }
+                }
+                promoteSettled();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 停止
+        } catch (IOException e) {
+            log.error("目录导入：无法监视 {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void scan() {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::consider);
+        } catch (IOException e) {
+            log.warn("目录导入：扫描失败 {}: {}", dir, e.getMessage());
+        }
+        promoteSettled();
+    }
+
+    private void consider(Path p) {
+        if (!matcher.matches(p.getFileName())) return;
+        if (!inFlight.contains(p)) {
+            waiting.add(p);
+            return;
+        }
+        // 正在处理时被改写：处理完再看（检查点按大小 / 修改时间区分新旧内容）；
+        // 标记后再查一次，防止恰好错过处理结束时的检查
+        dirty.add(p);
+        if (!inFlight.contains(p) && dirty.remove(p)) waiting.add(p);
+    }
+
+    /** 等待中的文件：已稳定的提交处理（检查点中已有的跳过），消失的移除 */
+    private void promoteSettled() {
+        if (stopped) return;
+        long now = System.currentTimeMillis();
+        for (Path p : waiting) {
+            BasicFileAttributes a;
+            try {
+                a = Files.readAttributes(p, BasicFileAttributes.class);
+            } catch (IOException e) {
+                waiting.remove(p);
+                continue;
+            }
+            if (!a.isRegularFile()) {
+                waiting.remove(p);
+                continue;
+            }
+            if (now - a.lastModifiedTime().toMillis() < cfg.getSettle().toMillis()) continue;
+            waiting.remove(p);
+            String key = IngestCheckpoint.key(p.getFileName().toString(), a.size(), a.lastModifiedTime().toMillis());
+            if (checkpoint.isDone(key)) {
+                skipped.incrementAndGet();
+            } else if (inFlight.add(p)) {
+                try {
+                    workers.execute(() -> {
+                        try {
+                            process(p, a, key);
+                        } finally {
+                            inFlight.remove(p);
+                            if (dirty.remove(p)) waiting.add(p);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 正在停止：线程池已关闭，剩下的下次启动再处理
+                    inFlight.remove(p);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drain() throws InterruptedException {
+        while (!stopped && (!waiting.isEmpty() || !inFlight.isEmpty())) {
+            Thread.sleep(Math.max(10, Math.min(POLL_MS, cfg.getSettle().toMillis())));
+            promoteSettled();
+        }
+    }
+
+    /* ==================== 单个文件 ==================== */
+
+    private void process(Path p, BasicFileAttributes a, String key) {
+        FileRecord r = new FileRecord();
+        r.file = p.getFileName().toString();
+        r.size = a.size();
+        r.modified = Instant.ofEpochMilli(a.lastModifiedTime().toMillis()).toString();
+
+        long t0 = metrics.start();
+        try {
+            // 读取与 open 在同一线程（EncodedImage 的要求）
+            ImageDecoder.EncodedImage enc = decoder.read(p);
+            metrics.imageSize(ENDPOINT, enc.length());
+            r.hash = enc.hash();
+            try (ImageFeatureLoader.ImageFeatures img = features.open(ENDPOINT, enc, forced, planes)) {
+                LayoutProfile layout = img.layout();
+                r.layout = layout.getName();
+                if (img.decodeFailed()) throw new IllegalStateException(DECODE_FAILED);
+                r.phases.addAll(analyzePhases(img));
+            }
+            for (PhaseReport ph : r.phases) {
+                for (AnalyzerResult res : ph.getResults().values()) metrics.error(ENDPOINT, res.error());
+            }
+            metrics.file(ENDPOINT, t0, false);
+        } catch (NoSuchFileException e) {
+            // 读取前被移走：不记结果也不记检查点
+            return;
+        } catch (Exception e) {
+            if (DECODE_FAILED.equals(e.getMessage())) metrics.error(ENDPOINT, DECODE_FAILED);
+            else metrics.error(ENDPOINT, e);
+            r.error = e.getMessage();
+            failed.incrementAndGet();
+        }
+
+        try {
+            write(r);
+            checkpoint.markDone(key);
+            processed.incrementAndGet();
+        } catch (IOException e) {
+            // 未记检查点，重启后重新处理
+            log.error("目录导入：结果写出失败 {}: {}", r.file, e.getMessage());
+        }
+    }
+
+    private List<PhaseReport> analyzePhases(ImageFeatureLoader.ImageFeatures img) {
+        LayoutProfile layout = img.layout();
+        String[] phaseNames = layout.names();
+        double voltPerSeg = calibrations.perSeg(layout, true);
+        // 叠加布局（配置了 traces）才有电流波形，功率分析按色相分离
+        HueRange vHue = layout.traceHue("voltage"), iHue = layout.traceHue("current");
+        boolean overlay = vHue != null || iHue != null;
+        double currPerSeg = calibrations.perSeg(layout, false);
+        return List.copyOf(executor.invokeAll(layout.indexes(), i -> {
+            PhaseInput in = PhaseInput.of(img.get(i), phaseNames[i])
+                    .perSeg(voltPerSeg).calibration(calibrations.slot(layout, i))
+                    .secondsPerGrid(layout.getSecondsPerGrid()).period(cfg.getPeriod()).traceMode(cfg.getTrace());
+            if (overlay) in.hues(vHue, iHue).pairedPerSeg(currPerSeg);
+            return analyzers.analyze(in, names, a -> PhaseDebug.OFF);
+        }));
+    }
+
+    private synchronized void write(FileRecord r) throws IOException {
+        if (csv != null) {
+            table.write(csv, new Object[]{r.file, r.size, r.modified, r.hash, r.layout}, r.error, r.phases);
+            csv.flush();
+            return;
+        }
+        output.write(mapper.writeValueAsString(r));
+        output.newLine();
+        output.flush();
+    }
+
+    /** 追加到已有的 CSV 时，表头须与当前分析器配置一致（否则列错位） */
+    private static void checkHeader(Path out, List<String> header) throws IOException {
+        if (!Files.exists(out) || Files.size(out) == 0) return;
+        String first;
+        try (BufferedReader in = Files.newBufferedReader(out, StandardCharsets.UTF_8)) {
+            first = in.readLine();
+        }
+        if (first != null && first.startsWith("\uFEFF")) first = first.substring(1);
+        if (!String.join(",", header).equals(first)) {
+            throw new IllegalStateException("结果文件表头与当前配置不一致（请换一个 output）: " + out);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of("processed", processed.get(), "failed", failed.get(), "skipped", skipped.get(),
+                "pending", (long) (waiting.size() + inFlight.size()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        Thread t = watcher;
+        if (t != null) t.interrupt();
+        workers.getQueue().clear();
+        workers.shutdown();
+        try {
+            // 正在分析的文件做完再关闭结果文件；排队的下次启动再处理
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                output.close();
+                checkpoint.close();
+            } catch (IOException e) {
+                log.warn("目录导入：关闭结果 / 检查点文件失败: {}", e.getMessage());
+            }
+        }
+    }
+}
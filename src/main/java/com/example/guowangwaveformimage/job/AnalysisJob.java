@@ -0,0 +1,209 @@
+package com.example.guowangwaveformimage.job;
+
+/*
+    一个异步批量分析任务：
+    - 由若干子项组成（单文件接口一个文件一项，功率接口一对文件一项）
+    - 每项完成即可被轮询取走，按完成先后编号，客户端用 from 增量拉取
+    - 取消后尚未开始的子项跳过，已在分析的子项跑完为止
+*/
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AnalysisJob {
+
+    public enum State { QUEUED, RUNNING, DONE, CANCELLED }
+
+    public enum ItemState { PENDING, RUNNING, DONE, ERROR, SKIPPED }
+
+    private final String id;
+    private final String type;
+    private final List<String> names;
+    private final ItemState[] itemStates;
+    private final Object[] results;
+    private final String[] errors;
+    private final List<Integer> finishedOrder = new ArrayList<>();   // 子项完成顺序
+
+    private State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private final Instant createdAt = Instant.now();
+    private Instant startedAt, finishedAt;
+
+    AnalysisJob(String id, String type, List<String> names) {
+        this.id = id;
+        this.type = type;
+        this.names = List.copyOf(names);
+        this.itemStates = new ItemState[names.size()];
+        this.results = new Object[names.size()];
+        this.errors = new String[names.size()];
+        Arrays.fill(itemStates, ItemState.PENDING);
+    }
+
+    public String id() { return id; }
+    public String type() { return type; }
+    public int total() { return names.size(); }
+    public Instant createdAt() { return createdAt; }
+    public boolean cancelRequested() { return cancelRequested; }
+
+    public synchronized State state() { return state; }
+
+    public synchronized boolean finished() {
+        return state == State.DONE || state == State.CANCELLED;
+    }
+
+    synchronized Instant finishedAt() { return finishedAt; }
+
+    /* ==================== 状态流转（由 JobService 调用） ==================== */
+
+    synchronized void started() {
+        state = State.RUNNING;
+        startedAt = Instant.now();
+    }
+
+    synchronized void finish() {
+        for (int i = 0; i < itemStates.length; i++) {
+            if (itemStates[i] == ItemState.PENDING) itemSkipped(i);
+        }
+        state = cancelRequested ? State.CANCELLED : State.DONE;
+        finishedAt = Instant.now();
+        notifyAll();
+    }
+
+    /** 请求取消；已结束的任务返回 false */
+    synchronized boolean requestCancel() {
+        if (finished()) return false;
+        cancelRequested = true;
+        return true;
+    }
+
+    synchronized void itemStarted(int i) {
+        itemStates[i] = ItemState.RUNNING;
+    }
+
+    synchronized void itemDone(int i, Object result) {
+        itemStates[i] = ItemState.DONE;
+        results[i] = result;
+        finishedOrder.add(i);
+        notifyAll();
+    }
+
+    synchronized void itemFailed(int i, String error) {
+        itemStates[i] = ItemState.ERROR;
+        errors[i] = error;
+        finishedOrder.add(i);
+        notifyAll();
+    }
+
+    synchronized void itemSkipped(int i) {
+        itemStates[i] = ItemState.SKIPPED;
+        finishedOrder.add(i);
+        notifyAll();
+    }
+
+    /** 等到有第 from 个之后的完成项、或任务结束、或超时 */
+    public synchronized void awaitProgress(int from, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (finishedOrder.size() <= from && !finished()) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return;
+            wait(left);
+        }
+    }
+
+    /* ==================== 对外视图 ==================== */
+
+    public static class Item {
+        public int index;
+        public String name;
+        public ItemState state;
+        public String error;
+    }
+
+    public static class Status {
+        public String id;
+        public String type;
+        public State state;
+        public int total;
+        public int done;         // 成功
+        public int failed;       // 出错
+        public int skipped;      // 取消后跳过
+        public int running;
+        public double progress;  // 已结束子项占比 0~1
+        public String createdAt;
+        public String startedAt;
+        public String finishedAt;
+        public List<Item> items; // 仅在请求明细时返回
+    }
+
+    public static class Entry {
+        public int seq;          // 完成序号
+        public int index;        // 子项在提交时的位置
+        public String name;
+        public ItemState state;
+        public String error;
+        public Object result;
+    }
+
+    public static class Results {
+        public String id;
+        public State state;
+        public int from;
+        public int next;         // 下次轮询的 from
+        public boolean complete; // 任务已结束且全部取走
+        public List<Entry> results = new ArrayList<>();
+    }
+
+    public synchronized Status status(boolean withItems) {
+        Status s = new Status();
+        s.id = id;
+        s.type = type;
+        s.state = state;
+        s.total = names.size();
+        for (ItemState st : itemStates) {
+            if (st == ItemState.DONE) s.done++;
+            else if (st == ItemState.ERROR) s.failed++;
+            else if (st == ItemState.SKIPPED) s.skipped++;
+            else if (st == ItemState.RUNNING) s.running++;
+        }
+        s.progress = s.total == 0 ? 1.0 : (double) finishedOrder.size() / s.total;
+        s.createdAt = createdAt.toString();
+        s.startedAt = startedAt == null ? null : startedAt.toString();
+        s.finishedAt = finishedAt == null ? null : finishedAt.toString();
+        if (withItems) {
+            s.items = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                Item it = new Item();
+                it.index = i;
+                it.name = names.get(i);
+                it.state = itemStates[i];
+                it.error = errors[i];
+                s.items.add(it);
+            }
+        }
+        return s;
+    }
+
+    /** 第 from 个起（按完成顺序）的已完成子项 */
+    public synchronized Results results(int from) {
+        Results r = new Results();
+        r.id = id;
+        r.state = state;
+        r.from = Math.max(0, Math.min(from, finishedOrder.size()));
+        for (int seq = r.from; seq < finishedOrder.size(); seq++) {
+            int i = finishedOrder.get(seq);
+            Entry e = new Entry();
+            e.seq = seq;
+            e.index = i;
+            e.name = names.get(i);
+            e.state = itemStates[i];
+            e.error = errors[i];
+            e.result = results[i];
+            r.results.add(e);
+        }
+        r.next = finishedOrder.size();
+        r.complete = finished() && r.next == names.size();
+        return r;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.guowangwaveformimage.job;
+
+/** 任务队列已满（映射为 429） */
+public class JobQueueFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JobQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.guowangwaveformimage.job;
+
+/*
+    异步批量任务调度：
+    - 任务在独立的有界线程池中排队（analysis.jobs.*），队列满时直接拒绝（429），不占用 Tomcat 线程
+    - 提交时先把上传文件落到任务临时目录，任务结束后删除
+    - 任务内的子项仍交给 AnalysisExecutor 并行执行，每项完成即写回任务，可被轮询
+    - 已结束的任务按保留时长 / 数量上限清理
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Component
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    /** 子项分析：files 为落盘后的上传文件（与提交顺序一致），index 为子项序号 */
+    @FunctionalInterface
+    public interface ItemTask {
+        Object analyze(List<MultipartFile> files, int index) throws Exception;
+    }
+
+    private final AnalysisExecutor executor;
+    private final ThreadPoolExecutor pool;
+    private final Map<String, Runner> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final int maxRetained;
+
+    public JobService(AnalysisExecutor executor, AnalysisProperties props) {
+        AnalysisProperties.Jobs cfg = props.getJobs();
+        this.executor = executor;
+        this.retention = cfg.getRetention();
+        this.maxRetained = Math.max(1, cfg.getMaxRetained());
+        int workers = Math.max(1, cfg.getWorkers());
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cfg.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "analysis-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交任务：itemNames 决定子项个数，uploads 全部落盘后交给 task。
+     * 队列已满时抛 JobQueueFullException。
+     */
+    public AnalysisJob submit(String type, List<String> itemNames, List<MultipartFile> uploads, ItemTask task) {
+        purge();
+        // 先粗查一次，避免队列已满时还去落盘
+        if (pool.getQueue().remainingCapacity() == 0) throw queueFull();
+
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), type, itemNames);
+        Runner runner = new Runner(job, task);
+        try {
+            runner.stage(uploads);
+        } catch (IOException e) {
+            runner.cleanup();
+            throw new UncheckedIOException("上传文件暂存失败", e);
+        }
+
+        jobs.put(job.id(), runner);
+        try {
+            pool.execute(runner);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            runner.cleanup();
+            throw queueFull();
+        }
+        return job;
+    }
+
+    public Optional<AnalysisJob> get(String id) {
+        Runner r = jobs.get(id);
+        return r == null ? Optional.empty() : Optional.of(r.job);
+    }
+
+    public List<AnalysisJob> list() {
+        purge();
+        return jobs.values().stream().map(r -> r.job)
+                .sorted(Comparator.comparing(AnalysisJob::createdAt))
+                .collect(Collectors.toList());
+    }
+
+    /** 取消任务；排队中的任务直接出队结束。返回任务是否存在 */
+    public Optional<AnalysisJob> cancel(String id) {
+        Runner r = jobs.get(id);
+        if (r == null) return Optional.empty();
+        if (r.job.requestCancel() && pool.remove(r)) {
+            r.job.finish();
+            r.cleanup();
+        }
+        return Optional.of(r.job);
+    }
+
+    private JobQueueFullException queueFull() {
+        return new JobQueueFullException("任务队列已满（" + pool.getQueue().size() + " 个排队），请稍后重试");
+    }
+
+    /* ==================== 清理 ==================== */
+
+    private void purge() {
+        Instant expire = Instant.now().minus(retention);
+        jobs.values().removeIf(r -> r.job.finished() && r.job.finishedAt().isBefore(expire));
+
+        List<Runner> done = jobs.values().stream().filter(r -> r.job.finished())
+                .sorted(Comparator.comparing(r -> r.job.finishedAt()))
+                .collect(Collectors.toList());
+        for (int i = 0; i < done.size() - maxRetained; i++) jobs.remove(done.get(i).job.id());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+        jobs.values().forEach(Runner::cleanup);
+    }
+
+    /* ==================== 单个任务的执行 ==================== */
+
+    private final class Runner implements Runnable {
+        final AnalysisJob job;
+        final ItemTask task;
+        Path dir;
+        List<MultipartFile> files = List.of();
+
+        Runner(AnalysisJob job, ItemTask task) {
+            this.job = job;
+            this.task = task;
+        }
+
+        void stage(List<MultipartFile> uploads) throws IOException {
+            dir = Files.createTempDirectory("analysis-job-");
+            List<MultipartFile> staged = new ArrayList<>(uploads.size());
+            for (int i = 0; i < uploads.size(); i++) {
+                staged.add(StagedFile.stage(uploads.get(i), dir.resolve(i + ".upload")));
+            }
+            files = staged;
+        }
+
+        @Override
+        public void run() {
+            job.started();
+            try {
+                List<Integer> idx = IntStream.range(0, job.total()).boxed().collect(Collectors.toList());
+                executor.invokeAll(idx, this::runItem);
+            } catch (CancellationException e) {
+                job.requestCancel(); // 线程池关闭
+            } finally {
+                job.finish();
+                cleanup();
+            }
+        }
+
+        private Void runItem(int i) {
+            if (job.cancelRequested()) {
+                job.itemSkipped(i);
+                return null;
+            }
+            job.itemStarted(i);
+            try {
+                Object r = task.analyze(files, i);
+                if (r == null) job.itemFailed(i, "处理失败");
+                else job.itemDone(i, r);
+            } catch (Exception e) {
+                job.itemFailed(i, e.getMessage());
+            }
+            return null;
+        }
+
+        void cleanup() {
+            if (dir == null) return;
+            try {
+                FileSystemUtils.deleteRecursively(dir);
+            } catch (IOException e) {
+                log.warn("任务临时目录删除失败: {} {}", dir, e.getMessage());
+            }
+        }
+    }
+}
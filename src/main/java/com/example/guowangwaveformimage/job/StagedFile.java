@@ -0,0 +1,51 @@
+package com.example.guowangwaveformimage.job;
+
+/*
+    异步任务的上传文件：请求结束前先落到任务临时目录（容器会在请求结束后删除 multipart 临时文件），
+    之后按 MultipartFile 交给各分析流程，任务结束时随目录一起删除。
+*/
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class StagedFile implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final Path path;
+    private final long size;
+
+    private StagedFile(MultipartFile src, Path path) throws IOException {
+        this.name = src.getName();
+        this.originalFilename = src.getOriginalFilename();
+        this.contentType = src.getContentType();
+        this.path = path;
+        this.size = Files.size(path);
+    }
+
+    /** 把上传文件转存到 path（容器已落盘时一般只是移动） */
+    public static StagedFile stage(MultipartFile src, Path path) throws IOException {
+        src.transferTo(path);
+        return new StagedFile(src, path);
+    }
+
+    @Override public String getName() { return name; }
+    @Override public String getOriginalFilename() { return originalFilename; }
+    @Override public String getContentType() { return contentType; }
+    @Override public boolean isEmpty() { return size == 0; }
+    @Override public long getSize() { return size; }
+    @Override public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+    @Override public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.guowangwaveformimage.layout;
+
+/*
+    按布局指纹保存的刻度标定：
+    - 每相虚线位置（ROI 内行号）与当时的 0 轴行 y2：
+      · 学习：各相分析检测到的虚线交给 observe()，连续 analysis.calibration.min-samples 次一致后生效
+      · 确认：操作员用样例图标定（POST /calibrations/{layout}/sample），立即生效且不再被学习覆盖
+      · 生效后同一布局的图片直接用保存的虚线，跳过虚线检测；检测到的 y2 与保存的相差超过容差时视为未命中
+    - 每段物理量：操作员可按布局覆盖（PUT /calibrations/{layout}/scale），未覆盖时用布局自带的值
+    - 操作员改动写入 analysis.calibration.file（为空则只在内存），启动时读回；学习结果只在内存
+    布局几何或刻度变化后指纹随之变化，旧标定自然不再命中。
+    操作员改动、学习结果开始或不再生效时 version() 加一，各接口把它放进结果缓存 key，
+    标定变化后无需重新上传即可得到新结果。
+*/
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class CalibrationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibrationStore.class);
+
+    /** 单相虚线标定（放入表后视为只读，更新时整体替换） */
+    public static class PhaseDashes {
+        public int y2;                  // 0 轴（中间实线）行
+        public List<Integer> dashYs;    // 虚线行，升序
+        public int samples;             // 连续一致的观测次数
+        public boolean confirmed;       // 操作员确认
+
+        public PhaseDashes() {}
+
+        PhaseDashes(int y2, List<Integer> dashYs, int samples, boolean confirmed) {
+            this.y2 = y2;
+            this.dashYs = List.copyOf(dashYs);
+            this.samples = samples;
+            this.confirmed = confirmed;
+        }
+
+        boolean matches(int y2, List<Integer> ys, int tol) {
+            if (Math.abs(this.y2 - y2) > tol || dashYs.size() != ys.size()) return false;
+            for (int i = 0; i < ys.size(); i++) {
+                if (Math.abs(dashYs.get(i) - ys.get(i)) > tol) return false;
+            }
+            return true;
+        }
+    }
+
+    /** 单个布局的标定（/calibrations 的返回结构，也是持久化格式） */
+    public static class LayoutCalibration {
+        public String layout;
+        public String fingerprint;
+        public Double voltagePerSeg;    // 覆盖值，null 表示用布局自带
+        public Double currentPerSeg;
+        public Map<Integer, PhaseDashes> phases = new TreeMap<>();
+    }
+
+    /** 各相分析使用的标定入口；NONE 从不命中、不学习（测试 / 基准中直接调用各相方法时） */
+    public static final class Slot {
+        public static final Slot NONE = new Slot(null, null);
+
+        private final CalibrationStore store;
+        private final String key;
+
+        private Slot(CalibrationStore store, String key) {
+            this.store = store;
+            this.key = key;
+        }
+
+        /** 已生效且 y2 与保存值一致时返回保存的虚线，否则 null（调用方自行检测后 observe） */
+        public List<Integer> dashes(int y2) {
+            return store == null ? null : store.dashes(key, y2);
+        }
+
+        public void observe(int y2, List<Integer> dashYs) {
+            if (store != null) store.observe(key, y2, dashYs);
+        }
+    }
+
+    private final int minSamples;
+    private final int tolerancePx;
+    private final Path file;
+    private final ObjectMapper mapper;
+    private final Map<String, PhaseDashes> dashes = new ConcurrentHashMap<>();   // 指纹#相 -> 虚线
+    private final Map<String, LayoutCalibration> scales = new ConcurrentHashMap<>();  // 指纹 -> 覆盖刻度
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public CalibrationStore(AnalysisProperties props, ObjectMapper mapper) {
+        this(props.getCalibration().getMinSamples(), props.getCalibration().getTolerancePx(),
+                props.getCalibration().getFile(), mapper);
+    }
+
+    /** 只在内存（测试 / 基准中直接构造时使用） */
+    public CalibrationStore() {
+        this(3, 2, "", new ObjectMapper());
+    }
+
+    public CalibrationStore(int minSamples, int tolerancePx, String file, ObjectMapper mapper) {
+        this.minSamples = Math.max(1, minSamples);
+        this.tolerancePx = Math.max(0, tolerancePx);
+        this.file = file == null || file.isBlank() ? null : Paths.get(file);
+        this.mapper = mapper;
+        load();
+    }
+
+    private static String key(String fingerprint, int phase) {
+        return fingerprint + "#" + phase;
+    }
+
+    public Slot slot(LayoutProfile layout, int phase) {
+        return new Slot(this, key(layout.getFingerprint(), phase));
+    }
+
+    /** 操作员改动次数，放进结果缓存 key */
+    public long version() { return version.get(); }
+
+    /** 每段物理量：操作员覆盖值优先，否则用布局自带 */
+    public double perSeg(LayoutProfile layout, boolean voltage) {
+        LayoutCalibration c = scales.get(layout.getFingerprint());
+        Double v = c == null ? null : voltage ? c.voltagePerSeg : c.currentPerSeg;
+        return v != null ? v : layout.perSeg(voltage);
+    }
+
+    List<Integer> dashes(String key, int y2) {
+        PhaseDashes p = dashes.get(key);
+        if (p != null && (p.confirmed || p.samples >= minSamples) && Math.abs(p.y2 - y2) <= tolerancePx) {
+            hits.incrementAndGet();
+            return p.dashYs;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void observe(String key, int y2, List<Integer> dashYs) {
+        if (dashYs.isEmpty()) return;
+        PhaseDashes[] before = new PhaseDashes[1];
+        PhaseDashes now = dashes.compute(key, (k, old) -> {
+            before[0] = old;
+            if (old != null && old.confirmed) return old;
+            if (old != null && old.matches(y2, dashYs, tolerancePx)) {
+                return new PhaseDashes(old.y2, old.dashYs, old.samples + 1, false);
+            }
+            return new PhaseDashes(y2, dashYs, 1, false);
+        });
+        // 学习结果开始（或不再）生效：之前缓存的结果用的是另一套虚线（不持久化）
+        if (learned(before[0]) != learned(now)) version.incrementAndGet();
+    }
+
+    private boolean learned(PhaseDashes p) {
+        return p != null && !p.confirmed && p.samples >= minSamples;
+    }
+
+    /* ==================== 操作员 ==================== */
+
+    /** 用样例图测得的各相虚线确认标定；perSeg 为 null 的保持原覆盖值 */
+    public LayoutCalibration confirm(LayoutProfile layout, Map<Integer, PhaseDashes> measured,
+                                     Double voltagePerSeg, Double currentPerSeg) {
+        String fp = layout.getFingerprint();
+        measured.forEach((i, p) -> dashes.put(key(fp, i), new PhaseDashes(p.y2, p.dashYs, p.samples, true)));
+        if (voltagePerSeg != null || currentPerSeg != null) updateScale(layout, voltagePerSeg, currentPerSeg);
+        changed();
+        return get(layout);
+    }
+
+    /** 只修正每段物理量（不动虚线） */
+    public LayoutCalibration setScale(LayoutProfile layout, Double voltagePerSeg, Double currentPerSeg) {
+        updateScale(layout, voltagePerSeg, currentPerSeg);
+        changed();
+        return get(layout);
+    }
+
+    private void updateScale(LayoutProfile layout, Double voltagePerSeg, Double currentPerSeg) {
+        if ((voltagePerSeg != null && !(voltagePerSeg > 0)) || (currentPerSeg != null && !(currentPerSeg > 0))) {
+            throw new IllegalArgumentException("每段物理量必须为正数");
+        }
+        scales.compute(layout.getFingerprint(), (k, old) -> {
+            LayoutCalibration c = new LayoutCalibration();
+            c.layout = layout.getName();
+            c.fingerprint = k;
+            c.voltagePerSeg = voltagePerSeg != null ? voltagePerSeg : old == null ? null : old.voltagePerSeg;
+            c.currentPerSeg = currentPerSeg != null ? currentPerSeg : old == null ? null : old.currentPerSeg;
+            return c;
+        });
+    }
+
+    /** 清除布局的全部标定（含学习结果） */
+    public void remove(LayoutProfile layout) {
+        String fp = layout.getFingerprint();
+        scales.remove(fp);
+        dashes.keySet().removeIf(k -> k.startsWith(fp + "#"));
+        changed();
+    }
+
+    public LayoutCalibration get(LayoutProfile layout) {
+        String fp = layout.getFingerprint();
+        LayoutCalibration c = new LayoutCalibration();
+        c.layout = layout.getName();
+        c.fingerprint = fp;
+        LayoutCalibration s = scales.get(fp);
+        if (s != null) {
+            c.voltagePerSeg = s.voltagePerSeg;
+            c.currentPerSeg = s.currentPerSeg;
+        }
+        for (int i = 0; i < layout.names().length; i++) {
+            PhaseDashes p = dashes.get(key(fp, i));
+            if (p != null) c.phases.put(i, p);
+        }
+        return c;
+    }
+
+    public Map<String, Long> stats() {
+        return Map.of("hits", hits.get(), "misses", misses.get(), "version", version.get());
+    }
+
+    /* ==================== 持久化（只保存操作员改动） ==================== */
+
+    private void changed() {
+        version.incrementAndGet();
+        save();
+    }
+
+    private synchronized void save() {
+        if (file == null) return;
+        Map<String, LayoutCalibration> out = new TreeMap<>();
+        scales.forEach((fp, s) -> out.put(fp, copyScale(s)));
+        dashes.forEach((k, p) -> {
+            if (!p.confirmed) return;
+            int cut = k.lastIndexOf('#');
+            String fp = k.substring(0, cut);
+            LayoutCalibration c = out.computeIfAbsent(fp, f -> {
+                LayoutCalibration n = new LayoutCalibration();
+                n.fingerprint = f;
+                return n;
+            });
+            c.phases.put(Integer.parseInt(k.substring(cut + 1)), p);
+        });
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "calibration", ".tmp");
+            mapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new ArrayList<>(out.values()));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("刻度标定写入失败: {} {}", file, e.getMessage());
+        }
+    }
+
+    private static LayoutCalibration copyScale(LayoutCalibration s) {
+        LayoutCalibration c = new LayoutCalibration();
+        c.layout = s.layout;
+        c.fingerprint = s.fingerprint;
+        c.voltagePerSeg = s.voltagePerSeg;
+        c.currentPerSeg = s.currentPerSeg;
+        return c;
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) return;
+        try {
+            List<LayoutCalibration> in = mapper.readValue(file.toFile(), new TypeReference<List<LayoutCalibration>>() {});
+            for (LayoutCalibration c : in) {
+                if (c.fingerprint == null) continue;
+                if (c.voltagePerSeg != null || c.currentPerSeg != null) scales.put(c.fingerprint, copyScale(c));
+                if (c.phases == null) continue;
+                c.phases.forEach((i, p) -> {
+                    if (p.dashYs != null) dashes.put(key(c.fingerprint, i), new PhaseDashes(p.y2, p.dashYs, p.samples, true));
+                });
+            }
+            log.info("已读入刻度标定: {}（{} 个布局）", file, in.size());
+        } catch (IOException e) {
+            log.warn("刻度标定读取失败，忽略: {} {}", file, e.getMessage());
+        }
+    }
+}
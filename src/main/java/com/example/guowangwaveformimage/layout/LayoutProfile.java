@@ -0,0 +1,206 @@
+package com.example.guowangwaveformimage.layout;
+
+/*
+    录波截图布局：各相 ROI 矩形、每段物理量、每格时间，以及用于自动识别的整图尺寸。
+    同一 ROI 内叠加多条波形时（如电压、电流画在一张图上），traces 按名称给出各条的色相区间；未配置时自动聚类。
+    在 application.yml（analysis.layouts）中配置，或以 JSON 上传到 /layouts。
+    注册时调用 validate() 校验并冻结派生字段，之后视为只读。
+*/
+
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.opencv.core.Rect;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class LayoutProfile {
+
+    /** 单相 ROI */
+    public static class PhaseRoi {
+        private String name;
+        private int x, y, width, height;
+
+        public PhaseRoi() {}
+
+        public PhaseRoi(String name, int x, int y, int width, int height) {
+            this.name = name;
+            this.x = x; this.y = y; this.width = width; this.height = height;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getX() { return x; }
+        public void setX(int x) { this.x = x; }
+        public int getY() { return y; }
+        public void setY(int y) { this.y = y; }
+        public int getWidth() { return width; }
+        public void setWidth(int width) { this.width = width; }
+        public int getHeight() { return height; }
+        public void setHeight(int height) { this.height = height; }
+    }
+
+    /** 叠加波形的颜色：名称（voltage / current 等）+ 色相区间（OpenCV H，0..179，hueMin > hueMax 表示跨过 0） */
+    public static class TraceColor {
+        private String name;
+        private int hueMin, hueMax;
+
+        public TraceColor() {}
+
+        public TraceColor(String name, int hueMin, int hueMax) {
+            this.name = name;
+            this.hueMin = hueMin;
+            this.hueMax = hueMax;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getHueMin() { return hueMin; }
+        public void setHueMin(int hueMin) { this.hueMin = hueMin; }
+        public int getHueMax() { return hueMax; }
+        public void setHueMax(int hueMax) { this.hueMax = hueMax; }
+    }
+
+    private String name;
+    /** 整图尺寸，0 表示不限（只靠线条特征识别） */
+    private int imageWidth;
+    private int imageHeight;
+    private List<PhaseRoi> phases = new ArrayList<>();
+    /** 每段物理量（虚线刻度）：电压（V）、电流（A） */
+    private double voltagePerSeg = 200000.0;
+    private double currentPerSeg = 500.0;
+    /** 每两条竖实线之间的时间（秒） */
+    private double secondsPerGrid = 0.025;
+    private List<TraceColor> traces = new ArrayList<>();
+
+    // validate() 后的派生字段
+    private Rect[] rects;
+    private String[] names;
+    private List<Integer> indexes;
+    private String fingerprint;
+    private Map<String, HueRange> traceHues;
+
+    /** 内置布局：原先各接口写死的三相 ROI */
+    public static LayoutProfile builtin() {
+        LayoutProfile p = new LayoutProfile();
+        p.setName("default");
+        p.getPhases().add(new PhaseRoi("A", 55, 56, 1400, 310));
+        p.getPhases().add(new PhaseRoi("B", 55, 370, 1400, 310));
+        p.getPhases().add(new PhaseRoi("C", 55, 683, 1400, 310));
+        return p.validate();
+    }
+
+    /** 校验并计算派生字段；不合法时抛 IllegalArgumentException */
+    public LayoutProfile validate() {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("布局缺少 name");
+        if (phases == null || phases.isEmpty()) throw new IllegalArgumentException("布局 " + name + " 未配置任何相");
+        if (imageWidth < 0 || imageHeight < 0) throw new IllegalArgumentException("布局 " + name + " 整图尺寸不能为负");
+        if (!(voltagePerSeg > 0) || !(currentPerSeg > 0) || !(secondsPerGrid > 0)) {
+            throw new IllegalArgumentException("布局 " + name + " 的刻度必须为正数");
+        }
+        int n = phases.size();
+        Rect[] r = new Rect[n];
+        String[] ns = new String[n];
+        List<Integer> idx = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            PhaseRoi p = phases.get(i);
+            if (p.width < 16 || p.height < 16 || p.x < 0 || p.y < 0) {
+                throw new IllegalArgumentException("布局 " + name + " 第 " + (i + 1) + " 相 ROI 不合法");
+            }
+            if (imageWidth > 0 && (p.x + p.width > imageWidth || p.y + p.height > imageHeight)) {
+                throw new IllegalArgumentException("布局 " + name + " 第 " + (i + 1) + " 相 ROI 超出整图");
+            }
+            r[i] = new Rect(p.x, p.y, p.width, p.height);
+            ns[i] = p.name != null && !p.name.isBlank() ? p.name : String.valueOf((char) ('A' + i));
+            idx.add(i);
+        }
+        Map<String, HueRange> hues = new LinkedHashMap<>();
+        for (TraceColor t : traces == null ? List.<TraceColor>of() : traces) {
+            if (t.name == null || t.name.isBlank()) throw new IllegalArgumentException("布局 " + name + " 的叠加波形缺少 name");
+            try {
+                hues.put(t.name.trim().toLowerCase(Locale.ROOT), new HueRange(t.hueMin, t.hueMax));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("布局 " + name + " 的叠加波形 " + t.name + ": " + e.getMessage());
+            }
+        }
+        rects = r;
+        names = ns;
+        traceHues = Collections.unmodifiableMap(hues);
+        indexes = Collections.unmodifiableList(idx);
+        fingerprint = computeFingerprint();
+        return this;
+    }
+
+    /* ==================== 派生（validate 之后可用） ==================== */
+
+    public Rect[] rects() { return rects; }
+    public String[] names() { return names; }
+    /** 相下标 0..n-1（各相并行分析用） */
+    public List<Integer> indexes() { return indexes; }
+
+    /** 几何与刻度的摘要：名称相同但内容不同的布局指纹不同 */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getFingerprint() { return fingerprint; }
+
+    public boolean hasImageSize() { return imageWidth > 0 && imageHeight > 0; }
+
+    /** 所有 ROI 都落在 w x h 的图内 */
+    public boolean fits(int w, int h) {
+        for (Rect r : rects) if (r.x + r.width > w || r.y + r.height > h) return false;
+        return true;
+    }
+
+    public double perSeg(boolean voltage) { return voltage ? voltagePerSeg : currentPerSeg; }
+
+    /** 名称（不区分大小写）对应的叠加波形色相区间；未配置为 null */
+    public HueRange traceHue(String traceName) {
+        return traceHues.get(traceName.toLowerCase(Locale.ROOT));
+    }
+
+    private String computeFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(imageWidth).append('x').append(imageHeight);
+        for (int i = 0; i < rects.length; i++) {
+            Rect r = rects[i];
+            sb.append('|').append(names[i]).append(':').append(r.x).append(',').append(r.y)
+                    .append(',').append(r.width).append(',').append(r.height);
+        }
+        sb.append('|').append(voltagePerSeg).append('|').append(currentPerSeg).append('|').append(secondsPerGrid);
+        // 旧布局（未配置叠加波形）的指纹不变，已保存的标定继续命中
+        traceHues.forEach((k, v) -> sb.append('|').append(k).append(':').append(v));
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(name).append('-');
+            for (int i = 0; i < 6; i++) hex.append(Character.forDigit((d[i] >> 4) & 0xF, 16)).append(Character.forDigit(d[i] & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* ==================== 属性 ==================== */
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public int getImageWidth() { return imageWidth; }
+    public void setImageWidth(int imageWidth) { this.imageWidth = imageWidth; }
+    public int getImageHeight() { return imageHeight; }
+    public void setImageHeight(int imageHeight) { this.imageHeight = imageHeight; }
+    public List<PhaseRoi> getPhases() { return phases; }
+    public void setPhases(List<PhaseRoi> phases) { this.phases = phases; }
+    public double getVoltagePerSeg() { return voltagePerSeg; }
+    public void setVoltagePerSeg(double voltagePerSeg) { this.voltagePerSeg = voltagePerSeg; }
+    public double getCurrentPerSeg() { return currentPerSeg; }
+    public void setCurrentPerSeg(double currentPerSeg) { this.currentPerSeg = currentPerSeg; }
+    public double getSecondsPerGrid() { return secondsPerGrid; }
+    public void setSecondsPerGrid(double secondsPerGrid) { this.secondsPerGrid = secondsPerGrid; }
+    public List<TraceColor> getTraces() { return traces; }
+    public void setTraces(List<TraceColor> traces) { this.traces = traces; }
+}
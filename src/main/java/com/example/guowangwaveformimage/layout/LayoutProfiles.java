@@ -0,0 +1,207 @@
+package com.example.guowangwaveformimage.layout;
+
+/*
+    布局注册表与自动识别：
+    - 布局来自 analysis.layouts（未配置时为内置 default），可经 /layouts 上传 / 删除
+    - 识别顺序：请求指定 > 图片内容摘要命中 > 文件头尺寸只对应一个候选 > 解码后按线条特征打分
+      · 候选：整图尺寸完全一致的布局；没有时取不限尺寸且 ROI 落在图内的布局
+      · 线条特征：每个 ROI 内暗像素占宽度 60% 以上的行合并后至少 3 条（上、中、下实线），按满足的相数打分
+    - 尺寸 -> 候选列表按尺寸缓存，特征打分结果按内容摘要缓存；注册表变更时一并失效
+    同一批上传中不同录波器的截图各自识别，互不影响。
+*/
+
+import com.example.guowangwaveformimage.cache.LruCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.ScratchPool;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class LayoutProfiles {
+
+    // 与 Pixels.isBlack 的灰度近似：< 150 视为暗
+    private static final double DARK_THRESH = 149;
+    private static final double LINE_RATIO = 0.6;
+    private static final int LINE_MERGE_PX = 10;
+    private static final int MIN_LINES = 3;
+
+    private final ScratchPool scratch;
+    private volatile List<LayoutProfile> profiles;
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Long, List<LayoutProfile>> bySize = new ConcurrentHashMap<>();
+    private final LruCache<String, LayoutProfile> byContent;
+
+    @Autowired
+    public LayoutProfiles(AnalysisProperties props, ScratchPool scratch) {
+        this(props.getLayouts(), scratch, props.getCache().getResultMaxEntries(), props.getCache().getResultTtl());
+    }
+
+    /** 只有内置布局（测试 / 基准中直接构造时使用） */
+    public LayoutProfiles() {
+        this(List.of(), new ScratchPool(), 1024, Duration.ofMinutes(30));
+    }
+
+    public LayoutProfiles(List<LayoutProfile> configured, ScratchPool scratch, int cacheEntries, Duration ttl) {
+        this.scratch = scratch;
+        this.byContent = new LruCache<>(Math.max(1, cacheEntries), ttl);
+        List<LayoutProfile> init = new ArrayList<>();
+        if (configured == null || configured.isEmpty()) init.add(LayoutProfile.builtin());
+        else for (LayoutProfile p : configured) init.add(p.validate());
+        this.profiles = Collections.unmodifiableList(init);
+    }
+
+    /* ==================== 注册表 ==================== */
+
+    public List<LayoutProfile> all() { return profiles; }
+
+    /** 注册表版本：每次增删加一，用作结果缓存 key 的一部分 */
+    public long version() { return version.get(); }
+
+    /** 默认布局（第一个） */
+    public LayoutProfile primary() { return profiles.get(0); }
+
+    public LayoutProfile get(String name) {
+        for (LayoutProfile p : profiles) if (p.getName().equals(name)) return p;
+        return null;
+    }
+
+    /** 未知名称抛 IllegalArgumentException */
+    public LayoutProfile require(String name) {
+        LayoutProfile p = get(name);
+        if (p == null) throw new IllegalArgumentException("未知的布局: " + name);
+        return p;
+    }
+
+    /** 新增或替换同名布局 */
+    public synchronized LayoutProfile register(LayoutProfile p) {
+        p.validate();
+        List<LayoutProfile> next = new ArrayList<>(profiles);
+        next.removeIf(o -> o.getName().equals(p.getName()));
+        next.add(p);
+        replace(next);
+        return p;
+    }
+
+    public synchronized boolean remove(String name) {
+        List<LayoutProfile> next = new ArrayList<>(profiles);
+        if (!next.removeIf(o -> o.getName().equals(name))) return false;
+        if (next.isEmpty()) throw new IllegalArgumentException("至少保留一个布局");
+        replace(next);
+        return true;
+    }
+
+    private void replace(List<LayoutProfile> next) {
+        profiles = Collections.unmodifiableList(next);
+        bySize.clear();
+        byContent.clear();
+        version.incrementAndGet();
+    }
+
+    /** 结果缓存 key 片段：指定布局时为其指纹，自动识别时为注册表版本 */
+    public String cacheKey(LayoutProfile forced) {
+        return forced != null ? forced.getFingerprint() : "auto@" + version.get();
+    }
+
+    public LruCache.Stats stats() { return byContent.stats(); }
+
+    /* ==================== 识别 ==================== */
+
+    /**
+     * 不解码就能确定的布局：请求指定、内容摘要命中、文件头尺寸只对应一个候选、或只有一个布局。
+     * 返回 null 表示需要解码后调用 detect()。
+     */
+    public LayoutProfile resolve(ImageDecoder.EncodedImage enc, LayoutProfile forced) {
+        if (forced != null) return forced;
+        List<LayoutProfile> ps = profiles;
+        if (ps.size() == 1) return ps.get(0);
+        LayoutProfile hit = byContent.get(enc.hash());
+        if (hit != null) return hit;
+        int[] size = enc.headerSize();
+        if (size != null) {
+            List<LayoutProfile> c = candidates(size[0], size[1]);
+            if (c.size() == 1) return c.get(0);
+        }
+        return null;
+    }
+
+    /** 按解码后的图像识别，结果按内容摘要缓存；没有任何候选时退回默认布局 */
+    public LayoutProfile detect(Mat img, String contentHash) {
+        List<LayoutProfile> c = candidates(img.cols(), img.rows());
+        LayoutProfile best;
+        if (c.isEmpty()) best = primary();
+        else if (c.size() == 1) best = c.get(0);
+        else best = bestBySignature(img, c);
+        if (contentHash != null) byContent.put(contentHash, best);
+        return best;
+    }
+
+    /** 整图尺寸一致的布局；没有时取不限尺寸且 ROI 落在图内的布局（按注册顺序） */
+    List<LayoutProfile> candidates(int w, int h) {
+        long key = ((long) w << 32) | (h & 0xFFFFFFFFL);
+        return bySize.computeIfAbsent(key, k -> {
+            List<LayoutProfile> exact = new ArrayList<>(), loose = new ArrayList<>();
+            for (LayoutProfile p : profiles) {
+                if (p.hasImageSize()) {
+                    if (p.getImageWidth() == w && p.getImageHeight() == h) exact.add(p);
+                } else if (p.fits(w, h)) {
+                    loose.add(p);
+                }
+            }
+            return List.copyOf(exact.isEmpty() ? loose : exact);
+        });
+    }
+
+    private LayoutProfile bestBySignature(Mat img, List<LayoutProfile> cands) {
+        try (ScratchPool.Scope tmp = scratch.open()) {
+            Mat gray = tmp.mat(), dark = tmp.mat(), v = tmp.mat();
+            Imgproc.cvtColor(img, gray, Imgproc.COLOR_BGR2GRAY);
+            Imgproc.threshold(gray, dark, DARK_THRESH, 1, Imgproc.THRESH_BINARY_INV);
+            LayoutProfile best = cands.get(0);
+            int bestScore = -1;
+            for (LayoutProfile p : cands) {
+                int score = 0;
+                for (Rect r : p.rects()) {
+                    if (lineCount(dark, r, v) >= MIN_LINES) score++;
+                }
+                if (score > bestScore) {
+                    best = p;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+
+    // ROI 内暗像素占宽度 LINE_RATIO 以上的行，近邻合并后的条数
+    private static int lineCount(Mat dark, Rect r, Mat v) {
+        Mat sub = dark.submat(r);
+        try {
+            Core.reduce(sub, v, 1, Core.REDUCE_SUM, CvType.CV_32S);
+        } finally {
+            sub.release();
+        }
+        int[] rows = new int[r.height];
+        v.get(0, 0, rows);
+        int min = (int) (r.width * LINE_RATIO), lines = 0, last = Integer.MIN_VALUE / 2;
+        for (int y = 0; y < rows.length; y++) {
+            if (rows[y] < min) continue;
+            if (y - last > LINE_MERGE_PX) lines++;
+            last = y;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.guowangwaveformimage.metrics;
+
+/*
+    分析指标（Micrometer，经 /actuator/metrics、/actuator/prometheus 暴露）：
+    - analysis.stage{stage}                各阶段耗时：decode / roi / lines / dashes / trace / mapping / estimate
+    - analysis.files{endpoint,cache}       每个文件（功率接口为每对文件）的处理耗时与吞吐，cache=hit|miss
+    - analysis.image.size{endpoint}        上传图片字节数分布
+    - analysis.errors{endpoint,reason}     按错误原因计数（相级错误文本；异常按异常类名）
+    热路径上只有 System.nanoTime() 与预先建好的 Timer，不分配对象。
+*/
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class AnalysisMetrics {
+
+    /** 分析阶段 */
+    public enum Stage {
+        DECODE, ROI, LINES, DASHES, TRACE, MAPPING, ESTIMATE;
+
+        public String tag() { return name().toLowerCase(Locale.ROOT); }
+    }
+
+    // 错误原因标签上限：超出后记为 other，避免异常文本撑爆时序数量
+    private static final int MAX_REASONS = 64;
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<String, Timer> files = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> sizes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+    private final AtomicInteger reasons = new AtomicInteger();   // 已登记的原因标签数（不含 other）
+
+    public AnalysisMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage s : Stage.values()) {
+            stages.put(s, Timer.builder("analysis.stage")
+                    .description("单个分析阶段耗时")
+                    .tag("stage", s.tag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    /** 独立的内存注册表（测试 / 基准中直接构造控制器时使用） */
+    public static AnalysisMetrics standalone() {
+        return new AnalysisMetrics(new SimpleMeterRegistry());
+    }
+
+    public MeterRegistry registry() { return registry; }
+
+    /** 计时起点 */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /** 记录从 startNanos 到现在的阶段耗时 */
+    public void stage(Stage stage, long startNanos) {
+        stages.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** 记录一个文件的处理耗时（hit=结果缓存命中） */
+    public void file(String endpoint, long startNanos, boolean hit) {
+        files.computeIfAbsent(endpoint + (hit ? "|hit" : "|miss"), k -> Timer.builder("analysis.files")
+                        .description("单个文件的处理耗时")
+                        .tag("endpoint", endpoint)
+                        .tag("cache", hit ? "hit" : "miss")
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** 记录上传图片大小（字节） */
+    public void imageSize(String endpoint, long bytes) {
+        sizes.computeIfAbsent(endpoint, k -> DistributionSummary.builder("analysis.image.size")
+                        .description("上传图片字节数")
+                        .baseUnit("bytes")
+                        .tag("endpoint", endpoint)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(1024.0)
+                        .maximumExpectedValue(32.0 * 1024 * 1024)
+                        .register(registry))
+                .record(bytes);
+    }
+
+    /** 按原因计数一次错误；reason 为空时忽略 */
+    public void error(String endpoint, String reason) {
+        if (reason == null) return;
+        String key = endpoint + '|' + reason;
+        Counter c = errors.get(key);
+        if (c == null) {
+            // 名额在 computeIfAbsent 内原子占用：并发登记新原因也不会超过上限
+            c = errors.computeIfAbsent(key, k -> {
+                if (reasons.incrementAndGet() > MAX_REASONS) {
+                    reasons.decrementAndGet();
+                    return null;
+                }
+                return counter(endpoint, reason);
+            });
+            if (c == null) c = errors.computeIfAbsent(endpoint + "|other", k -> counter(endpoint, "other"));
+        }
+        c.increment();
+    }
+
+    private Counter counter(String endpoint, String reason) {
+        return Counter.builder("analysis.errors")
+                .description("按原因统计的分析错误")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /** 异常按异常类名计数（异常文本可能含文件名等变化内容） */
+    public void error(String endpoint, Throwable e) {
+        error(endpoint, e.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.guowangwaveformimage.session;
+
+/*
+    一个完整周期（两次上升过零之间）的结果；电流字段只在会话带电流波形时输出。
+    时间从会话第一个采样起算。
+*/
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Cycle {
+    public long index;          // 会话内序号（从 0 起）
+    public double startMs;      // 起点（上升过零）时刻
+    public double periodMs;     // 周期（ms）
+    public double freqHz;       // 频率（Hz）
+    public double rms_kV;       // 电压有效值 (kV)
+    public double peak_kV;      // 电压峰值（绝对值最大）(kV)
+    public Double irms_A;       // 电流有效值 (A)
+    public Double P_kW;         // 有功功率 (kW)
+    public Double S_kVA;        // 视在功率 (kVA)
+    public Double PF;           // 功率因数 (0~1)
+}
@@ -0,0 +1,187 @@
+package com.example.guowangwaveformimage.session;
+
+/*
+    逐周期跟踪：一条连续的采样序列分批追加（每帧一批），状态跨批保持。
+    - 采样为已换算的物理量（电压 V，0 轴为 0，无效为 NaN），可附带同一时间轴的电流采样（A）
+    - 周期边界为上升过零点（前后两个有效采样线性插值，亚像素）；带回差：须先低于 -HYSTERESIS × 幅值
+      才认下一次过零，0 附近的噪声抖动不会切出短周期
+    - 每个周期闭合时输出一次（周期、频率、有效值、峰值，有电流时再加 Irms、P、S、PF），
+      未闭合的尾部只保留累加量，下一批接着累加，不重算已处理的采样
+    - 周期短于 minPeriod 的过零视为噪声；超过 maxPeriod 仍未闭合、或连续无效采样超过 maxGap 时
+      丢弃当前周期，从下一次过零重新对齐
+    - 最近 ring 个有效采样保存在环形缓冲中，按与单张图相同的周期估计方法给出滚动周期（跨帧窗口）
+    非线程安全：由所属会话串行调用。
+*/
+
+import com.example.guowangwaveformimage.analysis.period.PeriodEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CycleTracker {
+
+    // 回差：相对上一周期峰值（首个周期前为已见最大绝对值）
+    static final double HYSTERESIS = 0.1;
+
+    private final double secondsPerPixel;
+    private final double minPeriodPx;
+    private final double maxPeriodPx;
+    private final int maxGap;
+    private final double[] ring;
+    private int ringNext, ringSize;
+
+    private long pos;                       // 下一个采样的序号（会话内，按帧累计）
+    private double prev = Double.NaN;       // 上一个有效采样及其序号
+    private long prevPos;
+    private int gap;
+    private boolean armed;
+    private double start = Double.NaN;      // 当前周期起点（亚像素序号），NaN 表示尚未对齐
+    private double amp;
+    private long cycles;
+
+    // 当前周期的累加量
+    private int n, nPair;
+    private double sumV2, sumI2, sumVI, peak;
+
+    /**
+     * @param secondsPerPixel 每个采样的时长
+     * @param minPeriodSec    可接受的最短周期
+     * @param maxPeriodSec    可接受的最长周期
+     * @param ringPeriods     环形缓冲容纳的最长周期数（滚动估计的窗口）
+     */
+    public CycleTracker(double secondsPerPixel, double minPeriodSec, double maxPeriodSec, int ringPeriods) {
+        if (!(secondsPerPixel > 0)) throw new IllegalArgumentException("每像素时长必须为正数");
+        this.secondsPerPixel = secondsPerPixel;
+        this.minPeriodPx = minPeriodSec / secondsPerPixel;
+        this.maxPeriodPx = maxPeriodSec / secondsPerPixel;
+        this.maxGap = Math.max(3, (int) (minPeriodPx / 4));
+        this.ring = new double[Math.max(16, (int) Math.ceil(maxPeriodPx * Math.max(2, ringPeriods)))];
+    }
+
+    public double secondsPerPixel() { return secondsPerPixel; }
+
+    /** 已追加的采样数（含无效） */
+    public long samples() { return pos; }
+
+    /** 已输出的周期数 */
+    public long cycles() { return cycles; }
+
+    /** 当前未闭合周期已累积的时长（ms），尚未对齐时为 0 */
+    public double pendingMs() {
+        return Double.isNaN(start) ? 0 : (pos - start) * secondsPerPixel * 1000.0;
+    }
+
+    /**
+     * 追加一批采样，返回其间闭合的周期。
+     * @param v 电压（V），NaN 为无效
+     * @param i 电流（A），与 v 等长；没有电流时为 null
+     */
+    public List<Cycle> feed(double[] v, double[] i) {
+        if (i != null && i.length != v.length) throw new IllegalArgumentException("电压、电流采样数不一致");
+        List<Cycle> out = new ArrayList<>();
+        for (int k = 0; k < v.length; k++, pos++) {
+            double x = v[k];
+            if (Double.isNaN(x)) {
+                if (++gap > maxGap) discontinuity();
+                continue;
+            }
+            gap = 0;
+            if (armed && prev < 0 && x >= 0) {
+                crossing(prevPos + (-prev) / (x - prev) * (pos - prevPos), out);
+                armed = false;
+            }
+            if (!Double.isNaN(start)) {
+                if (pos - start > maxPeriodPx) {
+                    discontinuity();
+                } else {
+                    n++;
+                    sumV2 += x * x;
+                    peak = Math.max(peak, Math.abs(x));
+                    double y = i != null ? i[k] : Double.NaN;
+                    if (!Double.isNaN(y)) {
+                        nPair++;
+                        sumI2 += y * y;
+                        sumVI += x * y;
+                    }
+                }
+            }
+            if (cycles == 0) amp = Math.max(amp, Math.abs(x));
+            if (x < -HYSTERESIS * amp) armed = true;
+            prev = x;
+            prevPos = pos;
+            ring[ringNext] = x;
+            ringNext = (ringNext + 1) % ring.length;
+            if (ringSize < ring.length) ringSize++;
+        }
+        return out;
+    }
+
+    private void crossing(double c, List<Cycle> out) {
+        if (!Double.isNaN(start)) {
+            double len = c - start;
+            if (len < minPeriodPx) return;  // 噪声过零：不闭合，继续累加
+            if (len <= maxPeriodPx && n > 0) out.add(close(len));
+        }
+        start = c;
+        clear();
+    }
+
+    private Cycle close(double lenPx) {
+        Cycle c = new Cycle();
+        c.index = cycles++;
+        double sec = lenPx * secondsPerPixel;
+        c.startMs = start * secondsPerPixel * 1000.0;
+        c.periodMs = sec * 1000.0;
+        c.freqHz = 1.0 / sec;
+        double vrms = Math.sqrt(sumV2 / n);
+        c.rms_kV = vrms / 1000.0;
+        c.peak_kV = peak / 1000.0;
+        if (nPair > 0) {
+            double irms = Math.sqrt(sumI2 / nPair);
+            double s = vrms * irms;
+            double p = sumVI / nPair;
+            c.irms_A = irms;
+            c.P_kW = p / 1000.0;
+            c.S_kVA = s / 1000.0;
+            c.PF = s > 1e-12 ? Math.max(0.0, Math.min(1.0, p / s)) : 0.0;
+        }
+        amp = peak;
+        return c;
+    }
+
+    private void clear() {
+        n = 0;
+        nPair = 0;
+        sumV2 = sumI2 = sumVI = peak = 0;
+    }
+
+    /** 连续性中断（缺帧、跟踪丢失）：丢弃未闭合周期与滚动窗口，从下一次过零重新对齐；采样序号照常累计 */
+    public void discontinuity() {
+        start = Double.NaN;
+        prev = Double.NaN;
+        armed = false;
+        gap = 0;
+        ringSize = 0;
+        ringNext = 0;
+        clear();
+    }
+
+    /**
+     * 环形缓冲（最近的有效采样，跨帧）上的滚动周期估计（像素）；
+     * 样本不足（搜索范围为空）或估计失败时为 NaN。
+     */
+    public double rollingPeriodPx(PeriodEstimator estimator) {
+        int minLag = Math.max(3, (int) Math.round(minPeriodPx));
+        int maxLag = Math.min(ringSize / 2, (int) Math.round(maxPeriodPx));
+        if (minLag >= maxLag) return Double.NaN;
+        double[] sig = new double[ringSize];
+        int from = (ringNext - ringSize + ring.length) % ring.length;
+        for (int k = 0; k < ringSize; k++) sig[k] = ring[(from + k) % ring.length];
+        double mean = 0;
+        for (double s : sig) mean += s;
+        mean /= sig.length;
+        for (int k = 0; k < sig.length; k++) sig[k] -= mean;
+        PeriodEstimator.Result r = estimator.estimate(sig, minLag, maxLag, null);
+        return r.error != null ? Double.NaN : r.periodPx;
+    }
+}
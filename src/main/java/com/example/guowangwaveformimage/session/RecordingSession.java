@@ -0,0 +1,431 @@
+package com.example.guowangwaveformimage.session;
+
+/*
+    一段录波的连续截图会话：同一录波导出的多张相邻截图按时间顺序逐帧追加，状态跨帧保持，重叠部分不重复处理。
+    - 布局：首帧识别（或创建时指定）后固定，后续帧直接按该布局提取 ROI，不再识别
+    - 每相首帧标定一次：三条黑实线、虚线刻度（优先用布局已生效的标定）、竖网格间距 -> 每像素时长、
+      叠加截图的色相区间；后续帧复用，只做波形跟踪与换算
+    - 每帧去掉首尾没有波形的列（边框、坐标轴），再跳过与上一帧重叠的 overlap 列，其余采样追加到各相的 CycleTracker
+    - 每帧返回其间闭合的周期（有效值、频率，有电流波形时再加功率）与跨帧窗口上的滚动频率；概况汇总全部周期
+    - 电流波形：创建时 paired=true 则每帧须附同一时刻的电流图；布局配置了 traces 或给了色相区间时按色相从同一张图分离
+    - 整帧失败（解码失败、相数不符）时各相视为中断，下一帧从过零点重新对齐
+    帧串行处理（append 加锁），须按时间顺序提交；可带 seq（从 0 起的帧序号）检查顺序。
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.HueClusters;
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.ScaleCalibration;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics.Stage;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+public class RecordingSession {
+
+    static final String ENDPOINT = "session";
+    private static final String DECODE_FAILED = "图片解码失败";
+
+    // 实线、虚线参数同 PowerAnalyzer，竖网格参数同 FrequencyAnalyzer
+    private static final double HLINE_RUN_RATIO = 0.60;
+    private static final int    HLINE_MERGE_PX  = 10;
+    private static final int    DASH_SMOOTH_WIN = 5;
+    private static final double DASH_PEAK_GAIN  = 1.2;
+    private static final double FALLBACK_PIXELS = 300.0;
+    private static final double VLINE_RUN_RATIO = 0.55;
+    private static final int    VLINE_MERGE_PX  = 4;
+
+    // 工频周期范围（同频率接口）与滚动估计窗口（周期数）
+    static final double PERIOD_MIN_SEC = 0.012;
+    static final double PERIOD_MAX_SEC = 0.030;
+    private static final int ROLLING_PERIODS = 4;
+
+    // 需要：实线（OTSU）、虚线（自适应）、波形（HSV）
+    public static final Set<RoiFeatures.Plane> PLANES =
+            EnumSet.of(RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE, RoiFeatures.Plane.HSV);
+
+    /* ===== 输出结构 ===== */
+    public static class FrameResult {
+        public String session;
+        public long frame;                  // 帧序号（从 0 起）
+        public String file;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String currentFile;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String layout;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String error;
+        public List<PhaseFrame> phases = new ArrayList<>();
+    }
+
+    public static class PhaseFrame {
+        public String phase;
+        public int samples;                 // 本帧追加的采样（列）数
+        public List<Cycle> cycles = new ArrayList<>();   // 本帧闭合的周期
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Double freqHz;               // 滚动频率（最近几个周期的跨帧窗口）
+        public double pendingMs;            // 未闭合周期已累积的时长
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String error;
+    }
+
+    public static class Summary {
+        public String id;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String layout;
+        public String trace;
+        public String period;
+        public int overlap;
+        public boolean paired;
+        public long frames;
+        public String created;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String lastFrame;
+        public List<PhaseSummary> phases = new ArrayList<>();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class PhaseSummary {
+        public String phase;
+        public boolean calibrated;
+        public long samples;
+        public long cycles;
+        public Double durationMs;           // 已追加采样的总时长
+        public Double meanFreqHz, minFreqHz, maxFreqHz;
+        public Double meanRms_kV, maxRms_kV;
+        public Double meanP_kW;
+    }
+
+    /* ===== 每相状态：首帧标定，之后只追加采样 ===== */
+    private static final class PhaseState {
+        final String phase;
+        int y1, y3, iy1, iy3;
+        ScaleCalibration vScale, iScale;
+        HueRange[] hues;
+        CycleTracker tracker;           // null 表示尚未标定
+        // 全部周期的汇总
+        long cycles, pCycles;
+        double sumFreq, minFreq = Double.POSITIVE_INFINITY, maxFreq, sumRms, maxRms, sumP;
+
+        PhaseState(String phase) {
+            this.phase = phase;
+        }
+
+        void record(List<Cycle> cs) {
+            for (Cycle c : cs) {
+                cycles++;
+                sumFreq += c.freqHz;
+                minFreq = Math.min(minFreq, c.freqHz);
+                maxFreq = Math.max(maxFreq, c.freqHz);
+                sumRms += c.rms_kV;
+                maxRms = Math.max(maxRms, c.rms_kV);
+                if (c.P_kW != null) {
+                    pCycles++;
+                    sumP += c.P_kW;
+                }
+            }
+        }
+    }
+
+    private final String id;
+    private final TraceMode traceMode;
+    private final PeriodMethod period;
+    private final int overlap;
+    private final boolean paired;
+    private final HueRange voltageHue, currentHue;
+    private final AnalysisExecutor executor;
+    private final CalibrationStore calibrations;
+    private final AnalysisMetrics metrics;
+    private final Instant created = Instant.now();
+
+    private LayoutProfile layout, currentLayout;
+    private PhaseState[] phases;
+    private long frames;
+    private Instant lastFrame;
+
+    /**
+     * @param layout   指定布局；null 时按首帧识别
+     * @param overlap  相邻两帧重叠的列数（从每帧第一列有波形的列起算），每帧可另行指定
+     * @param paired   每帧附电流图（同一时刻），用于逐周期功率
+     * @param voltageHue / currentHue  叠加截图的色相区间（可只给一个，其余自动聚类）；均为 null 且布局未配置 traces 时只有电压
+     */
+    public RecordingSession(String id, LayoutProfile layout, TraceMode traceMode, PeriodMethod period, int overlap,
+                            boolean paired, HueRange voltageHue, HueRange currentHue,
+                            AnalysisExecutor executor, CalibrationStore calibrations, AnalysisMetrics metrics) {
+        if (overlap < 0) throw new IllegalArgumentException("overlap 不能为负数");
+        if (paired && (voltageHue != null || currentHue != null)) {
+            throw new IllegalArgumentException("配对电流图与色相分离不能同时使用");
+        }
+        this.id = id;
+        this.layout = layout;
+        this.traceMode = traceMode;
+        this.period = period;
+        this.overlap = overlap;
+        this.paired = paired;
+        this.voltageHue = voltageHue;
+        this.currentHue = currentHue;
+        this.executor = executor;
+        this.calibrations = calibrations;
+        this.metrics = metrics;
+    }
+
+    public String id() { return id; }
+    public boolean paired() { return paired; }
+
+    /**
+     * 追加一帧。open / openCurrent 按给定布局（首帧为创建时指定的布局或 null）打开图片特征，在锁内调用；
+     * 非配对会话 openCurrent 为 null。
+     * @param seq     期望的帧序号，null 不检查；不符时抛 IllegalStateException
+     * @param overlap 本帧重叠列数，null 用创建时的值
+     */
+    public synchronized FrameResult append(String file, String currentFile, Long seq, Integer overlap,
+                                           Function<LayoutProfile, ImageFeatureLoader.ImageFeatures> open,
+                                           Function<LayoutProfile, ImageFeatureLoader.ImageFeatures> openCurrent) {
+        if (seq != null && seq != frames) {
+            throw new IllegalStateException("帧序号不符：期望 " + frames + "，收到 " + seq);
+        }
+        if (paired != (openCurrent != null)) {
+            throw new IllegalArgumentException(paired ? "配对会话的每帧须附电流图" : "会话创建时未指定 paired，不接受电流图");
+        }
+        if (overlap != null && overlap < 0) throw new IllegalArgumentException("overlap 不能为负数");
+        int skip = overlap != null ? overlap : this.overlap;
+
+        FrameResult r = new FrameResult();
+        r.session = id;
+        r.frame = frames++;
+        r.file = file;
+        r.currentFile = currentFile;
+        lastFrame = Instant.now();
+
+        long t0 = metrics.start();
+        try (ImageFeatureLoader.ImageFeatures img = open.apply(layout)) {
+            if (img.decodeFailed()) throw new IllegalStateException(DECODE_FAILED);
+            LayoutProfile l = img.layout();
+            if (layout == null) layout = l;
+            r.layout = l.getName();
+            if (phases == null) {
+                String[] names = l.names();
+                phases = new PhaseState[names.length];
+                for (int i = 0; i < names.length; i++) phases[i] = new PhaseState(names[i]);
+            }
+            if (l.names().length != phases.length) {
+                throw new IllegalArgumentException("相数与会话首帧不一致: " + l.getName());
+            }
+            if (openCurrent == null) {
+                r.phases.addAll(appendPhases(img, null, skip));
+            } else {
+                try (ImageFeatureLoader.ImageFeatures iImg = openCurrent.apply(currentLayout)) {
+                    if (iImg.decodeFailed()) throw new IllegalStateException("电流图" + DECODE_FAILED);
+                    LayoutProfile il = iImg.layout();
+                    if (il.names().length != phases.length) {
+                        throw new IllegalArgumentException("图片与电流图的相数不一致: " + l.getName() + " | " + il.getName());
+                    }
+                    if (currentLayout == null) currentLayout = il;
+                    if (!il.getName().equals(l.getName())) r.layout = l.getName() + " | " + il.getName();
+                    r.phases.addAll(appendPhases(img, iImg, skip));
+                }
+            }
+            for (PhaseFrame p : r.phases) metrics.error(ENDPOINT, p.error);
+            metrics.file(ENDPOINT, t0, false);
+        } catch (RuntimeException e) {
+            metrics.error(ENDPOINT, e);
+            r.error = e.getMessage();
+            // 整帧缺失：时间轴中断
+            if (phases != null) {
+                for (PhaseState st : phases) if (st.tracker != null) st.tracker.discontinuity();
+            }
+        }
+        return r;
+    }
+
+    private List<PhaseFrame> appendPhases(ImageFeatureLoader.ImageFeatures img, ImageFeatureLoader.ImageFeatures iImg,
+                                          int skip) {
+        List<Integer> idx = new ArrayList<>();
+        for (int i = 0; i < phases.length; i++) idx.add(i);
+        // 各相状态互不相干，并行；帧之间由 append 的锁串行
+        return executor.invokeAll(idx, i -> appendPhase(i, img.get(i), iImg != null ? iImg.get(i) : null, skip));
+    }
+
+    private PhaseFrame appendPhase(int idx, RoiFeatures v, RoiFeatures c, int skip) {
+        PhaseState st = phases[idx];
+        PhaseFrame out = new PhaseFrame();
+        out.phase = st.phase;
+        if (st.tracker == null) {
+            out.error = calibrate(st, idx, v, c);
+            if (out.error != null) return out;
+        }
+
+        // 跟踪波形（标定后的行范围与色相）
+        long t = metrics.start();
+        float[] vY, iY = null;
+        if (st.hues != null) {
+            float[][] ys = v.hueTraces(traceMode, st.hues, st.y1, st.y3);
+            vY = ys[0];
+            iY = ys[1];
+        } else {
+            vY = v.trace(traceMode, true, st.y1, st.y3);
+            if (c != null) iY = c.trace(traceMode, true, st.iy1, st.iy3);
+        }
+        metrics.stage(Stage.TRACE, t);
+        if (iY != null && iY.length != vY.length) {
+            st.tracker.discontinuity();
+            out.error = "电流图宽度与电压图不一致";
+            return out;
+        }
+
+        // 去掉首尾没有波形的列，再跳过与上一帧重叠的部分
+        int first = 0, last = vY.length;
+        while (first < last && Float.isNaN(vY[first])) first++;
+        while (last > first && Float.isNaN(vY[last - 1])) last--;
+        if (first >= last) {
+            st.tracker.discontinuity();
+            out.error = "未检测到波形";
+            return out;
+        }
+        int from = Math.min(last, first + skip);
+
+        t = metrics.start();
+        double[] vSig = st.vScale.map(vY, from, last);
+        double[] iSig = iY != null ? st.iScale.map(iY, from, last) : null;
+        metrics.stage(Stage.MAPPING, t);
+
+        t = metrics.start();
+        out.samples = vSig.length;
+        out.cycles = st.tracker.feed(vSig, iSig);
+        st.record(out.cycles);
+        double periodPx = st.tracker.rollingPeriodPx(period.estimator());
+        metrics.stage(Stage.ESTIMATE, t);
+        if (periodPx > 0) out.freqHz = 1.0 / (periodPx * st.tracker.secondsPerPixel());
+        out.pendingMs = st.tracker.pendingMs();
+        return out;
+    }
+
+    /** 首帧标定；成功返回 null，失败返回原因（下一帧再试） */
+    private String calibrate(PhaseState st, int idx, RoiFeatures v, RoiFeatures c) {
+        long t = metrics.start();
+        int[] vl = solidLines(v);
+        int[] il = c != null ? solidLines(c) : null;
+        metrics.stage(Stage.LINES, t);
+        if (vl == null) return "黑实线不足";
+        if (c != null && il == null) return "电流图黑实线不足";
+
+        t = metrics.start();
+        List<Integer> dash = dashes(v, calibrations.slot(layout, idx), vl);
+        List<Integer> iDash = c != null ? dashes(c, calibrations.slot(currentLayout, idx), il) : null;
+        metrics.stage(Stage.DASHES, t);
+
+        double secondsPerPixel = secondsPerPixel(v, layout.getSecondsPerGrid());
+        if (!(secondsPerPixel > 0)) return "竖实线检测不足，无法标定时间刻度";
+
+        HueRange[] hues = null;
+        if (c == null) {
+            HueRange[] fixed = {voltageHue != null ? voltageHue : layout.traceHue("voltage"),
+                    currentHue != null ? currentHue : layout.traceHue("current")};
+            if (fixed[0] != null || fixed[1] != null) {
+                hues = fixed;
+                if (fixed[0] == null || fixed[1] == null) {
+                    HueRange[] found = v.hueClusters(vl[0], vl[2], 2);
+                    hues = HueClusters.assign(found.length >= 2 ? found : new HueRange[0], fixed);
+                }
+                if (hues[0] == null || hues[1] == null) return "未能按颜色分离出电压、电流两条波形";
+            }
+        }
+
+        st.y1 = vl[0];
+        st.y3 = vl[2];
+        st.vScale = ScaleCalibration.of(vl[1], dash, calibrations.perSeg(layout, true), FALLBACK_PIXELS, v.height());
+        if (c != null) {
+            st.iy1 = il[0];
+            st.iy3 = il[2];
+            st.iScale = ScaleCalibration.of(il[1], iDash, calibrations.perSeg(currentLayout, false),
+                    FALLBACK_PIXELS, c.height());
+        } else if (hues != null) {
+            st.hues = hues;
+            st.iScale = ScaleCalibration.of(vl[1], dash, calibrations.perSeg(layout, false), FALLBACK_PIXELS, v.height());
+        }
+        st.tracker = new CycleTracker(secondsPerPixel, PERIOD_MIN_SEC, PERIOD_MAX_SEC, ROLLING_PERIODS);
+        return null;
+    }
+
+    /** 上、中、下三条黑实线 {y1, y2, y3}；不足三条时 null */
+    private static int[] solidLines(RoiFeatures roi) {
+        List<Integer> lines = roi.mergedSolidLines((int) (roi.width() * HLINE_RUN_RATIO), HLINE_MERGE_PX);
+        if (lines.size() < 3) return null;
+        Collections.sort(lines);
+        return new int[]{lines.get(0), lines.get(lines.size() / 2), lines.get(lines.size() - 1)};
+    }
+
+    /** 布局已有生效的标定时直接使用，否则检测并交给标定学习 */
+    private static List<Integer> dashes(RoiFeatures roi, CalibrationStore.Slot cal, int[] y) {
+        List<Integer> d = cal.dashes(y[1]);
+        if (d == null) {
+            d = roi.dashRows(y[0], y[2], DASH_SMOOTH_WIN, DASH_PEAK_GAIN);
+            cal.observe(y[1], d);
+        }
+        return d;
+    }
+
+    /** 竖网格线间距（中位数）换算的每像素时长；检测不足时 NaN */
+    private static double secondsPerPixel(RoiFeatures roi, double secondsPerGrid) {
+        int w = roi.width();
+        List<Integer> vlines = roi.gridColumns((int) (roi.height() * VLINE_RUN_RATIO), VLINE_MERGE_PX);
+        Collections.sort(vlines);
+        if (!vlines.isEmpty() && vlines.get(0) < 5) vlines.remove(0);
+        if (!vlines.isEmpty() && vlines.get(vlines.size() - 1) > w - 6) vlines.remove(vlines.size() - 1);
+        List<Integer> diffs = new ArrayList<>();
+        for (int i = 1; i < vlines.size(); i++) {
+            int d = vlines.get(i) - vlines.get(i - 1);
+            if (d > 1) diffs.add(d);
+        }
+        if (diffs.isEmpty()) return Double.NaN;
+        Collections.sort(diffs);
+        return secondsPerGrid / Math.max(1.0, diffs.get(diffs.size() / 2));
+    }
+
+    public synchronized Summary summary() {
+        Summary s = new Summary();
+        s.id = id;
+        s.layout = layout != null ? layout.getName() : null;
+        s.trace = traceMode.name().toLowerCase();
+        s.period = period.name().toLowerCase();
+        s.overlap = overlap;
+        s.paired = paired;
+        s.frames = frames;
+        s.created = created.toString();
+        s.lastFrame = lastFrame != null ? lastFrame.toString() : null;
+        if (phases == null) return s;
+        for (PhaseState st : phases) {
+            PhaseSummary p = new PhaseSummary();
+            p.phase = st.phase;
+            p.calibrated = st.tracker != null;
+            if (st.tracker != null) {
+                p.samples = st.tracker.samples();
+                p.durationMs = st.tracker.samples() * st.tracker.secondsPerPixel() * 1000.0;
+            }
+            p.cycles = st.cycles;
+            if (st.cycles > 0) {
+                p.meanFreqHz = st.sumFreq / st.cycles;
+                p.minFreqHz = st.minFreq;
+                p.maxFreqHz = st.maxFreq;
+                p.meanRms_kV = st.sumRms / st.cycles;
+                p.maxRms_kV = st.maxRms;
+            }
+            if (st.pCycles > 0) p.meanP_kW = st.sumP / st.pCycles;
+            s.phases.add(p);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.guowangwaveformimage.session;
+
+/*
+    连续截图会话的保管（analysis.sessions.*）：
+    - 有界 LRU，超出 max-sessions 时淘汰最久未用的会话；每追加一帧重新计时，最后一帧后超过 ttl 的会话失效
+    - 会话只在内存，重启后需重新创建
+*/
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.cache.LruCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfile;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Component
+public class SessionService {
+
+    private final LruCache<String, RecordingSession> sessions;
+    private final AnalysisExecutor executor;
+    private final CalibrationStore calibrations;
+    private final AnalysisMetrics metrics;
+
+    public SessionService(AnalysisProperties props, AnalysisExecutor executor, CalibrationStore calibrations,
+                          AnalysisMetrics metrics) {
+        AnalysisProperties.Sessions cfg = props.getSessions();
+        this.sessions = new LruCache<>(Math.max(1, cfg.getMaxSessions()), cfg.getTtl());
+        this.executor = executor;
+        this.calibrations = calibrations;
+        this.metrics = metrics;
+    }
+
+    public RecordingSession create(LayoutProfile layout, TraceMode traceMode, PeriodMethod period, int overlap,
+                                   boolean paired, HueRange voltageHue, HueRange currentHue) {
+        RecordingSession s = new RecordingSession(UUID.randomUUID().toString(), layout, traceMode, period, overlap,
+                paired, voltageHue, currentHue, executor, calibrations, metrics);
+        sessions.put(s.id(), s);
+        return s;
+    }
+
+    public Optional<RecordingSession> get(String id) {
+        return Optional.ofNullable(sessions.get(id));
+    }
+
+    /** 追加帧后调用：重新计时 */
+    public void touch(RecordingSession s) {
+        sessions.put(s.id(), s);
+    }
+
+    public Optional<RecordingSession> remove(String id) {
+        return Optional.ofNullable(sessions.remove(id));
+    }
+
+    public LruCache.Stats stats() {
+        return sessions.stats();
+    }
+}
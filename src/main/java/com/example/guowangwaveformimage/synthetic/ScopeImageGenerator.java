@@ -0,0 +1,366 @@
+package com.example.guowangwaveformimage.synthetic;
+
+/*
+    合成录波截图：按各分析接口假定的版式绘制三相面板，附带真值，供压测 / 基准 / 精度测试使用（不依赖真实站点数据）。
+    - 三相 ROI：(55,56) / (55,370) / (55,683)，每块 1400x310
+    - 每块面板：上边框、0 轴、下边框三条黑实线；0 轴上下每段一条灰色虚线；竖网格线每格 SECONDS_PER_GRID 秒
+    - 波形为 2px 彩色折线：y = 0 轴 - 值 / 每段物理量 * 每段像素，超出边框的部分贴边
+    - 波形可设幅值、频率、相位，起始时刻前为 0、起始时刻叠加衰减振荡（暂态），以及按种子生成的高斯噪声
+    几何按 ROI 尺寸等比缩放，renderPanel 可生成任意尺寸的单相面板。
+    renderOverlay 把电压、电流两组波形叠加画在同一张图上（电压紫色、电流橙色，电流在上层），用于叠加截图的功率分析。
+    真值由同一条逐列序列算出，与绘制内容一致（含贴边截断）。
+*/
+
+import org.opencv.core.*;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class ScopeImageGenerator {
+
+    private ScopeImageGenerator() {}
+
+    public static final int ROI_WIDTH = 1400;
+    public static final int ROI_HEIGHT = 310;
+    public static final Rect[] ROIS = {
+            new Rect(55, 56, ROI_WIDTH, ROI_HEIGHT),
+            new Rect(55, 370, ROI_WIDTH, ROI_HEIGHT),
+            new Rect(55, 683, ROI_WIDTH, ROI_HEIGHT)
+    };
+    /** 画布最小尺寸（容纳三块 ROI） */
+    public static final int MIN_WIDTH = 55 + ROI_WIDTH + 1, MIN_HEIGHT = 683 + ROI_HEIGHT + 1;
+    private static final String[] NAMES = {"A", "B", "C"};
+    /** 每两条竖网格线之间的时间（秒），与频率接口一致 */
+    public static final double SECONDS_PER_GRID = 0.025;
+    /** 稳态窗口：右侧 40%，与稳态 / 功率接口一致 */
+    public static final double STEADY_PORTION = 0.40;
+
+    public static final double VOLT_PER_SEG = 200000.0;
+    public static final double CURR_PER_SEG = 500.0;
+
+    // 颜色（BGR）
+    private static final Scalar BACKGROUND = new Scalar(255, 255, 255);
+    private static final Scalar SOLID = new Scalar(60, 60, 60);
+    private static final Scalar GRID = new Scalar(120, 120, 120);
+    private static final Scalar DASH = new Scalar(110, 110, 110);
+    private static final Scalar[] WAVE_COLORS = {
+            new Scalar(170, 60, 120),   // 紫
+            new Scalar(30, 120, 220),   // 橙
+            new Scalar(230, 150, 60)    // 蓝
+    };
+
+    /** 单相波形参数（值为物理量，与每段物理量同单位；时间从绘图区左边框起算） */
+    public static class Wave {
+        public double amplitude;
+        public double freqHz = 50;
+        public double phaseDeg;
+        public double onsetSec = -1;           // 起始时刻，之前为 0；<0 表示整段都有
+        public double transientAmplitude;      // 起始时刻叠加的衰减振荡幅值，0 表示无暂态
+        public double transientFreqHz = 600;
+        public double transientDecayMs = 4;
+        public double noise;                   // 高斯噪声标准差（物理量）
+
+        public static Wave of(double amplitude, double freqHz, double phaseDeg) {
+            Wave w = new Wave();
+            w.amplitude = amplitude;
+            w.freqHz = freqHz;
+            w.phaseDeg = phaseDeg;
+            return w;
+        }
+
+        /** 不含噪声的值 */
+        public double valueAt(double tSec) {
+            if (onsetSec >= 0 && tSec < onsetSec) return 0;
+            double v = amplitude * Math.sin(2 * Math.PI * freqHz * tSec + Math.toRadians(phaseDeg));
+            if (onsetSec >= 0 && transientAmplitude != 0) {
+                double dt = tSec - onsetSec;
+                v += transientAmplitude * Math.exp(-dt * 1000 / transientDecayMs) * Math.sin(2 * Math.PI * transientFreqHz * dt);
+            }
+            return v;
+        }
+    }
+
+    /** 整幅截图参数 */
+    public static class Spec {
+        public int width = 1920;
+        public int height = 1080;
+        public double perSegValue = VOLT_PER_SEG;   // 每段虚线对应的物理量（电压 200000 / 电流 500）
+        public long seed = 1;                       // 噪声种子
+        public Wave[] phases = {
+                Wave.of(300000, 50, 0),
+                Wave.of(300000, 50, -120),
+                Wave.of(300000, 50, 120)
+        };
+
+        /**
+         * 按种子随机生成：频率 45~55 Hz，幅值 0.8~1.9 段，三相互差 120° 附近；
+         * transients 为 true 时各相在第一格内起始并带暂态，noise 为噪声占每段物理量的比例。
+         */
+        public static Spec random(long seed, boolean current, boolean transients, double noise) {
+            Random rnd = new Random(seed);
+            Spec s = new Spec();
+            s.seed = seed;
+            s.perSegValue = current ? CURR_PER_SEG : VOLT_PER_SEG;
+            double freq = 45 + 10 * rnd.nextDouble();
+            double phase0 = 360 * rnd.nextDouble();
+            s.phases = new Wave[3];
+            for (int i = 0; i < 3; i++) {
+                Wave w = Wave.of(s.perSegValue * (0.8 + 1.1 * rnd.nextDouble()), freq,
+                        phase0 - 120 * i + 10 * rnd.nextGaussian());
+                if (transients) {
+                    w.onsetSec = SECONDS_PER_GRID * (0.2 + 0.6 * rnd.nextDouble());
+                    w.transientAmplitude = w.amplitude * (0.3 + 0.5 * rnd.nextDouble());
+                    w.transientFreqHz = 300 + 900 * rnd.nextDouble();
+                    w.transientDecayMs = 2 + 6 * rnd.nextDouble();
+                }
+                w.noise = noise * s.perSegValue;
+                s.phases[i] = w;
+            }
+            return s;
+        }
+    }
+
+    /** 面板几何（相对面板左上角；按 ROI 尺寸缩放） */
+    public static class Layout {
+        public int top, mid, bottom;    // 三条黑实线
+        public int plotLeft;            // 绘图区左边框
+        public double segPx;            // 每段虚线像素
+        public double gridPx;           // 每格像素
+        public int gridOffset;          // 第一条竖网格线距左边框
+
+        public static Layout of(int roiWidth, int roiHeight) {
+            double sx = roiWidth / (double) ROI_WIDTH, sy = roiHeight / (double) ROI_HEIGHT;
+            Layout l = new Layout();
+            l.top = Math.max(1, (int) Math.round(sy));
+            l.bottom = roiHeight - 1 - (int) Math.round(42 * sy);
+            l.mid = (l.top + l.bottom) / 2;
+            l.segPx = (l.bottom - l.top) / 4.8;   // 上下各 2 段虚线 + 0.4 段余量
+            l.plotLeft = (int) Math.round(42 * sx);
+            l.gridPx = 270 * sx;
+            l.gridOffset = (int) Math.round(220 * sx);
+            return l;
+        }
+
+        public double tAt(int x) {
+            return (x - plotLeft) / gridPx * SECONDS_PER_GRID;
+        }
+
+        public double yOf(double value, double perSegValue) {
+            return mid - value / perSegValue * segPx;
+        }
+
+        /** 边框内可画出的最大绝对值 */
+        public double maxValue(double perSegValue) {
+            return (mid - top - 1) / segPx * perSegValue;
+        }
+    }
+
+    /* ==================== 真值 ==================== */
+
+    public static class PhaseTruth {
+        public String phase;
+        public double freqHz;
+        public double periodMs;
+        public double steadyPeak;     // 稳态窗口内 |值| 最大
+        public double steadyRms;      // 稳态窗口内 RMS
+        public double maxValue;       // ROI 内最大值（暂态最高点）
+        public double minValue;       // ROI 内最小值
+    }
+
+    public static class Truth {
+        public double perSegValue;
+        public List<PhaseTruth> phases = new ArrayList<>();
+    }
+
+    /** 功率真值（按稳态窗口内逐列序列计算，单位同输入） */
+    public static class PowerTruth {
+        public double vrms, irms, p, s, pf;
+    }
+
+    public static Truth truth(Spec spec) {
+        Layout l = Layout.of(ROI_WIDTH, ROI_HEIGHT);
+        Truth t = new Truth();
+        t.perSegValue = spec.perSegValue;
+        for (int i = 0; i < 3; i++) {
+            Wave w = spec.phases[i % spec.phases.length];
+            double[] v = series(w, l, ROI_WIDTH, spec.perSegValue, phaseRandom(spec.seed, i));
+            PhaseTruth p = new PhaseTruth();
+            p.phase = NAMES[i];
+            p.freqHz = w.freqHz;
+            p.periodMs = 1000.0 / w.freqHz;
+            p.maxValue = Double.NEGATIVE_INFINITY;
+            p.minValue = Double.POSITIVE_INFINITY;
+            for (int x = l.plotLeft + 1; x < ROI_WIDTH; x++) {
+                p.maxValue = Math.max(p.maxValue, v[x]);
+                p.minValue = Math.min(p.minValue, v[x]);
+            }
+            double ss = 0;
+            int x0 = steadyStart(ROI_WIDTH);
+            for (int x = x0; x < ROI_WIDTH; x++) {
+                p.steadyPeak = Math.max(p.steadyPeak, Math.abs(v[x]));
+                ss += v[x] * v[x];
+            }
+            p.steadyRms = Math.sqrt(ss / (ROI_WIDTH - x0));
+            t.phases.add(p);
+        }
+        return t;
+    }
+
+    /** 电压图 v、电流图 c 第 phase 相的功率真值 */
+    public static PowerTruth power(Spec v, Spec c, int phase) {
+        Layout l = Layout.of(ROI_WIDTH, ROI_HEIGHT);
+        double[] vs = series(v.phases[phase], l, ROI_WIDTH, v.perSegValue, phaseRandom(v.seed, phase));
+        double[] cs = series(c.phases[phase], l, ROI_WIDTH, c.perSegValue, phaseRandom(c.seed, phase));
+        int x0 = steadyStart(ROI_WIDTH), n = ROI_WIDTH - x0;
+        double vv = 0, ii = 0, vi = 0;
+        for (int x = x0; x < ROI_WIDTH; x++) {
+            vv += vs[x] * vs[x];
+            ii += cs[x] * cs[x];
+            vi += vs[x] * cs[x];
+        }
+        PowerTruth p = new PowerTruth();
+        p.vrms = Math.sqrt(vv / n);
+        p.irms = Math.sqrt(ii / n);
+        p.p = vi / n;
+        p.s = p.vrms * p.irms;
+        p.pf = p.s > 0 ? Math.max(0, Math.min(1, p.p / p.s)) : 0;
+        return p;
+    }
+
+    private static int steadyStart(int w) {
+        return (int) Math.round(w * (1.0 - STEADY_PORTION));
+    }
+
+    private static Random phaseRandom(long seed, int phase) {
+        return new Random(seed * 31 + phase);
+    }
+
+    /** 逐列值（下标为面板 x，绘图区外为 0），已按边框截断 */
+    private static double[] series(Wave w, Layout l, int width, double perSegValue, Random rnd) {
+        double[] v = new double[width];
+        double lim = l.maxValue(perSegValue);
+        for (int x = l.plotLeft + 1; x < width; x++) {
+            double val = w.valueAt(l.tAt(x));
+            if (w.noise > 0) val += w.noise * rnd.nextGaussian();
+            v[x] = Math.max(-lim, Math.min(lim, val));
+        }
+        return v;
+    }
+
+    /* ==================== 绘制 ==================== */
+
+    /** 三相截图（BGR，调用方负责 release） */
+    public static Mat render(Spec spec) {
+        if (spec.width < MIN_WIDTH || spec.height < MIN_HEIGHT) {
+            throw new IllegalArgumentException("画布至少 " + MIN_WIDTH + "x" + MIN_HEIGHT);
+        }
+        Mat img = new Mat(spec.height, spec.width, CvType.CV_8UC3, BACKGROUND);
+        // 面板向右延伸到画布右侧留白处（与真实截图一样超出 ROI）
+        int panelW = Math.max(ROI_WIDTH, spec.width - 48 - ROIS[0].x);
+        Layout l = Layout.of(ROI_WIDTH, ROI_HEIGHT);
+        for (int i = 0; i < ROIS.length; i++) {
+            Mat panel = img.submat(new Rect(ROIS[i].x, ROIS[i].y, panelW, ROI_HEIGHT));
+            try {
+                Wave w = spec.phases[i % spec.phases.length];
+                drawPanel(panel, l, series(w, l, panelW, spec.perSegValue, phaseRandom(spec.seed, i)),
+                        spec.perSegValue, WAVE_COLORS[i % WAVE_COLORS.length]);
+            } finally {
+                panel.release();
+            }
+        }
+        return img;
+    }
+
+    /** 电压 v、电流 c 叠加的三相截图：每相电压用紫色、电流用橙色（BGR，调用方负责 release） */
+    public static Mat renderOverlay(Spec v, Spec c) {
+        if (v.width < MIN_WIDTH || v.height < MIN_HEIGHT) {
+            throw new IllegalArgumentException("画布至少 " + MIN_WIDTH + "x" + MIN_HEIGHT);
+        }
+        Mat img = new Mat(v.height, v.width, CvType.CV_8UC3, BACKGROUND);
+        int panelW = Math.max(ROI_WIDTH, v.width - 48 - ROIS[0].x);
+        Layout l = Layout.of(ROI_WIDTH, ROI_HEIGHT);
+        for (int i = 0; i < ROIS.length; i++) {
+            Mat panel = img.submat(new Rect(ROIS[i].x, ROIS[i].y, panelW, ROI_HEIGHT));
+            try {
+                drawPanel(panel, l, series(v.phases[i % v.phases.length], l, panelW, v.perSegValue, phaseRandom(v.seed, i)),
+                        v.perSegValue, WAVE_COLORS[0]);
+                drawWave(panel, l, series(c.phases[i % c.phases.length], l, panelW, c.perSegValue, phaseRandom(c.seed, i)),
+                        c.perSegValue, WAVE_COLORS[1]);
+            } finally {
+                panel.release();
+            }
+        }
+        return img;
+    }
+
+    /** 单相面板（尺寸即 ROI 尺寸，用于分阶段基准 / 测试） */
+    public static Mat renderPanel(int width, int height, Wave wave, double perSegValue) {
+        Mat img = new Mat(height, width, CvType.CV_8UC3, BACKGROUND);
+        Layout l = Layout.of(width, height);
+        drawPanel(img, l, series(wave, l, width, perSegValue, new Random(1)), perSegValue, WAVE_COLORS[0]);
+        return img;
+    }
+
+    private static void drawPanel(Mat p, Layout l, double[] values, double perSegValue, Scalar color) {
+        int w = p.cols();
+
+        // 竖网格线（先画，被实线覆盖）
+        for (double x = l.plotLeft + l.gridOffset; x < w; x += l.gridPx) {
+            int xi = (int) Math.round(x);
+            Imgproc.line(p, new Point(xi, l.top), new Point(xi, l.bottom), GRID, 1, Imgproc.LINE_8);
+        }
+        // 虚线刻度：0 轴上下各若干段
+        int dashOn = 6, dashOff = 5;
+        for (int k = 1; ; k++) {
+            int up = (int) Math.round(l.mid - k * l.segPx), down = (int) Math.round(l.mid + k * l.segPx);
+            if (up <= l.top + 2 && down >= l.bottom - 2) break;
+            for (int y : new int[]{up, down}) {
+                if (y <= l.top + 2 || y >= l.bottom - 2) continue;
+                for (int x = l.plotLeft; x < w; x += dashOn + dashOff) {
+                    Imgproc.line(p, new Point(x, y), new Point(Math.min(w - 1, x + dashOn - 1), y), DASH, 1, Imgproc.LINE_8);
+                }
+            }
+        }
+        // 三条黑实线 + 左边框
+        for (int y : new int[]{l.top, l.mid, l.bottom}) {
+            Imgproc.line(p, new Point(l.plotLeft, y), new Point(w - 1, y), SOLID, 1, Imgproc.LINE_8);
+        }
+        Imgproc.line(p, new Point(l.plotLeft, l.top), new Point(l.plotLeft, l.bottom), SOLID, 1, Imgproc.LINE_8);
+
+        drawWave(p, l, values, perSegValue, color);
+    }
+
+    private static void drawWave(Mat p, Layout l, double[] values, double perSegValue, Scalar color) {
+        int w = p.cols();
+        Point prev = null;
+        for (int x = l.plotLeft + 1; x < w; x++) {
+            Point cur = new Point(x, Math.round(l.yOf(values[x], perSegValue)));
+            if (prev != null) Imgproc.line(p, prev, cur, color, 2, Imgproc.LINE_8);
+            prev = cur;
+        }
+    }
+
+    /** 编码为 PNG 字节 */
+    public static byte[] png(Mat img) {
+        MatOfByte buf = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".png", img, buf);
+            return buf.toArray();
+        } finally {
+            buf.release();
+        }
+    }
+
+    /** 渲染并编码 */
+    public static byte[] png(Spec spec) {
+        Mat img = render(spec);
+        try {
+            return png(img);
+        } finally {
+            img.release();
+        }
+    }
+}
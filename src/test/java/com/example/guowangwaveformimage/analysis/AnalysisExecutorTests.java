@@ -0,0 +1,73 @@
+package com.example.guowangwaveformimage.analysis;
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisExecutorTests {
+
+    private AnalysisExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    private AnalysisExecutor newExecutor(int threads, int queue) {
+        AnalysisProperties props = new AnalysisProperties();
+        props.getExecutor().setThreads(threads);
+        props.getExecutor().setQueueCapacity(queue);
+        return new AnalysisExecutor(props);
+    }
+
+    @Test
+    void resultsKeepInputOrder() {
+        executor = newExecutor(4, 16);
+        List<Integer> in = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+        List<Integer> out = executor.invokeAll(in, i -> {
+            try { Thread.sleep((50 - i) % 7); } catch (InterruptedException ignored) {}
+            return i * 2;
+        });
+        assertEquals(in.stream().map(i -> i * 2).collect(Collectors.toList()), out);
+    }
+
+    @Test
+    void nestedInvokeDoesNotDeadlockOnTinyPool() {
+        executor = newExecutor(1, 1);
+        List<Integer> files = IntStream.range(0, 8).boxed().collect(Collectors.toList());
+        List<Integer> out = executor.invokeAll(files,
+                f -> executor.invokeAll(List.of(0, 1, 2), p -> f * 10 + p).stream().mapToInt(Integer::intValue).sum());
+        for (int f = 0; f < 8; f++) assertEquals(f * 30 + 3, out.get(f));
+    }
+
+    @Test
+    void taskExceptionIsRethrownUnwrapped() {
+        executor = newExecutor(2, 4);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> executor.invokeAll(List.of(1, 2, 3), i -> {
+                    if (i == 2) throw new IllegalArgumentException("boom");
+                    return i;
+                }));
+        assertEquals("boom", e.getMessage());
+    }
+
+    @Test
+    void forEachCompletedEmitsEveryResultOnceWithItsIndex() {
+        executor = newExecutor(1, 1);
+        List<Integer> in = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+        Integer[] seen = new Integer[in.size()];
+        executor.forEachCompleted(in,
+                f -> executor.invokeAll(List.of(0, 1), p -> f + p).get(1),
+                (idx, r) -> {
+                    assertNull(seen[idx]);
+                    seen[idx] = r;
+                });
+        for (int i = 0; i < in.size(); i++) assertEquals(i + 1, seen[i]);
+    }
+}
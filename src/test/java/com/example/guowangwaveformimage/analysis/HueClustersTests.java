@@ -0,0 +1,63 @@
+package com.example.guowangwaveformimage.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HueClustersTests {
+
+    // 以 center 为中心、宽 ±spread 的三角形分布
+    private static void bump(int[] hist, int center, int spread, int height) {
+        for (int d = -spread; d <= spread; d++) {
+            hist[Math.floorMod(center + d, HueRange.HUE_BINS)] += height * (spread + 1 - Math.abs(d));
+        }
+    }
+
+    @Test
+    void separatesTwoColours() {
+        int[] hist = new int[HueRange.HUE_BINS];
+        bump(hist, 14, 4, 100);
+        bump(hist, 136, 4, 60);
+        bump(hist, 70, 0, 2);    // 零星彩色（图例文字），不成簇
+        HueRange[] c = HueClusters.cluster(hist, 3);
+        assertEquals(2, c.length);
+        assertTrue(c[0].contains(14) && !c[0].contains(136));
+        assertTrue(c[1].contains(136) && !c[1].contains(14));
+        // 每个桶都归入某一簇
+        for (int h = 0; h < HueRange.HUE_BINS; h++) assertTrue(c[0].contains(h) ^ c[1].contains(h), "h=" + h);
+    }
+
+    @Test
+    void clusterAcrossZeroAndSingleColour() {
+        int[] hist = new int[HueRange.HUE_BINS];
+        bump(hist, 178, 4, 50);
+        assertArrayEquals(new HueRange[]{HueRange.all()}, HueClusters.cluster(hist, 2));
+
+        bump(hist, 60, 3, 50);
+        HueRange[] c = HueClusters.cluster(hist, 2);
+        assertEquals(2, c.length);
+        assertTrue(c[1].contains(178) && c[1].contains(2));
+        assertTrue(c[1].lo() > c[1].hi());
+        assertEquals(0, HueClusters.cluster(new int[HueRange.HUE_BINS], 2).length);
+    }
+
+    @Test
+    void assignsRolesAroundFixedRanges() {
+        HueRange orange = new HueRange(0, 75), purple = new HueRange(76, 179);
+        HueRange[] found = {orange, purple};
+        assertArrayEquals(new HueRange[]{orange, purple}, HueClusters.assign(found, new HueRange[2]));
+        HueRange v = HueRange.of("136");
+        assertArrayEquals(new HueRange[]{v, orange}, HueClusters.assign(found, new HueRange[]{v, null}));
+        assertNull(HueClusters.assign(new HueRange[0], new HueRange[]{v, null})[1]);
+    }
+
+    @Test
+    void parsesRanges() {
+        assertEquals(new HueRange(170, 10), HueRange.of(" 170 - 10 "));
+        assertEquals(new HueRange(126, 146), HueRange.of("136"));
+        assertEquals(new HueRange(175, 15), HueRange.of("5"));
+        assertEquals(0, new HueRange(170, 10).center());
+        assertThrows(IllegalArgumentException.class, () -> HueRange.of("red"));
+        assertThrows(IllegalArgumentException.class, () -> HueRange.of("0-180"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.guowangwaveformimage.analysis;
+
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 行 / 列统计：OpenCV 原生实现与逐像素扫描交叉核对 */
+class RoiFeatureExtractorTests {
+
+    private static final Set<RoiFeatures.Plane> LINE_PLANES =
+            EnumSet.of(RoiFeatures.Plane.BGR, RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE);
+
+    private final RoiFeatureExtractor extractor = new RoiFeatureExtractor();
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    @Test
+    void nativeStatsMatchScan() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Mat img = ScopeImageGenerator.render(Spec.random(seed, false, seed % 2 == 0, seed % 2 == 0 ? 0.02 : 0));
+            try {
+                for (int i = 0; i < 3; i++) {
+                    Mat roi = img.submat(ScopeImageGenerator.ROIS[i]);
+                    try {
+                        assertNativeMatchesScan(roi, "seed " + seed + " roi " + i);
+                    } finally {
+                        roi.release();
+                    }
+                }
+            } finally {
+                img.release();
+            }
+        }
+
+        // 贴边且中间被截断的线：两段都短于核长，原生实现不能因边界外的像素把它们保留下来
+        int w = ScopeImageGenerator.ROI_WIDTH, h = ScopeImageGenerator.ROI_HEIGHT;
+        Mat panel = new Mat(h, w, CvType.CV_8UC3, Scalar.all(255));
+        try {
+            Imgproc.line(panel, new Point(300, 0), new Point(300, h - 1), Scalar.all(0), 2);
+            Imgproc.line(panel, new Point(0, 60), new Point(w - 1, 60), Scalar.all(0), 2);
+            Imgproc.rectangle(panel, new Point(290, h / 2 - 5), new Point(310, h / 2 + 5), Scalar.all(255), -1);
+            Imgproc.rectangle(panel, new Point(w / 2 - 5, 50), new Point(w / 2 + 5, 70), Scalar.all(255), -1);
+            assertNativeMatchesScan(panel, "edge-touching lines");
+        } finally {
+            panel.release();
+        }
+    }
+
+    private void assertNativeMatchesScan(Mat roi, String at) {
+        RoiFeatures scan = extractor.extract(roi, LINE_PLANES, LineScanMode.SCAN);
+        RoiFeatures nat = extractor.extract(roi, LINE_PLANES, LineScanMode.NATIVE);
+
+        assertArrayEquals(scan.rowBlackCount, nat.rowBlackCount, at);
+        assertArrayEquals(scan.rowHasWave, nat.rowHasWave, at);
+        assertArrayEquals(scan.rowDashCount, nat.rowDashCount, at);
+        assertLongRuns(scan.rowMaxRun, nat.rowMaxRun, NativeLineScan.minRun(scan.width()), at);
+        assertLongRuns(scan.colMaxRun, nat.colMaxRun, NativeLineScan.minRun(scan.height()), at);
+
+        // 各接口实际使用的阈值下检测结果一致
+        int minRow = (int) Math.ceil(scan.width() * 0.6), minCol = (int) (scan.height() * 0.55);
+        assertEquals(scan.solidLineRows(minRow), nat.solidLineRows(minRow), at);
+        assertEquals(scan.gridColumns(minCol, 4), nat.gridColumns(minCol, 4), at);
+        assertEquals(scan.dashRows(0, scan.height() - 1, 5, 1.2), nat.dashRows(0, nat.height() - 1, 5, 1.2), at);
+    }
+
+    // 最长黑段 >= minRun 的行（列）一致，更短的原生实现记为 0
+    private static void assertLongRuns(int[] scan, int[] nat, int minRun, String at) {
+        assertEquals(scan.length, nat.length, at);
+        for (int i = 0; i < scan.length; i++) {
+            assertEquals(scan[i] >= minRun ? scan[i] : 0, nat[i], at + " index " + i);
+        }
+    }
+
+    // 质心跟踪：与像素跟踪覆盖同样的列、相差不超过一个线宽，且相对绘制真值的平均误差不大于像素跟踪
+    @Test
+    void centroidTraceIsNoWorseThanPixelTrace() {
+        int w = ScopeImageGenerator.ROI_WIDTH, h = ScopeImageGenerator.ROI_HEIGHT;
+        ScopeImageGenerator.Wave wave = ScopeImageGenerator.Wave.of(150000, 50, 20);
+        ScopeImageGenerator.Layout l = ScopeImageGenerator.Layout.of(w, h);
+        Mat panel = ScopeImageGenerator.renderPanel(w, h, wave, ScopeImageGenerator.VOLT_PER_SEG);
+        try {
+            RoiFeatures f = extractor.extract(panel, EnumSet.of(RoiFeatures.Plane.HSV), LineScanMode.SCAN);
+            int[] pixel = f.traceCenter(l.top, l.bottom);
+            float[] centroid = f.trace(TraceMode.CENTROID, true, l.top, l.bottom);
+            assertSame(centroid, f.traceCentroid(l.top, l.bottom));
+
+            double errPixel = 0, errCentroid = 0;
+            int n = 0;
+            for (int x = l.plotLeft + 8; x < w - 8; x++) {
+                assertEquals(pixel[x] < 0, Float.isNaN(centroid[x]), "x=" + x);
+                if (pixel[x] < 0) continue;
+                assertEquals(pixel[x], centroid[x], 2.0, "x=" + x);
+                double truth = l.yOf(wave.valueAt(l.tAt(x)), ScopeImageGenerator.VOLT_PER_SEG);
+                errPixel += Math.abs(pixel[x] - truth);
+                errCentroid += Math.abs(centroid[x] - truth);
+                n++;
+            }
+            assertTrue(n > w / 2);
+            assertTrue(errCentroid <= errPixel, "centroid " + errCentroid / n + " px, pixel " + errPixel / n + " px");
+
+            // 像素模式的 float 序列与整数跟踪数值相同
+            float[] asFloat = f.trace(TraceMode.PIXEL, true, l.top, l.bottom);
+            for (int x = 0; x < w; x++) {
+                if (pixel[x] < 0) assertTrue(Float.isNaN(asFloat[x]));
+                else assertEquals(pixel[x], asFloat[x], 0.0f);
+            }
+        } finally {
+            panel.release();
+        }
+    }
+
+    @Test
+    void modeNames() {
+        assertEquals(LineScanMode.SCAN, new RoiFeatureExtractor().mode());
+        assertEquals(LineScanMode.NATIVE, LineScanMode.of(" Native "));
+        assertThrows(IllegalArgumentException.class, () -> LineScanMode.of("hough"));
+        assertEquals(TraceMode.CENTROID, TraceMode.of(" Centroid "));
+        assertThrows(IllegalArgumentException.class, () -> TraceMode.of("spline"));
+    }
+}
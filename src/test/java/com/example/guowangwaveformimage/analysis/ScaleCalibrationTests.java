@@ -0,0 +1,114 @@
+package com.example.guowangwaveformimage.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScaleCalibrationTests {
+
+    private static final int ROWS = 310;
+
+    // 原先各接口逐点调用的换算（每点排序刻度表），作为对照
+    private static double reference(int y, int y2, List<Integer> dashYs, double perSeg, double fallback, boolean isUp) {
+        List<Integer> all = new ArrayList<>(dashYs);
+        all.add(y2);
+        Collections.sort(all);
+        if (isUp) {
+            List<Integer> up = new ArrayList<>();
+            for (int d : all) if (d < y2) up.add(d);
+            up.sort(Collections.reverseOrder());
+            int prev = y2, section = 0;
+            for (int d : up) {
+                if (y <= d) return section * perSeg + (prev - y) * 1.0 / (prev - d) * perSeg;
+                prev = d; section++;
+            }
+            if (!up.isEmpty()) return section * perSeg + (prev - y) * 1.0 / (prev - up.get(up.size() - 1)) * perSeg;
+            return (y2 - y) * perSeg / fallback;
+        } else {
+            List<Integer> down = new ArrayList<>();
+            for (int d : all) if (d > y2) down.add(d);
+            Collections.sort(down);
+            int prev = y2, section = 0;
+            for (int d : down) {
+                if (y >= d) return -(section * perSeg + (y - prev) * 1.0 / (d - prev) * perSeg);
+                prev = d; section++;
+            }
+            if (!down.isEmpty()) return -(section * perSeg + (y - prev) * 1.0 / (down.get(down.size() - 1) - prev) * perSeg);
+            return -(y - y2) * perSeg / fallback;
+        }
+    }
+
+    @Test
+    void lookupMatchesPerPixelMapping() {
+        int y2 = 155;
+        List<Integer> dashes = List.of(230, 30, 80, 255, 130, 180, 105, 205);
+        ScaleCalibration scale = ScaleCalibration.of(y2, dashes, 200000, 300, ROWS);
+        for (int y = 0; y < ROWS; y++) {
+            boolean up = y < y2;
+            double expected = reference(y, y2, dashes, 200000, 300, up);
+            assertEquals(expected, scale.value(y), 0.0, "y=" + y);
+            assertEquals(expected, scale.value(y, up), 0.0, "y=" + y);
+        }
+    }
+
+    @Test
+    void explicitDirectionMatchesPerPixelMapping() {
+        int y2 = 150;
+        List<Integer> dashes = List.of(40, 95, 205, 260);
+        ScaleCalibration scale = ScaleCalibration.of(y2, dashes, 500, 300, ROWS);
+        for (int y = 0; y < ROWS; y++) {
+            assertEquals(reference(y, y2, dashes, 500, 300, true), scale.value(y, true), 0.0, "up y=" + y);
+            assertEquals(reference(y, y2, dashes, 500, 300, false), scale.value(y, false), 0.0, "down y=" + y);
+        }
+    }
+
+    @Test
+    void fallbackWithoutDashes() {
+        ScaleCalibration scale = ScaleCalibration.of(150, List.of(), 200000, 150 + 1e-9, 300, ROWS);
+        assertEquals(200000, scale.value(0), 1e-3);
+        assertEquals(-100000, scale.value(300), 1e-9);
+        assertEquals(0, scale.value(150), 0.0);
+    }
+
+    @Test
+    void mapsTraceWindowWithoutAllocating() {
+        int y2 = 155;
+        List<Integer> dashes = List.of(30, 80, 130, 180, 230, 280);
+        ScaleCalibration scale = ScaleCalibration.of(y2, dashes, 200000, 300, ROWS);
+        int[] trace = {-1, 10, 30, 200, -1, 309, 400};
+        double[] out = new double[5];
+        scale.map(trace, 2, 7, out);
+        assertEquals(reference(30, y2, dashes, 200000, 300, true), out[0], 0.0);
+        assertEquals(scale.value(200), out[1], 0.0);
+        assertTrue(Double.isNaN(out[2]));
+        assertEquals(reference(309, y2, dashes, 200000, 300, false), out[3], 0.0);
+        // 超出查表范围的行按断点表直接换算
+        assertEquals(reference(400, y2, dashes, 200000, 300, false), out[4], 0.0);
+    }
+
+    @Test
+    void subPixelRowsInterpolateBetweenBreakpoints() {
+        int y2 = 155;
+        List<Integer> dashes = List.of(30, 80, 130, 180, 230, 280);
+        ScaleCalibration scale = ScaleCalibration.of(y2, dashes, 200000, 300, ROWS);
+        for (int y = 0; y < ROWS; y++) {
+            assertEquals(scale.value(y), scale.value((double) y), 0.0, "y=" + y);
+            assertEquals(scale.value(y, true), scale.value((double) y, true), 0.0, "up y=" + y);
+            assertEquals(scale.value(y, false), scale.value((double) y, false), 0.0, "down y=" + y);
+        }
+        // 相邻两行之间线性插值（同一段内）
+        assertEquals((scale.value(100) + scale.value(101)) / 2, scale.value(100.5), 1e-6);
+        assertEquals((scale.value(200) + scale.value(201)) / 2, scale.value(200.5), 1e-6);
+        assertTrue(Double.isNaN(scale.value(Double.NaN)));
+
+        float[] trace = {Float.NaN, 100.25f, 200.75f};
+        double[] out = scale.map(trace, 0, 3);
+        assertTrue(Double.isNaN(out[0]));
+        assertEquals(scale.value(100.25), out[1], 0.0);
+        assertEquals(scale.value(200.75), out[2], 0.0);
+    }
+}
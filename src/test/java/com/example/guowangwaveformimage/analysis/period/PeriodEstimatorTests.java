@@ -0,0 +1,84 @@
+package com.example.guowangwaveformimage.analysis.period;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeriodEstimatorTests {
+
+    // 与频率接口的右侧窗口相当：约 840 个样本，周期约 210 像素
+    private static double[] sine(int n, double period, double noise, long seed) {
+        Random rnd = new Random(seed);
+        double[] s = new double[n];
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            s[i] = 60 * Math.sin(2 * Math.PI * i / period + 0.3) + noise * rnd.nextGaussian();
+            mean += s[i];
+        }
+        mean /= n;
+        for (int i = 0; i < n; i++) s[i] -= mean;
+        return s;
+    }
+
+    private static double estimate(PeriodMethod m, double[] sig) {
+        PeriodEstimator.Result r = m.estimator().estimate(sig, 130, sig.length / 2, new HashMap<>());
+        assertNull(r.error, m + ": " + r.error);
+        return r.periodPx;
+    }
+
+    @Test
+    void fftAutocorrMatchesDirectLagAndRefinesIt() {
+        for (double period : new double[]{199.3, 207.5, 213.74, 221.1}) {
+            double[] sig = sine(840, period, 1.0, 7);
+            double direct = estimate(PeriodMethod.AUTOCORR, sig);
+            double fft = estimate(PeriodMethod.FFT, sig);
+            assertEquals(direct, Math.round(fft), 1.0, "period " + period);
+            assertTrue(Math.abs(fft - direct) <= 0.5 + 1e-9);
+        }
+    }
+
+    @Test
+    void subPixelMethodsResolveFractionalPeriod() {
+        double period = 213.37;
+        double[] sig = sine(840, period, 0.5, 11);
+        assertEquals(period, estimate(PeriodMethod.FFT, sig), 0.6);
+        assertEquals(period, estimate(PeriodMethod.SPECTRUM, sig), 1.5);
+    }
+
+    @Test
+    void flatSignalFails() {
+        double[] flat = new double[400];
+        for (PeriodMethod m : PeriodMethod.values()) {
+            Map<String, Object> dbg = new LinkedHashMap<>();
+            assertNotNull(m.estimator().estimate(flat, 50, 200, dbg).error, m.name());
+        }
+    }
+
+    @Test
+    void methodNamesAreCaseInsensitive() {
+        assertEquals(PeriodMethod.FFT, PeriodMethod.of("fft"));
+        assertEquals(PeriodMethod.SPECTRUM, PeriodMethod.of(" Spectrum "));
+        assertEquals(PeriodMethod.AUTOCORR, PeriodMethod.of(null));
+        assertThrows(IllegalArgumentException.class, () -> PeriodMethod.of("zero-crossing"));
+    }
+
+    @Test
+    void packedRealFftAutocorrMatchesDirectSum() {
+        for (int n : new int[]{31, 200, 841}) {
+            double[] s = sine(n, n / 3.7, 5.0, n);
+            int maxLag = n / 2;
+            double[] r = Fft.autocorr(s, maxLag);
+            assertEquals(maxLag + 1, r.length);
+            for (int k = 0; k <= maxLag; k++) {
+                double acc = 0;
+                for (int i = 0; i + k < n; i++) acc += s[i] * s[i + k];
+                assertEquals(acc, r[k], 1e-6 * Math.max(1, Math.abs(r[0])), "n=" + n + " k=" + k);
+            }
+        }
+    }
+}
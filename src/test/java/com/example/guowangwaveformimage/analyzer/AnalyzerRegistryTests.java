@@ -0,0 +1,54 @@
+package com.example.guowangwaveformimage.analyzer;
+
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyzerRegistryTests {
+
+    private final AnalysisMetrics metrics = AnalysisMetrics.standalone();
+
+    @Test
+    void planesAreUnionInRegistrationOrder() {
+        AnalyzerRegistry registry = new AnalyzerRegistry(List.of(new TransientAnalyzer(metrics), new SteadyAnalyzer(metrics),
+                new FrequencyAnalyzer(metrics), new PowerAnalyzer(metrics)));
+        assertEquals(List.of("zantai", "wentai", "pinlv", "gonglv"), List.copyOf(registry.names()));
+        assertEquals(EnumSet.of(RoiFeatures.Plane.BGR, RoiFeatures.Plane.OTSU, RoiFeatures.Plane.ADAPTIVE,
+                RoiFeatures.Plane.HSV), registry.planes());
+        assertTrue(registry.get("pinlv") instanceof FrequencyAnalyzer);
+        assertThrows(IllegalArgumentException.class, () -> registry.get("xiebo"));
+    }
+
+    @Test
+    void duplicateNameIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new AnalyzerRegistry(List.of(
+                new FrequencyAnalyzer(metrics), new FrequencyAnalyzer(metrics))));
+    }
+
+    @Test
+    void addedAnalyzerNeedsNoControllerChange() {
+        Analyzer<TransientResult> width = new Analyzer<>() {
+            @Override public String name() { return "width"; }
+            @Override public Set<RoiFeatures.Plane> planes() { return EnumSet.of(RoiFeatures.Plane.BGR); }
+            @Override public TransientResult analyze(PhaseInput in) {
+                TransientResult r = new TransientResult();
+                r.phase = in.phase();
+                r.value = (double) in.roi().width();
+                return r;
+            }
+        };
+        AnalyzerRegistry registry = new AnalyzerRegistry(List.of(new PowerAnalyzer(metrics), width));
+        assertSame(width, registry.get("width"));
+        // 功率只在有电流波形时适用
+        PhaseInput in = PhaseInput.of(null, "A");
+        assertFalse(registry.get("gonglv").applies(in));
+        assertTrue(registry.get("gonglv").applies(in.hues(null, null)));
+        assertTrue(width.applies(in));
+    }
+}
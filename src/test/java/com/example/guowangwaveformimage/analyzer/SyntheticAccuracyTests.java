@@ -0,0 +1,114 @@
+package com.example.guowangwaveformimage.analyzer;
+
+import com.example.guowangwaveformimage.analysis.HueRange;
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.PhaseTruth;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.PowerTruth;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Truth;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** 合成截图 + 真值：频率、暂态最大值与叠加截图功率的精度 */
+class SyntheticAccuracyTests {
+
+    private final RoiFeatureExtractor extractor = new RoiFeatureExtractor();
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    private RoiFeatures[] features(Spec spec, Set<RoiFeatures.Plane> planes) {
+        return extract(ScopeImageGenerator.render(spec), planes);
+    }
+
+    private RoiFeatures[] extract(Mat img, Set<RoiFeatures.Plane> planes) {
+        try {
+            RoiFeatures[] out = new RoiFeatures[3];
+            for (int i = 0; i < 3; i++) out[i] = extractor.extract(img, ScopeImageGenerator.ROIS[i], planes);
+            return out;
+        } finally {
+            img.release();
+        }
+    }
+
+    @Test
+    void pinlvFrequencyMatchesTruth() {
+        FrequencyAnalyzer pinlv = new FrequencyAnalyzer(AnalysisMetrics.standalone());
+        // 像素级滞后的量化误差约 1%；频谱峰插值后远小于此
+        Map<PeriodMethod, Double> tol = Map.of(PeriodMethod.AUTOCORR, 0.02, PeriodMethod.FFT, 0.02, PeriodMethod.SPECTRUM, 0.002);
+        for (long seed = 1; seed <= 6; seed++) {
+            // 偶数种子带起始暂态与少量噪声
+            Spec spec = Spec.random(seed, false, seed % 2 == 0, seed % 2 == 0 ? 0.02 : 0);
+            Truth truth = ScopeImageGenerator.truth(spec);
+            RoiFeatures[] roi = features(spec, FrequencyAnalyzer.PLANES);
+            for (int i = 0; i < 3; i++) {
+                PhaseTruth t = truth.phases.get(i);
+                for (PeriodMethod m : PeriodMethod.values()) {
+                    FrequencyResult r = pinlv.analyze(PhaseInput.of(roi[i], t.phase).period(m));
+                    String at = m + " seed " + seed + " phase " + t.phase;
+                    assertNull(r.error, at);
+                    assertEquals(t.freqHz, r.freqHz, t.freqHz * tol.get(m), at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void zantaiMaxValueWithinScale() {
+        TransientAnalyzer zantai = new TransientAnalyzer(AnalysisMetrics.standalone());
+        for (long seed = 1; seed <= 20; seed++) {
+            Spec spec = Spec.random(seed, false, true, 0);
+            Truth truth = ScopeImageGenerator.truth(spec);
+            RoiFeatures[] roi = features(spec, TransientAnalyzer.PLANES);
+            for (int i = 0; i < 3; i++) {
+                PhaseTruth t = truth.phases.get(i);
+                // 只比较第 1~2 条虚线之间的最高点：不足 1 段时现有分段换算取不到区间（分母为 0），超出 2 段为外推
+                if (t.maxValue < 1.1 * spec.perSegValue || t.maxValue > 1.9 * spec.perSegValue) continue;
+                TransientResult r = zantai.analyze(PhaseInput.of(roi[i], t.phase).perSeg(spec.perSegValue));
+                assertNull(r.error, "seed " + seed + " phase " + t.phase);
+                // 读数精度受线宽与刻度像素取整影响，按每段物理量的比例比较
+                assertEquals(t.maxValue, r.value, spec.perSegValue * 0.05, "seed " + seed + " phase " + t.phase);
+            }
+        }
+    }
+
+    @Test
+    void gonglvCombinedMatchesTruth() {
+        PowerAnalyzer gonglv = new PowerAnalyzer(AnalysisMetrics.standalone());
+        // 只给出电压色相（紫色约 136），电流由自动聚类补齐
+        for (long seed = 1; seed <= 4; seed++) {
+            Spec v = Spec.random(seed, false, false, 0);
+            Spec c = Spec.random(seed, true, false, 0);
+            for (ScopeImageGenerator.Wave w : c.phases) {
+                w.amplitude *= 0.6;
+                w.phaseDeg -= 35;
+            }
+            RoiFeatures[] roi = extract(ScopeImageGenerator.renderOverlay(v, c), PowerAnalyzer.PLANES);
+            for (int i = 0; i < 3; i++) {
+                PowerTruth t = ScopeImageGenerator.power(v, c, i);
+                PowerResult r = gonglv.analyze(PhaseInput.of(roi[i], "ABC".substring(i, i + 1))
+                        .hues(HueRange.of("136"), null).perSeg(v.perSegValue).pairedPerSeg(c.perSegValue));
+                String at = "seed " + seed + " phase " + i;
+                assertNull(r.error, at);
+                // 交叉处电压被电流遮挡，靠平滑补齐；按有效值的比例比较
+                assertEquals(t.vrms / 1000.0, r.vrms_kV, t.vrms / 1000.0 * 0.05, at);
+                assertEquals(t.irms, r.irms_A, t.irms * 0.06, at);
+                assertEquals(t.pf, r.PF, 0.05, at);
+            }
+        }
+    }
+}
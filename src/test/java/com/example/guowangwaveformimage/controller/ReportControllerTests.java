@@ -0,0 +1,107 @@
+package com.example.guowangwaveformimage.controller;
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.FrequencyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.PhaseReport;
+import com.example.guowangwaveformimage.analyzer.PowerAnalyzer;
+import com.example.guowangwaveformimage.analyzer.PowerResult;
+import com.example.guowangwaveformimage.analyzer.SteadyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.TransientAnalyzer;
+import com.example.guowangwaveformimage.cache.AnalysisResultCache;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.debug.DebugTraces;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.MatTracker;
+import com.example.guowangwaveformimage.job.JobService;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.PowerTruth;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportControllerTests {
+
+    private AnalysisExecutor executor;
+    private JobService jobs;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) jobs.shutdown();
+        if (executor != null) executor.shutdown();
+    }
+
+    private ReportController controller() {
+        AnalysisProperties props = new AnalysisProperties();
+        props.getExecutor().setThreads(2);
+        AnalysisMetrics metrics = AnalysisMetrics.standalone();
+        ImageDecoder decoder = new ImageDecoder(props);
+        ImageFeatureLoader features = new ImageFeatureLoader(decoder, new RoiFeatureExtractor(),
+                new RoiFeatureCache(props), metrics, MatTracker.standalone(true), new LayoutProfiles());
+        AnalyzerRegistry analyzers = new AnalyzerRegistry(List.of(new TransientAnalyzer(metrics),
+                new SteadyAnalyzer(metrics), new FrequencyAnalyzer(metrics), new PowerAnalyzer(metrics)));
+        executor = new AnalysisExecutor(props);
+        jobs = new JobService(executor, props);
+        return new ReportController(analyzers, executor, decoder, features, new AnalysisResultCache(props), jobs,
+                metrics, new DebugTraces(props), new CalibrationStore(), new ResultStreamer(executor, new ObjectMapper()));
+    }
+
+    private static MultipartFile png(String name, Spec spec) {
+        return new MockMultipartFile("files", name, "image/png", ScopeImageGenerator.png(spec));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pairedUploadAnalysesBothImagesOnColdCache() {
+        ReportController report = controller();
+        Spec v = Spec.random(5, false, false, 0);
+        Spec c = Spec.random(5, true, false, 0);
+        MultipartFile[] files = {png("v.png", v)};
+        MultipartFile[] currentFiles = {png("i.png", c)};
+
+        // 第一次：两级缓存都为空，两张图都要解码；第二次命中结果缓存
+        for (int round = 0; round < 2; round++) {
+            List<ReportController.FileReport> out = (List<ReportController.FileReport>) report.upload(files, currentFiles,
+                    null, PeriodMethod.AUTOCORR, TraceMode.PIXEL, false).getBody();
+            assertNotNull(out);
+            assertEquals(1, out.size());
+            ReportController.FileReport r = out.get(0);
+            String at = "round " + round;
+            assertNull(r.error, at);
+            assertEquals("i.png", r.currentFile, at);
+            assertEquals(3, r.phases.size(), at);
+            for (int i = 0; i < 3; i++) {
+                PhaseReport p = r.phases.get(i);
+                assertTrue(p.getResults().containsKey("zantai"), at);
+                PowerResult power = (PowerResult) p.getResults().get("gonglv");
+                assertNotNull(power, at);
+                assertNull(power.error, at);
+                PowerTruth t = ScopeImageGenerator.power(v, c, i);
+                assertEquals(t.irms, power.irms_A, t.irms * 0.1, at + " phase " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.guowangwaveformimage.controller;
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analysis.TraceMode;
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.MatTracker;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.session.Cycle;
+import com.example.guowangwaveformimage.session.RecordingSession;
+import com.example.guowangwaveformimage.session.SessionService;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionControllerTests {
+
+    private AnalysisExecutor executor;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    private SessionController controller() {
+        AnalysisProperties props = new AnalysisProperties();
+        props.getExecutor().setThreads(2);
+        AnalysisMetrics metrics = AnalysisMetrics.standalone();
+        ImageDecoder decoder = new ImageDecoder(props);
+        ImageFeatureLoader features = new ImageFeatureLoader(decoder, new RoiFeatureExtractor(),
+                new RoiFeatureCache(props), metrics, MatTracker.standalone(true), new LayoutProfiles());
+        executor = new AnalysisExecutor(props);
+        return new SessionController(new SessionService(props, executor, new CalibrationStore(), metrics),
+                decoder, features, metrics);
+    }
+
+    private static MultipartFile png(String param, String name, Spec spec) {
+        return new MockMultipartFile(param, name, "image/png", ScopeImageGenerator.png(spec));
+    }
+
+    @Test
+    void pairedFramesEmitCyclesWithPower() throws Exception {
+        SessionController sessions = controller();
+        ResponseEntity<?> created = sessions.create(null, TraceMode.PIXEL, PeriodMethod.AUTOCORR, 0, true, null, null);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        String id = ((RecordingSession.Summary) created.getBody()).id;
+
+        // 每帧都是新内容：电压图与电流图都要解码（两帧并不相接，只在首帧内比较频率）
+        for (long seq = 0; seq < 2; seq++) {
+            Spec v = Spec.random(10 + seq, false, false, 0);
+            Spec c = Spec.random(10 + seq, true, false, 0);
+            ResponseEntity<?> resp = sessions.frame(id, png("file", "v" + seq + ".png", v),
+                    png("currentFile", "i" + seq + ".png", c), seq, null);
+            assertEquals(HttpStatus.OK, resp.getStatusCode());
+            RecordingSession.FrameResult r = (RecordingSession.FrameResult) resp.getBody();
+            String at = "frame " + seq;
+            assertNull(r.error, at);
+            assertEquals(3, r.phases.size(), at);
+            for (RecordingSession.PhaseFrame p : r.phases) {
+                assertNull(p.error, at + " phase " + p.phase);
+                assertFalse(p.cycles.isEmpty(), at + " phase " + p.phase);
+                for (Cycle cy : p.cycles) {
+                    if (seq == 0) assertEquals(v.phases[0].freqHz, cy.freqHz, 1.0, at);
+                    assertNotNull(cy.irms_A, at);
+                    assertNotNull(cy.P_kW, at);
+                }
+            }
+        }
+
+        ResponseEntity<?> outOfOrder = sessions.frame(id, png("file", "v.png", Spec.random(1, false, false, 0)),
+                png("currentFile", "i.png", Spec.random(1, true, false, 0)), 5L, null);
+        assertEquals(HttpStatus.CONFLICT, outOfOrder.getStatusCode());
+    }
+}
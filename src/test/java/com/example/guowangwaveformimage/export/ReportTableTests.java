@@ -0,0 +1,103 @@
+package com.example.guowangwaveformimage.export;
+
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.FrequencyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.FrequencyResult;
+import com.example.guowangwaveformimage.analyzer.PhaseReport;
+import com.example.guowangwaveformimage.analyzer.PowerAnalyzer;
+import com.example.guowangwaveformimage.analyzer.SteadyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.SteadyResult;
+import com.example.guowangwaveformimage.analyzer.TransientAnalyzer;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportTableTests {
+
+    private final AnalysisMetrics metrics = AnalysisMetrics.standalone();
+    private final AnalyzerRegistry registry = new AnalyzerRegistry(List.of(new TransientAnalyzer(metrics),
+            new SteadyAnalyzer(metrics), new FrequencyAnalyzer(metrics), new PowerAnalyzer(metrics)));
+
+    private static PhaseReport phase(String name, double peak, double freq) {
+        PhaseReport p = new PhaseReport(name);
+        SteadyResult s = new SteadyResult();
+        s.phase = name;
+        s.steadyPeakV = peak;
+        s.steadyRmsV = peak / Math.sqrt(2);
+        p.getResults().put("wentai", s);
+        FrequencyResult f = new FrequencyResult();
+        f.phase = name;
+        f.freqHz = freq;
+        p.getResults().put("pinlv", f);
+        return p;
+    }
+
+    @Test
+    void headerFollowsAnalyzerColumns() {
+        ReportTable t = new ReportTable(List.of("file"), registry, List.of("wentai", "pinlv"));
+        assertEquals(List.of("file", "phase", "wentai.steadyPeakV", "wentai.steadyRmsV", "wentai.sampleRmsV",
+                "wentai.error", "pinlv.freqHz", "pinlv.periodMs", "pinlv.error", "error"), t.header());
+        assertTrue(new ReportTable(List.of(), registry, List.of()).header().containsAll(
+                List.of("zantai.value", "gonglv.P_kW", "gonglv.PF", "gonglv.error")));
+    }
+
+    @Test
+    void csvRowsPerPhaseWithQuotingAndPlainNumbers() throws Exception {
+        ReportTable t = new ReportTable(List.of("file"), registry, List.of("wentai", "pinlv"));
+        StringWriter sw = new StringWriter();
+        try (CsvTableWriter w = new CsvTableWriter(sw)) {
+            w.header(t.header());
+            t.write(w, new Object[]{"a,\"1\".png"}, null, List.of(phase("A", 110.0, 50.0), phase("B", 0.00012, 49.95)));
+            t.write(w, new Object[]{"b.png"}, "图片解码失败", List.of());
+        }
+        String[] lines = sw.toString().split("\r\n", -1);
+        assertEquals(5, lines.length);
+        assertEquals("", lines[4]);
+        assertTrue(lines[0].startsWith("\uFEFFfile,phase,"));
+        assertTrue(lines[1].startsWith("\"a,\"\"1\"\".png\",A,110,77.78174593052"), lines[1]);
+        assertTrue(lines[1].endsWith(",,,50,,,"), lines[1]);
+        assertTrue(lines[2].startsWith("\"a,\"\"1\"\".png\",B,0.00012,"), lines[2]);
+        assertEquals("b.png,,,,,,,,,图片解码失败", lines[3]);
+    }
+
+    @Test
+    void xlsxWritesNumericCellsAndRollsOverSheets() throws Exception {
+        ReportTable t = new ReportTable(List.of("file"), registry, List.of("wentai", "pinlv"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxTableWriter w = new XlsxTableWriter(out, 4)) {
+            w.header(t.header());
+            for (int i = 0; i < 3; i++) {
+                t.write(w, new Object[]{"f" + i + ".png"}, null, List.of(phase("A", 100 + i, 50), phase("B", 200 + i, 50)));
+            }
+        }
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            // 6 行数据，每表 1 行表头 + 3 行
+            assertEquals(2, wb.getNumberOfSheets());
+            Sheet first = wb.getSheetAt(0), second = wb.getSheetAt(1);
+            assertEquals("results", first.getSheetName());
+            assertEquals("results-2", second.getSheetName());
+            assertEquals("wentai.steadyPeakV", second.getRow(0).getCell(2).getStringCellValue());
+            assertEquals(CellType.NUMERIC, first.getRow(1).getCell(2).getCellType());
+            assertEquals(100.0, first.getRow(1).getCell(2).getNumericCellValue());
+            assertEquals("f2.png", second.getRow(3).getCell(0).getStringCellValue());
+            assertEquals(202.0, second.getRow(3).getCell(2).getNumericCellValue());
+            assertNull(second.getRow(3).getCell(4));
+        }
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertEquals(ExportFormat.XLSX, ExportFormat.of(" Xlsx "));
+        assertEquals(ExportFormat.CSV, ExportFormat.of(null));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.of("parquet"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.guowangwaveformimage.image;
+
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analysis.RoiFeatures;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatTrackerTests {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    @Test
+    void closeReleasesAndUpdatesCounts() {
+        MatTracker tracker = MatTracker.standalone(true);
+        Mat m = new Mat(310, 1400, CvType.CV_8UC3);
+        try (MatTracker.Owned owned = tracker.track("wentai", m)) {
+            assertSame(m, owned.mat());
+            assertEquals(1, tracker.live("wentai"));
+            assertEquals(310L * 1400 * 3, tracker.liveBytes("wentai"));
+        }
+        assertTrue(m.empty());
+        assertEquals(0, tracker.live("wentai"));
+        assertEquals(0, tracker.liveBytes("wentai"));
+        assertEquals(0, tracker.leaked("wentai"));
+        tracker.checkNoLeaks();
+    }
+
+    @Test
+    void unclosedHandleIsReported() {
+        MatTracker tracker = MatTracker.standalone(true);
+        MatTracker.Owned owned = tracker.track("pinlv", new Mat(10, 10, CvType.CV_8U));
+        IllegalStateException e = assertThrows(IllegalStateException.class, tracker::checkNoLeaks);
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals("pinlv", tracker.leaks().get(0).endpoint);
+        owned.close();
+        owned.close();
+        assertEquals(0, tracker.live("pinlv"));
+        tracker.checkNoLeaks();
+    }
+
+    @Test
+    void collectedHandleCountsAsLeak() throws InterruptedException {
+        MatTracker tracker = MatTracker.standalone(false);
+        tracker.track("zantai", new Mat(10, 10, CvType.CV_8U));
+        for (int i = 0; i < 50 && tracker.leaked("zantai") == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, tracker.leaked("zantai"));
+        assertEquals(0, tracker.live("zantai"));
+    }
+
+    @Test
+    void featureLoaderReleasesDecodedImage() throws Exception {
+        AnalysisProperties props = new AnalysisProperties();
+        MatTracker tracker = MatTracker.standalone(true);
+        ImageDecoder decoder = new ImageDecoder(props);
+        ImageFeatureLoader loader = new ImageFeatureLoader(decoder, new RoiFeatureExtractor(),
+                new RoiFeatureCache(props), AnalysisMetrics.standalone(), tracker, new LayoutProfiles());
+
+        byte[] png = ScopeImageGenerator.png(Spec.random(1, false, false, 0));
+        ImageDecoder.EncodedImage enc = decoder.read(new ByteArrayInputStream(png), png.length);
+        try (ImageFeatureLoader.ImageFeatures img = loader.open("wentai", enc, ScopeImageGenerator.ROIS,
+                EnumSet.of(RoiFeatures.Plane.OTSU))) {
+            assertTrue(img.decoded());
+            img.get(0);
+            assertEquals(1, tracker.live("wentai"));
+        }
+        assertEquals(0, tracker.live("wentai"));
+        tracker.checkNoLeaks();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.guowangwaveformimage.image;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchPoolTests {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    @Test
+    void matsAreReusedAcrossScopes() {
+        ScratchPool pool = new ScratchPool(true, 1 << 20);
+        Mat first;
+        try (ScratchPool.Scope s = pool.open()) {
+            first = s.mat();
+            first.create(310, 1400, CvType.CV_8U);
+        }
+        try (ScratchPool.Scope s = pool.open()) {
+            Mat again = s.mat();
+            assertSame(first, again);
+            assertEquals(310 * 1400, again.total());
+        }
+        ScratchPool.Stats st = pool.stats();
+        assertEquals(1, st.matsCreated);
+        assertEquals(1, st.matsReused);
+        assertEquals(310L * 1400, st.retainedBytes);
+    }
+
+    @Test
+    void nestedScopesReturnInStackOrder() {
+        ScratchPool pool = new ScratchPool(true, 1 << 20);
+        try (ScratchPool.Scope outer = pool.open()) {
+            Mat a = outer.mat();
+            Mat inner1;
+            try (ScratchPool.Scope inner = pool.open()) {
+                inner1 = inner.mat();
+                assertNotSame(a, inner1);
+            }
+            // 内层归还后，外层下一次取用拿到同一个 Mat
+            assertSame(inner1, outer.mat());
+        }
+        assertEquals(2, pool.stats().matsCreated);
+    }
+
+    @Test
+    void oversizedWorkingSetIsReleased() {
+        ScratchPool pool = new ScratchPool(true, 1024);
+        Mat m;
+        try (ScratchPool.Scope s = pool.open()) {
+            m = s.mat();
+            m.create(310, 1400, CvType.CV_8UC3);
+        }
+        assertTrue(m.empty());
+        assertEquals(1, pool.stats().trimmed);
+        assertEquals(0, pool.stats().retainedBytes);
+    }
+
+    @Test
+    void oversizedRasterBuffersAreDropped() {
+        ScratchPool pool = new ScratchPool(true, 1024);
+        RasterBuffer first;
+        Mat m = new Mat(310, 1400, CvType.CV_8UC3);
+        try {
+            try (ScratchPool.Scope s = pool.open()) {
+                first = s.raster(m);
+            }
+            assertEquals(1, pool.stats().trimmed);
+            assertEquals(0, pool.stats().retainedBytes);
+            try (ScratchPool.Scope s = pool.open()) {
+                assertNotSame(first, s.raster(m));
+            }
+        } finally {
+            m.release();
+        }
+    }
+
+    @Test
+    void disabledPoolReleasesEverything() {
+        ScratchPool pool = new ScratchPool(false, 1 << 20);
+        Mat m;
+        try (ScratchPool.Scope s = pool.open()) {
+            m = s.mat();
+            m.create(10, 10, CvType.CV_8U);
+        }
+        assertTrue(m.empty());
+        assertEquals(0, pool.stats().threads);
+    }
+}
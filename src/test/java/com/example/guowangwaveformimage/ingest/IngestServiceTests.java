@@ -0,0 +1,155 @@
+package com.example.guowangwaveformimage.ingest;
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.analysis.ImageFeatureLoader;
+import com.example.guowangwaveformimage.analysis.RoiFeatureExtractor;
+import com.example.guowangwaveformimage.analyzer.AnalyzerRegistry;
+import com.example.guowangwaveformimage.analyzer.FrequencyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.SteadyAnalyzer;
+import com.example.guowangwaveformimage.analyzer.TransientAnalyzer;
+import com.example.guowangwaveformimage.cache.RoiFeatureCache;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.MatTracker;
+import com.example.guowangwaveformimage.layout.CalibrationStore;
+import com.example.guowangwaveformimage.layout.LayoutProfiles;
+import com.example.guowangwaveformimage.metrics.AnalysisMetrics;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestServiceTests {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    private IngestService service(Path in, Path out, AnalysisProperties props) {
+        AnalysisProperties.Ingest cfg = props.getIngest();
+        cfg.setDir(in.toString());
+        cfg.setWatch(false);
+        cfg.setSettle(Duration.ZERO);
+        cfg.setParallelism(2);
+        cfg.setOutput(out.toString());
+        AnalysisMetrics metrics = AnalysisMetrics.standalone();
+        ImageDecoder decoder = new ImageDecoder(props);
+        ImageFeatureLoader features = new ImageFeatureLoader(decoder, new RoiFeatureExtractor(),
+                new RoiFeatureCache(props), metrics, MatTracker.standalone(true), new LayoutProfiles());
+        AnalyzerRegistry analyzers = new AnalyzerRegistry(List.of(new TransientAnalyzer(metrics),
+                new SteadyAnalyzer(metrics), new FrequencyAnalyzer(metrics)));
+        return new IngestService(props, new AnalysisExecutor(props), decoder, features, analyzers,
+                new CalibrationStore(), metrics, mapper);
+    }
+
+    private List<String> lines(Path out) throws Exception {
+        return Files.readAllLines(out);
+    }
+
+    @Test
+    void checkpointSkipsCompletedFilesAfterRestart(@TempDir Path tmp) throws Exception {
+        Path in = Files.createDirectories(tmp.resolve("in"));
+        Path out = tmp.resolve("out/results.ndjson");
+        Files.write(in.resolve("a.png"), ScopeImageGenerator.png(Spec.random(1, false, false, 0)));
+        Files.write(in.resolve("b.png"), ScopeImageGenerator.png(Spec.random(2, false, false, 0)));
+        Files.write(in.resolve("notes.txt"), new byte[]{1, 2, 3});
+
+        IngestService first = service(in, out, new AnalysisProperties());
+        assertEquals(2, first.runOnce());
+        first.stop();
+        List<String> rows = lines(out);
+        assertEquals(2, rows.size());
+        for (String row : rows) {
+            JsonNode r = mapper.readTree(row);
+            assertFalse(r.has("error"), row);
+            assertEquals("default", r.get("layout").asText());
+            assertEquals(3, r.get("phases").size());
+            JsonNode a = r.get("phases").get(0);
+            assertEquals("A", a.get("phase").asText());
+            assertTrue(a.get("zantai").has("value"), row);
+            assertTrue(a.get("wentai").has("steadyPeakV"), row);
+            assertTrue(a.get("pinlv").has("freqHz"), row);
+        }
+
+        // 重启：已完成的跳过；被覆盖（修改时间变化）的重新处理
+        Files.write(in.resolve("b.png"), ScopeImageGenerator.png(Spec.random(3, false, false, 0)));
+        Files.setLastModifiedTime(in.resolve("b.png"), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        IngestService second = service(in, out, new AnalysisProperties());
+        assertEquals(1, second.runOnce());
+        assertEquals(1L, second.stats().get("skipped"));
+        second.stop();
+        rows = lines(out);
+        assertEquals(3, rows.size());
+        assertEquals("b.png", mapper.readTree(rows.get(2)).get("file").asText());
+    }
+
+    @Test
+    void undecodableFileIsRecordedOnce(@TempDir Path tmp) throws Exception {
+        Path in = Files.createDirectories(tmp.resolve("in"));
+        Path out = tmp.resolve("results.ndjson");
+        Files.write(in.resolve("broken.png"), new byte[]{0x42, 0x13, 0x37});
+
+        IngestService s = service(in, out, new AnalysisProperties());
+        assertEquals(1, s.runOnce());
+        assertEquals(0, s.runOnce());
+        s.stop();
+        List<String> rows = lines(out);
+        assertEquals(1, rows.size());
+        assertEquals("图片解码失败", mapper.readTree(rows.get(0)).get("error").asText());
+    }
+
+    @Test
+    void csvOutputAppendsRowsPerPhase(@TempDir Path tmp) throws Exception {
+        Path in = Files.createDirectories(tmp.resolve("in"));
+        Path out = tmp.resolve("results.csv");
+        Files.write(in.resolve("a.png"), ScopeImageGenerator.png(Spec.random(4, false, false, 0)));
+        AnalysisProperties props = new AnalysisProperties();
+        props.getIngest().setFormat(AnalysisProperties.Ingest.OutputFormat.CSV);
+        props.getIngest().setAnalyzers(List.of("wentai"));
+
+        IngestService s = service(in, out, props);
+        assertEquals(1, s.runOnce());
+        s.stop();
+        Files.write(in.resolve("b.png"), new byte[]{0x42, 0x13, 0x37});
+        IngestService again = service(in, out, props);
+        assertEquals(1, again.runOnce());
+        again.stop();
+
+        List<String> rows = lines(out);
+        assertEquals("\uFEFFfile,size,modified,hash,layout,phase,wentai.steadyPeakV,wentai.steadyRmsV,"
+                + "wentai.sampleRmsV,wentai.error,error", rows.get(0));
+        assertEquals(5, rows.size());     // 表头只写一次；a.png 三相 + b.png 一行
+        assertTrue(rows.get(1).startsWith("a.png,"), rows.get(1));
+        assertTrue(rows.get(1).contains(",default,A,"), rows.get(1));
+        assertTrue(rows.get(4).startsWith("b.png,3,"), rows.get(4));
+        assertTrue(rows.get(4).endsWith(",图片解码失败"), rows.get(4));
+
+        // 分析器配置变了，列对不上：拒绝追加
+        AnalysisProperties other = new AnalysisProperties();
+        other.getIngest().setFormat(AnalysisProperties.Ingest.OutputFormat.CSV);
+        assertThrows(IllegalStateException.class, () -> service(in, out, other));
+    }
+
+    @Test
+    void unknownAnalyzerIsRejected(@TempDir Path tmp) {
+        AnalysisProperties props = new AnalysisProperties();
+        props.getIngest().setAnalyzers(List.of("xiebo"));
+        assertThrows(IllegalArgumentException.class, () -> service(tmp, tmp.resolve("r.ndjson"), props));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.guowangwaveformimage.job;
+
+import com.example.guowangwaveformimage.analysis.AnalysisExecutor;
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobServiceTests {
+
+    private AnalysisExecutor executor;
+    private JobService jobs;
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) jobs.shutdown();
+        if (executor != null) executor.shutdown();
+    }
+
+    private void init(int workers, int queue) {
+        AnalysisProperties props = new AnalysisProperties();
+        props.getExecutor().setThreads(2);
+        props.getJobs().setWorkers(workers);
+        props.getJobs().setQueueCapacity(queue);
+        executor = new AnalysisExecutor(props);
+        jobs = new JobService(executor, props);
+    }
+
+    private static List<MultipartFile> files(String... contents) {
+        return Arrays.stream(contents)
+                .map(c -> (MultipartFile) new MockMultipartFile("files", c + ".txt", "text/plain", c.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.toList());
+    }
+
+    private static void awaitFinished(AnalysisJob job) throws InterruptedException {
+        for (int i = 0; i < 500 && !job.finished(); i++) job.awaitProgress(Integer.MAX_VALUE, 10);
+        assertTrue(job.finished());
+    }
+
+    @Test
+    void stagedFilesAreAnalysedAndResultsPolled() throws Exception {
+        init(1, 4);
+        AnalysisJob job = jobs.submit("test", List.of("a", "b", "c"), files("aa", "bbb", "c"),
+                (fs, i) -> i == 1 ? null : new String(fs.get(i).getBytes(), StandardCharsets.UTF_8));
+        awaitFinished(job);
+
+        AnalysisJob.Status s = job.status(true);
+        assertEquals(AnalysisJob.State.DONE, s.state);
+        assertEquals(2, s.done);
+        assertEquals(1, s.failed);
+        assertEquals(1.0, s.progress);
+
+        AnalysisJob.Results all = job.results(0);
+        assertEquals(3, all.results.size());
+        assertTrue(all.complete);
+        assertTrue(job.results(all.next).results.isEmpty());
+        AnalysisJob.Entry a = all.results.stream().filter(e -> e.index == 0).findFirst().orElseThrow();
+        assertEquals("aa", a.result);
+    }
+
+    @Test
+    void fullQueueIsRejectedAndQueuedJobCanBeCancelled() throws Exception {
+        init(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AnalysisJob running = jobs.submit("test", List.of("x"), files("x"), (fs, i) -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "x";
+        });
+        while (running.state() == AnalysisJob.State.QUEUED) Thread.sleep(5);
+
+        AnalysisJob queued = jobs.submit("test", List.of("y"), files("y"), (fs, i) -> "y");
+        assertThrows(JobQueueFullException.class,
+                () -> jobs.submit("test", List.of("z"), files("z"), (fs, i) -> "z"));
+
+        jobs.cancel(queued.id());
+        assertEquals(AnalysisJob.State.CANCELLED, queued.state());
+        assertEquals(1, queued.status(false).skipped);
+
+        release.countDown();
+        awaitFinished(running);
+        assertEquals(AnalysisJob.State.DONE, running.state());
+    }
+}
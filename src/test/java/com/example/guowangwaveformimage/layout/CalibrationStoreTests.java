@@ -0,0 +1,104 @@
+package com.example.guowangwaveformimage.layout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibrationStoreTests {
+
+    private static final List<Integer> DASHES = List.of(23, 79, 190, 246);
+
+    private static CalibrationStore.PhaseDashes measured(int y2, List<Integer> dashYs) {
+        CalibrationStore.PhaseDashes p = new CalibrationStore.PhaseDashes();
+        p.y2 = y2;
+        p.dashYs = dashYs;
+        p.samples = 1;
+        return p;
+    }
+
+    @Test
+    void learnedDashesTakeEffectAfterConsistentSamples() {
+        CalibrationStore store = new CalibrationStore(3, 2, "", new ObjectMapper());
+        CalibrationStore.Slot slot = store.slot(LayoutProfile.builtin(), 0);
+
+        slot.observe(134, DASHES);
+        slot.observe(135, List.of(24, 79, 190, 247));   // 容差内视为一致
+        assertNull(slot.dashes(134));
+        assertEquals(0, store.version());
+        slot.observe(134, DASHES);
+        assertEquals(DASHES, slot.dashes(134));
+        // 0 轴偏出容差：图片与标定不符，不命中
+        assertNull(slot.dashes(140));
+        // 学习结果生效时结果缓存版本加一，之后一致的观测不再改变
+        assertEquals(1, store.version());
+        slot.observe(134, DASHES);
+        assertEquals(1, store.version());
+        // 不一致的观测使学习结果失效，版本再加一
+        slot.observe(134, List.of(50, 100));
+        assertNull(slot.dashes(134));
+        assertEquals(2, store.version());
+    }
+
+    @Test
+    void inconsistentObservationRestartsLearning() {
+        CalibrationStore store = new CalibrationStore(2, 2, "", new ObjectMapper());
+        CalibrationStore.Slot slot = store.slot(LayoutProfile.builtin(), 1);
+        slot.observe(134, DASHES);
+        slot.observe(134, List.of(23, 79, 190));
+        assertNull(slot.dashes(134));
+        slot.observe(134, List.of(23, 79, 190));
+        assertEquals(List.of(23, 79, 190), slot.dashes(134));
+    }
+
+    @Test
+    void confirmedDashesAreNotOverwrittenByLearning() {
+        CalibrationStore store = new CalibrationStore(1, 2, "", new ObjectMapper());
+        LayoutProfile layout = LayoutProfile.builtin();
+        store.confirm(layout, Map.of(0, measured(134, DASHES)), null, null);
+        assertEquals(1, store.version());
+
+        CalibrationStore.Slot slot = store.slot(layout, 0);
+        slot.observe(134, List.of(50, 100));
+        assertEquals(DASHES, slot.dashes(134));
+        assertTrue(store.get(layout).phases.get(0).confirmed);
+
+        store.remove(layout);
+        assertNull(slot.dashes(134));
+        assertTrue(store.get(layout).phases.isEmpty());
+    }
+
+    @Test
+    void scaleOverrideFallsBackToLayout() {
+        CalibrationStore store = new CalibrationStore();
+        LayoutProfile layout = LayoutProfile.builtin();
+        assertEquals(200000.0, store.perSeg(layout, true));
+        store.setScale(layout, 100000.0, null);
+        assertEquals(100000.0, store.perSeg(layout, true));
+        assertEquals(500.0, store.perSeg(layout, false));
+        store.setScale(layout, null, 250.0);
+        assertEquals(100000.0, store.perSeg(layout, true));
+        assertEquals(250.0, store.perSeg(layout, false));
+        assertThrows(IllegalArgumentException.class, () -> store.setScale(layout, -1.0, null));
+        assertEquals(2, store.version());
+    }
+
+    @Test
+    void operatorCalibrationSurvivesRestart(@TempDir Path dir) {
+        String file = dir.resolve("calibration.json").toString();
+        LayoutProfile layout = LayoutProfile.builtin();
+        CalibrationStore first = new CalibrationStore(3, 2, file, new ObjectMapper());
+        first.confirm(layout, Map.of(2, measured(134, DASHES)), 150000.0, null);
+        first.slot(layout, 0).observe(134, DASHES);     // 学习结果不落盘
+
+        CalibrationStore second = new CalibrationStore(3, 2, file, new ObjectMapper());
+        assertEquals(150000.0, second.perSeg(layout, true));
+        assertEquals(DASHES, second.slot(layout, 2).dashes(134));
+        assertNull(second.get(layout).phases.get(0));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.guowangwaveformimage.layout;
+
+import com.example.guowangwaveformimage.config.AnalysisProperties;
+import com.example.guowangwaveformimage.image.ImageDecoder;
+import com.example.guowangwaveformimage.image.ImageHeader;
+import com.example.guowangwaveformimage.image.ScratchPool;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator;
+import com.example.guowangwaveformimage.synthetic.ScopeImageGenerator.Spec;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayoutProfilesTests {
+
+    @BeforeAll
+    static void loadOpenCv() {
+        Loader.load(opencv_java.class);
+    }
+
+    private static LayoutProfile profile(String name, int w, int h, int roiY, int roiH) {
+        LayoutProfile p = new LayoutProfile();
+        p.setName(name);
+        p.setImageWidth(w);
+        p.setImageHeight(h);
+        for (int i = 0; i < 3; i++) {
+            p.getPhases().add(new LayoutProfile.PhaseRoi(null, 55, roiY + i * 314, 1400, roiH));
+        }
+        return p;
+    }
+
+    private static LayoutProfiles registry(LayoutProfile... ps) {
+        return new LayoutProfiles(List.of(ps), new ScratchPool(), 64, Duration.ofMinutes(1));
+    }
+
+    private static ImageDecoder.EncodedImage encoded(byte[] bytes) throws Exception {
+        return new ImageDecoder(new AnalysisProperties()).read(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    @Test
+    void headerSizeOfPngAndJpeg() {
+        Mat img = ScopeImageGenerator.render(Spec.random(3, false, false, 0));
+        byte[] png = ScopeImageGenerator.png(img);
+        assertArrayEquals(new int[]{1920, 1080}, ImageHeader.size(ByteBuffer.wrap(png), png.length));
+
+        MatOfByte jpg = new MatOfByte();
+        Imgcodecs.imencode(".jpg", img, jpg);
+        byte[] jpeg = jpg.toArray();
+        assertArrayEquals(new int[]{1920, 1080}, ImageHeader.size(ByteBuffer.wrap(jpeg), jpeg.length));
+        assertNull(ImageHeader.size(ByteBuffer.wrap(new byte[64]), 64));
+        img.release();
+        jpg.release();
+    }
+
+    @Test
+    void singleLayoutNeedsNoDetection() throws Exception {
+        LayoutProfiles layouts = new LayoutProfiles();
+        byte[] png = ScopeImageGenerator.png(Spec.random(1, false, false, 0));
+        LayoutProfile p = layouts.resolve(encoded(png), null);
+        assertEquals("default", p.getName());
+        assertArrayEquals(ScopeImageGenerator.ROIS, p.rects());
+    }
+
+    @Test
+    void exactImageSizeSelectsWithoutDecoding() throws Exception {
+        LayoutProfiles layouts = registry(profile("small", 1600, 1000, 20, 300), profile("hd", 1920, 1080, 56, 310));
+        byte[] png = ScopeImageGenerator.png(Spec.random(2, false, false, 0));
+        assertEquals("hd", layouts.resolve(encoded(png), null).getName());
+        // 指定布局优先于识别
+        assertEquals("small", layouts.resolve(encoded(png), layouts.require("small")).getName());
+    }
+
+    @Test
+    void lineSignatureBreaksTies() throws Exception {
+        // 两个都不限尺寸、都落在图内：只有 ROI 覆盖三条实线的布局得分
+        LayoutProfiles layouts = registry(profile("narrow", 0, 0, 70, 40), profile("wide", 0, 0, 56, 310));
+        byte[] png = ScopeImageGenerator.png(Spec.random(4, false, false, 0));
+        ImageDecoder.EncodedImage enc = encoded(png);
+        assertNull(layouts.resolve(enc, null));
+
+        Mat img = Imgcodecs.imdecode(new MatOfByte(png), Imgcodecs.IMREAD_COLOR);
+        assertEquals("wide", layouts.detect(img, enc.hash()).getName());
+        img.release();
+        // 识别结果按内容缓存，再次解析不需要解码
+        assertEquals("wide", layouts.resolve(enc, null).getName());
+    }
+
+    @Test
+    void registryChangesInvalidateDetection() throws Exception {
+        LayoutProfiles layouts = registry(profile("narrow", 0, 0, 70, 40), profile("wide", 0, 0, 56, 310));
+        String before = layouts.cacheKey(null);
+        layouts.register(profile("hd", 1920, 1080, 56, 310));
+        assertNotEquals(before, layouts.cacheKey(null));
+
+        byte[] png = ScopeImageGenerator.png(Spec.random(5, false, false, 0));
+        assertEquals("hd", layouts.resolve(encoded(png), null).getName());
+        assertTrue(layouts.remove("hd"));
+        assertNull(layouts.resolve(encoded(png), null));
+        assertFalse(layouts.remove("hd"));
+    }
+
+    @Test
+    void validationAndFingerprint() {
+        LayoutProfile outside = profile("bad", 1000, 800, 56, 310);
+        assertThrows(IllegalArgumentException.class, outside::validate);
+        assertThrows(IllegalArgumentException.class, () -> new LayoutProfile().validate());
+        assertThrows(IllegalArgumentException.class, () -> new LayoutProfiles().require("nope"));
+
+        LayoutProfile a = profile("x", 0, 0, 56, 310).validate();
+        LayoutProfile b = profile("x", 0, 0, 56, 300).validate();
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+        assertEquals(a.getFingerprint(), profile("x", 0, 0, 56, 310).validate().getFingerprint());
+        assertArrayEquals(new String[]{"A", "B", "C"}, a.names());
+        assertEquals(List.of(0, 1, 2), a.indexes());
+
+        LayoutProfiles single = new LayoutProfiles();
+        assertThrows(IllegalArgumentException.class, () -> single.remove("default"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.guowangwaveformimage.session;
+
+import com.example.guowangwaveformimage.analysis.period.PeriodMethod;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CycleTrackerTests {
+
+    // 与合成截图一致：每格 25 ms、270 像素
+    private static final double SPP = 0.025 / 270;
+
+    private static CycleTracker tracker() {
+        return new CycleTracker(SPP, RecordingSession.PERIOD_MIN_SEC, RecordingSession.PERIOD_MAX_SEC, 4);
+    }
+
+    private static double[] sine(int n, double amplitude, double freqHz, double phaseDeg) {
+        double[] s = new double[n];
+        for (int k = 0; k < n; k++) s[k] = amplitude * Math.sin(2 * Math.PI * freqHz * k * SPP + Math.toRadians(phaseDeg));
+        return s;
+    }
+
+    private static List<Cycle> feedInChunks(CycleTracker t, double[] v, double[] i, int... cuts) {
+        List<Cycle> out = new ArrayList<>();
+        int from = 0;
+        for (int to : cuts) {
+            out.addAll(t.feed(Arrays.copyOfRange(v, from, to), i == null ? null : Arrays.copyOfRange(i, from, to)));
+            from = to;
+        }
+        out.addAll(t.feed(Arrays.copyOfRange(v, from, v.length), i == null ? null : Arrays.copyOfRange(i, from, v.length)));
+        return out;
+    }
+
+    @Test
+    void cyclesDoNotDependOnFrameBoundaries() {
+        double[] v = sine(4000, 150000, 50, 30);
+        List<Cycle> whole = tracker().feed(v, null);
+        List<Cycle> split = feedInChunks(tracker(), v, null, 700, 701, 1850, 3333);
+
+        // 50 Hz 下一个周期约 216 像素：首个过零前的部分不计，之后每个完整周期一条
+        assertEquals(17, whole.size());
+        assertEquals(whole.size(), split.size());
+        for (int k = 0; k < whole.size(); k++) {
+            Cycle a = whole.get(k), b = split.get(k);
+            assertEquals(k, b.index);
+            assertEquals(a.startMs, b.startMs, 1e-9);
+            assertEquals(a.freqHz, b.freqHz, 1e-9);
+            assertEquals(a.rms_kV, b.rms_kV, 1e-9);
+            assertEquals(50.0, b.freqHz, 0.05);
+            assertEquals(150.0 / Math.sqrt(2), b.rms_kV, 150.0 * 0.005);
+            assertEquals(150.0, b.peak_kV, 0.5);
+            assertNull(b.P_kW);
+        }
+    }
+
+    @Test
+    void powerPerCycleFollowsPhaseShift() {
+        double[] v = sine(3000, 150000, 50, 0);
+        double[] i = sine(3000, 400, 50, -30);
+        List<Cycle> cycles = feedInChunks(tracker(), v, i, 1000, 2000);
+        assertFalse(cycles.isEmpty());
+        double p = 150000 / Math.sqrt(2) * 400 / Math.sqrt(2) * Math.cos(Math.toRadians(30)) / 1000;
+        for (Cycle c : cycles) {
+            assertEquals(400 / Math.sqrt(2), c.irms_A, 400 * 0.005);
+            assertEquals(Math.cos(Math.toRadians(30)), c.PF, 0.01);
+            assertEquals(p, c.P_kW, p * 0.01);
+            assertTrue(c.S_kVA >= c.P_kW);
+        }
+    }
+
+    @Test
+    void noiseAroundZeroDoesNotSplitCycles() {
+        double[] v = sine(4000, 150000, 50, 0);
+        Random rnd = new Random(7);
+        for (int k = 0; k < v.length; k++) v[k] += 3000 * rnd.nextGaussian();
+        List<Cycle> cycles = tracker().feed(v, null);
+        assertTrue(cycles.size() >= 16 && cycles.size() <= 18, "周期数 " + cycles.size());
+        for (Cycle c : cycles) assertEquals(50.0, c.freqHz, 1.0);
+    }
+
+    @Test
+    void gapRealignsAtNextCrossing() {
+        double[] v = sine(4000, 150000, 50, 0);
+        Arrays.fill(v, 1000, 1100, Double.NaN);
+        CycleTracker t = tracker();
+        List<Cycle> cycles = t.feed(v, null);
+        // 跨过缺口的周期丢弃，其余照常；时间轴不因缺口压缩
+        for (Cycle c : cycles) {
+            assertEquals(50.0, c.freqHz, 0.05);
+            double startPx = c.startMs / 1000 / SPP;
+            assertTrue(startPx + c.periodMs / 1000 / SPP <= 1000 || startPx >= 1100, "跨缺口的周期: " + startPx);
+        }
+        assertTrue(cycles.size() >= 14, "周期数 " + cycles.size());
+        assertEquals(4000, t.samples());
+    }
+
+    @Test
+    void rollingPeriodSpansFrames() {
+        CycleTracker t = tracker();
+        double[] v = sine(1200, 150000, 50, 0);
+        t.feed(Arrays.copyOfRange(v, 0, 200), null);
+        assertTrue(Double.isNaN(t.rollingPeriodPx(PeriodMethod.AUTOCORR.estimator())));
+        t.feed(Arrays.copyOfRange(v, 200, 1200), null);
+        double expected = 1 / (50 * SPP);
+        assertEquals(expected, t.rollingPeriodPx(PeriodMethod.AUTOCORR.estimator()), 1.0);
+        assertEquals(expected, t.rollingPeriodPx(PeriodMethod.SPECTRUM.estimator()), 1.0);
+    }
+}